@@ -0,0 +1,212 @@
+package com.alex323glo.hibernate.benchmark;
+
+import com.alex323glo.hibernate.dao.DAO;
+import com.alex323glo.hibernate.dao.GeneralDAO;
+import com.alex323glo.hibernate.model.City;
+import com.alex323glo.hibernate.model.Game;
+import com.alex323glo.hibernate.model.IDEntity;
+import com.alex323glo.hibernate.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * JMH benchmarks of GeneralDAO operations for User, City and Game against in-memory H2
+ * persistence unit (configured like 'test-hibernate-h2-unit', but without file DB).
+ *
+ * Parameters: Entity, number of instances, stored before measurement ('datasetSize'), and
+ * JDBC batch size of GeneralDAO ('batchSize', affects 'createAll'). Number of threads is set
+ * by DAOBenchmarkRunner.
+ *
+ * Run with: gradlew jmh [-PjmhThreads=1,4,8] [-PjmhArgs="-p entity=User -wi 1"]
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see DAOBenchmarkRunner
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DAOBenchmark {
+
+    /**
+     * Number of instances, listed by 'getAll'.
+     */
+    private static final int PAGE_SIZE = 100;
+
+    /**
+     * Number of instances, written by one 'createAll'.
+     */
+    private static final int BULK_SIZE = 500;
+
+    @Param({"User", "City", "Game"})
+    public String entity;
+
+    @Param({"1000", "10000"})
+    public int datasetSize;
+
+    @Param({"1", "50"})
+    public int batchSize;
+
+    private EntityManagerFactory factory;
+    private DAO<Integer, IDEntity> dao;
+    private IntFunction<IDEntity> instanceFactory;
+    private int[] ids;
+
+    private final AtomicInteger counter = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        Class<? extends IDEntity> entityClass;
+        switch (entity) {
+            case "User":
+                entityClass = User.class;
+                instanceFactory = i -> new User("User " + i, i, new Date());
+                break;
+            case "City":
+                entityClass = City.class;
+                instanceFactory = i -> new City("City " + i);
+                break;
+            case "Game":
+                entityClass = Game.class;
+                instanceFactory = i -> new Game("Game " + i);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown Entity " + entity + ".");
+        }
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("javax.persistence.jdbc.url", "jdbc:h2:mem:dao_benchmark;DB_CLOSE_DELAY=-1");
+        properties.put("hibernate.hbm2ddl.auto", "create-drop");
+        properties.put("hibernate.show_sql", "false");
+        factory = Persistence.createEntityManagerFactory("test-hibernate-h2-unit", properties);
+
+        GeneralDAO<Integer, IDEntity> generalDAO =
+                new GeneralDAO<>(factory, Integer.class, (Class<IDEntity>) entityClass);
+        generalDAO.setBatchSize(batchSize);
+        dao = generalDAO;
+
+        List<IDEntity> dataset = newInstances(datasetSize);
+        dao.createAll(dataset);
+        ids = dataset.stream().mapToInt(IDEntity::getId).toArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        factory.close();
+    }
+
+    @Benchmark
+    public IDEntity create() {
+        return dao.create(instanceFactory.apply(counter.incrementAndGet()));
+    }
+
+    @Benchmark
+    public IDEntity readById() {
+        return dao.readById(randomId());
+    }
+
+    @Benchmark
+    public IDEntity update(OwnIds ownIds) {
+        int index = ThreadLocalRandom.current().nextInt(ownIds.ids.length);
+        IDEntity element = instanceFactory.apply(counter.incrementAndGet());
+        element.setId(ownIds.ids[index]);
+        element.setVersion(ownIds.versions[index]);
+
+        IDEntity oldElement = dao.update(element.getId(), element);
+        // committed version is copied to proposed instance:
+        ownIds.versions[index] = element.getVersion();
+        return oldElement;
+    }
+
+    @Benchmark
+    public IDEntity delete(Victim victim) {
+        return dao.delete(victim.id);
+    }
+
+    @Benchmark
+    public List<IDEntity> getAll() {
+        return dao.getAll(PAGE_SIZE);
+    }
+
+    @Benchmark
+    public int createAll() {
+        return dao.createAll(newInstances(BULK_SIZE));
+    }
+
+    /**
+     * Instance, which is stored before each invocation of 'delete' (outside of measurement).
+     */
+    @State(Scope.Thread)
+    public static class Victim {
+
+        int id;
+
+        @Setup(Level.Invocation)
+        public void setUp(DAOBenchmark benchmark) {
+            id = benchmark.dao.create(benchmark.instanceFactory.apply(benchmark.counter.incrementAndGet())).getId();
+        }
+    }
+
+    /**
+     * Stored instances, which are updated only by one thread (so their versions are known
+     * and updates don't fail because of concurrent modifications).
+     */
+    @State(Scope.Thread)
+    public static class OwnIds {
+
+        int[] ids;
+        long[] versions;
+
+        @Setup(Level.Trial)
+        public void setUp(DAOBenchmark benchmark, ThreadParams threadParams) {
+            ids = IntStream.range(0, benchmark.ids.length)
+                    .filter(i -> i % threadParams.getThreadCount() == threadParams.getThreadIndex())
+                    .map(i -> benchmark.ids[i])
+                    .toArray();
+            versions = new long[ids.length];
+        }
+    }
+
+    private int randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+
+    private List<IDEntity> newInstances(int number) {
+        List<IDEntity> instances = new ArrayList<>(number);
+        for (int i = 0; i < number; i++) {
+            instances.add(instanceFactory.apply(counter.incrementAndGet()));
+        }
+        return instances;
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.alex323glo.hibernate.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * Runs DAOBenchmark once per proposed number of threads, with GC profiler (allocation rate),
+ * and writes results of each run to JSON file.
+ *
+ * System properties:
+ *  - 'jmh.threads': comma-separated numbers of threads (default "1,4");
+ *  - 'jmh.resultDir': directory of JSON results (default "build/reports/jmh").
+ * Arguments are standard JMH command line options (they override annotations of benchmarks).
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see DAOBenchmark
+ */
+public class DAOBenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+        File resultDir = new File(System.getProperty("jmh.resultDir", "build/reports/jmh"));
+        if (!resultDir.isDirectory() && !resultDir.mkdirs()) {
+            throw new IllegalStateException("Can't create directory " + resultDir + ".");
+        }
+
+        for (String threads : System.getProperty("jmh.threads", "1,4").split(",")) {
+            int threadsNumber = Integer.parseInt(threads.trim());
+
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                    .parent(commandLineOptions)
+                    .threads(threadsNumber)
+                    .addProfiler(GCProfiler.class)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(new File(resultDir, "dao-benchmark-" + threadsNumber + "-threads.json").getPath());
+            // benchmarks could be narrowed by regexp argument (e.g. "DAOBenchmark.update"):
+            if (commandLineOptions.getIncludes().isEmpty()) {
+                options.include(DAOBenchmark.class.getName());
+            }
+            new Runner(options.build()).run();
+        }
+    }
+
+}
@@ -0,0 +1,499 @@
+package com.alex323glo.hibernate.dao;
+
+import com.alex323glo.hibernate.exception.DAOException;
+import org.apache.log4j.Logger;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Asynchronous decorator of DAO: mirrors DAO operations, but executes them on its own
+ * bounded executor and returns CompletableFutures, so callers' threads aren't blocked by DB.
+ *
+ * At most 'maxConcurrency' operations (usually the size of connection pool) are executed
+ * at the same time, and at most 'queueCapacity' operations wait for execution. Operations,
+ * which exceed these limits, are rejected at once (their futures fail with DAOException).
+ *
+ * Each operation is limited by timeout: future of operation, which wasn't finished in time,
+ * fails with DAOException (caused by TimeoutException). Operations, which timed out or
+ * whose futures were cancelled by caller, are removed from queue or interrupted.
+ *
+ * Operations are executed on virtual threads, if runtime supports them (Java 21+), or on
+ * fixed pool of daemon platform threads otherwise.
+ *
+ * WARNING! Callbacks of returned futures (thenApply, etc.) could be executed on threads
+ * of this DAO, so they shouldn't block. Lazy Stream of 'streamAll()' isn't mirrored,
+ * use 'streamAll(Consumer)' instead.
+ *
+ * @param <ID> type of Primary Key of stored Entity.
+ * @param <V> type of stored Entity.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see DAO
+ */
+public class AsyncDAO<ID, V> implements AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(AsyncDAO.class);
+
+    private static final AtomicInteger INSTANCE_COUNTER = new AtomicInteger();
+
+    private final DAO<ID, V> delegate;
+    private final int maxConcurrency;
+    private final int queueCapacity;
+    private final long timeoutNanos;
+    private final boolean virtualThreads;
+
+    private final ExecutorService executor;
+    private final ScheduledExecutorService timeoutScheduler;
+
+    // executing and waiting operations:
+    private final Semaphore admissionPermits;
+    // executing operations (only for virtual threads, pool of platform threads limits itself):
+    private final Semaphore concurrencyPermits;
+
+    /**
+     * Creates asynchronous DAO, which uses virtual threads, if runtime supports them.
+     *
+     * @see AsyncDAO#AsyncDAO(DAO, int, int, Duration, boolean)
+     */
+    public AsyncDAO(DAO<ID, V> delegate, int maxConcurrency, int queueCapacity, Duration timeout) {
+        this(delegate, maxConcurrency, queueCapacity, timeout, isVirtualThreadsSupported());
+    }
+
+    /**
+     * @param delegate decorated (blocking) DAO.
+     * @param maxConcurrency max number of operations, which are executed at the same time
+     *                       (should be equal to max size of connection pool).
+     * @param queueCapacity max number of operations, which wait for execution.
+     * @param timeout max time of operation (including waiting in queue).
+     * @param virtualThreads true, if operations should be executed on virtual threads
+     *                       (ignored, if runtime doesn't support them).
+     */
+    public AsyncDAO(DAO<ID, V> delegate, int maxConcurrency, int queueCapacity, Duration timeout,
+                    boolean virtualThreads) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be positive, but was " + maxConcurrency);
+        }
+        if (queueCapacity < 0) {
+            throw new IllegalArgumentException("queueCapacity must not be negative, but was " + queueCapacity);
+        }
+        if (timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("timeout must be positive, but was " + timeout);
+        }
+
+        this.delegate = delegate;
+        this.maxConcurrency = maxConcurrency;
+        this.queueCapacity = queueCapacity;
+        this.timeoutNanos = timeout.toNanos();
+        this.virtualThreads = virtualThreads && isVirtualThreadsSupported();
+
+        String threadNamePrefix = "async-dao-" + INSTANCE_COUNTER.incrementAndGet();
+        this.admissionPermits = new Semaphore(maxConcurrency + queueCapacity);
+        if (this.virtualThreads) {
+            this.executor = newVirtualThreadPerTaskExecutor();
+            this.concurrencyPermits = new Semaphore(maxConcurrency);
+        } else {
+            // queue is bounded by admission permits:
+            this.executor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 0, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(), daemonThreadFactory(threadNamePrefix + "-worker-"));
+            this.concurrencyPermits = null;
+        }
+
+        ScheduledThreadPoolExecutor scheduler =
+                new ScheduledThreadPoolExecutor(1, daemonThreadFactory(threadNamePrefix + "-timeout-"));
+        scheduler.setRemoveOnCancelPolicy(true);
+        this.timeoutScheduler = scheduler;
+
+        LOG.trace("Asynchronous DAO was created (max concurrency " + maxConcurrency + ", queue capacity " +
+                queueCapacity + ", " + (this.virtualThreads ? "virtual" : "platform") + " threads).");
+    }
+
+    /**
+     * @return true, if runtime supports virtual threads.
+     */
+    public static boolean isVirtualThreadsSupported() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    public DAO<ID, V> getDelegate() {
+        return delegate;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public Duration getTimeout() {
+        return Duration.ofNanos(timeoutNanos);
+    }
+
+    public boolean isUsingVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * @return number of operations, which are executed or wait for execution at the moment.
+     */
+    public int getPendingNumber() {
+        return maxConcurrency + queueCapacity - admissionPermits.availablePermits();
+    }
+
+    /**
+     * Executes proposed work inside of unit of work (on one thread of this DAO).
+     * @see DAO#inTransaction(Function)
+     */
+    public <R> CompletableFuture<R> inTransaction(Function<? super DAO<ID, V>, R> work) {
+        return submit("inTransaction", () -> delegate.inTransaction(work));
+    }
+
+    /**
+     * @see DAO#inTransaction(UnitOfWork.Propagation, Function)
+     */
+    public <R> CompletableFuture<R> inTransaction(UnitOfWork.Propagation propagation,
+                                                  Function<? super DAO<ID, V>, R> work) {
+        return submit("inTransaction", () -> delegate.inTransaction(propagation, work));
+    }
+
+    /**
+     * @see DAO#create(Object)
+     */
+    public CompletableFuture<V> create(V element) {
+        return submit("create", () -> delegate.create(element));
+    }
+
+    /**
+     * @see DAO#readById(Object)
+     */
+    public CompletableFuture<V> readById(ID id) {
+        return submit("readById", () -> delegate.readById(id));
+    }
+
+    /**
+     * @see DAO#readById(Object, FetchPlan)
+     */
+    public CompletableFuture<V> readById(ID id, FetchPlan fetchPlan) {
+        return submit("readById", () -> delegate.readById(id, fetchPlan));
+    }
+
+    /**
+     * @see DAO#readByIds(Collection)
+     */
+    public CompletableFuture<List<V>> readByIds(Collection<ID> ids) {
+        return submit("readByIds", () -> delegate.readByIds(ids));
+    }
+
+    /**
+     * @see DAO#update(Object, Object)
+     */
+    public CompletableFuture<V> update(ID id, V element) {
+        return submit("update", () -> delegate.update(id, element));
+    }
+
+    /**
+     * Backoff between attempts occupies executor thread (and is interrupted by timeout).
+     * @see DAO#updateWithRetry(Object, Consumer)
+     */
+    public CompletableFuture<V> updateWithRetry(ID id, Consumer<? super V> mutation) {
+        return submit("updateWithRetry", () -> delegate.updateWithRetry(id, mutation));
+    }
+
+    /**
+     * Backoff between attempts occupies executor thread (and is interrupted by timeout).
+     * @see DAO#updateWithRetry(Object, Consumer, RetryPolicy)
+     */
+    public CompletableFuture<V> updateWithRetry(ID id, Consumer<? super V> mutation, RetryPolicy retryPolicy) {
+        return submit("updateWithRetry", () -> delegate.updateWithRetry(id, mutation, retryPolicy));
+    }
+
+    /**
+     * @see DAO#upsert(Object)
+     */
+    public CompletableFuture<V> upsert(V element) {
+        return submit("upsert", () -> delegate.upsert(element));
+    }
+
+    /**
+     * @see DAO#patch(Object, Map)
+     */
+    public CompletableFuture<Integer> patch(ID id, Map<String, Object> changes) {
+        return submit("patch", () -> delegate.patch(id, changes));
+    }
+
+    /**
+     * @see DAO#delete(Object)
+     */
+    public CompletableFuture<V> delete(ID id) {
+        return submit("delete", () -> delegate.delete(id));
+    }
+
+    /**
+     * @see DAO#deleteAll(Collection)
+     */
+    public CompletableFuture<Integer> deleteAll(Collection<ID> ids) {
+        return submit("deleteAll", () -> delegate.deleteAll(ids));
+    }
+
+    /**
+     * @see DAO#deleteWhere(Condition)
+     */
+    public CompletableFuture<Integer> deleteWhere(Condition<V> condition) {
+        return submit("deleteWhere", () -> delegate.deleteWhere(condition));
+    }
+
+    /**
+     * @see DAO#getAll(int)
+     */
+    public CompletableFuture<List<V>> getAll(int maxResultsNumber) {
+        return submit("getAll", () -> delegate.getAll(maxResultsNumber));
+    }
+
+    /**
+     * @see DAO#getAll(int, FetchPlan)
+     */
+    public CompletableFuture<List<V>> getAll(int maxResultsNumber, FetchPlan fetchPlan) {
+        return submit("getAll", () -> delegate.getAll(maxResultsNumber, fetchPlan));
+    }
+
+    /**
+     * @see DAO#getAll(Class, int)
+     */
+    public <P> CompletableFuture<List<P>> getAll(Class<P> projectionClass, int maxResultsNumber) {
+        return submit("getAll", () -> delegate.getAll(projectionClass, maxResultsNumber));
+    }
+
+    /**
+     * @see DAO#findBy(String, Object, int)
+     */
+    public CompletableFuture<List<V>> findBy(String attributeName, Object value, int maxResultsNumber) {
+        return submit("findBy", () -> delegate.findBy(attributeName, value, maxResultsNumber));
+    }
+
+    /**
+     * @see DAO#findInRange(String, Object, Object, int)
+     */
+    public CompletableFuture<List<V>> findInRange(String attributeName, Object lowerBound, Object upperBound,
+                                                  int maxResultsNumber) {
+        return submit("findInRange",
+                () -> delegate.findInRange(attributeName, lowerBound, upperBound, maxResultsNumber));
+    }
+
+    /**
+     * @see DAO#getPage(Object, int)
+     */
+    public CompletableFuture<Page<ID, V>> getPage(ID afterId, int pageSize) {
+        return submit("getPage", () -> delegate.getPage(afterId, pageSize));
+    }
+
+    /**
+     * @see DAO#createAll(Collection)
+     */
+    public CompletableFuture<Integer> createAll(Collection<V> elements) {
+        return submit("createAll", () -> delegate.createAll(elements));
+    }
+
+    /**
+     * @see DAO#updateAll(Collection)
+     */
+    public CompletableFuture<Integer> updateAll(Collection<V> elements) {
+        return submit("updateAll", () -> delegate.updateAll(elements));
+    }
+
+    /**
+     * Passes all stored instances to proposed consumer (on thread of this DAO).
+     * @see DAO#streamAll(Consumer)
+     */
+    public CompletableFuture<Long> streamAll(Consumer<? super V> consumer) {
+        return submit("streamAll", () -> delegate.streamAll(consumer));
+    }
+
+    /**
+     * Stops accepting of new operations. Already accepted operations are still executed
+     * (and still limited by timeout).
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        timeoutScheduler.shutdown();
+        LOG.trace("Asynchronous DAO was closed (" + getPendingNumber() + " operations are pending).");
+    }
+
+    /**
+     * Submits proposed operation to executor, if limits allow it, and schedules its timeout.
+     *
+     * @param operationName name of operation (for logs).
+     * @param operation blocking operation.
+     * @param <R> type of operation's result.
+     * @return future of operation's result.
+     */
+    private <R> CompletableFuture<R> submit(String operationName, Supplier<R> operation) {
+        CompletableFuture<R> result = new CompletableFuture<>();
+
+        if (!admissionPermits.tryAcquire()) {
+            DAOException exception = new DAOException("Can't submit " + operationName + " operation: " +
+                    (maxConcurrency + queueCapacity) + " operations are already pending.");
+            LOG.error(exception.getMessage(), exception);
+            result.completeExceptionally(exception);
+            return result;
+        }
+
+        OperationTask<R> task = new OperationTask<>(operation, result);
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            admissionPermits.release();
+
+            LOG.error("Can't submit " + operationName + " operation. " + e.getMessage(), e);
+            result.completeExceptionally(new DAOException("AsyncDAO instance was closed.", e));
+            return result;
+        }
+
+        ScheduledFuture<?> timeout = timeoutScheduler.schedule(() -> {
+            TimeoutException cause = new TimeoutException(operationName + " operation wasn't finished in " +
+                    TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + " ms.");
+            if (result.completeExceptionally(new DAOException(cause))) {
+                LOG.error(cause.getMessage(), cause);
+            }
+        }, timeoutNanos, TimeUnit.NANOSECONDS);
+
+        result.whenComplete((value, error) -> {
+            timeout.cancel(false);
+            // operation is interrupted only if its future was completed from outside
+            // (cancelled by caller or timed out), not by operation itself:
+            if (result.isCancelled() || (error instanceof DAOException && error.getCause() instanceof TimeoutException)) {
+                task.interrupt();
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Task of executor, which executes operation and completes its future.
+     * Operation is skipped, if its future was already completed (cancelled or timed out)
+     * before the start of task.
+     *
+     * @param <R> type of operation's result.
+     */
+    private class OperationTask<R> implements Runnable {
+
+        private final Supplier<R> operation;
+        private final CompletableFuture<R> result;
+
+        // thread, which executes operation at the moment (guarded by 'this'):
+        private Thread runner;
+
+        OperationTask(Supplier<R> operation, CompletableFuture<R> result) {
+            this.operation = operation;
+            this.result = result;
+        }
+
+        @Override
+        public void run() {
+            if (result.isDone()) {
+                admissionPermits.release();
+                return;
+            }
+
+            R value = null;
+            Throwable failure = null;
+            try {
+                synchronized (this) {
+                    runner = Thread.currentThread();
+                }
+                if (concurrencyPermits != null) {
+                    concurrencyPermits.acquire();
+                }
+                try {
+                    if (!result.isDone()) {
+                        value = operation.get();
+                    }
+                } finally {
+                    if (concurrencyPermits != null) {
+                        concurrencyPermits.release();
+                    }
+                }
+            } catch (InterruptedException e) {
+                failure = new DAOException(e);
+            } catch (Throwable e) {
+                failure = e;
+            } finally {
+                synchronized (this) {
+                    runner = null;
+                    // interruption, which came too late, mustn't leak to the next task of thread:
+                    Thread.interrupted();
+                }
+                // permit is released before completion, so callbacks of future could submit new operations:
+                admissionPermits.release();
+            }
+
+            if (failure == null) {
+                result.complete(value);
+            } else {
+                result.completeExceptionally(failure);
+            }
+        }
+
+        /**
+         * Interrupts operation, if it's executed at the moment.
+         */
+        synchronized void interrupt() {
+            if (runner != null) {
+                runner.interrupt();
+            }
+        }
+    }
+
+    /**
+     * @return executor, which starts new virtual thread for each task.
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads aren't supported by runtime.", e);
+        }
+    }
+
+    /**
+     * @param namePrefix prefix of threads' names.
+     * @return factory of daemon threads (so pending operations don't prevent JVM from exit).
+     */
+    private static ThreadFactory daemonThreadFactory(String namePrefix) {
+        AtomicInteger threadCounter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+}
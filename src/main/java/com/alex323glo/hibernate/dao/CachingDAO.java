@@ -0,0 +1,406 @@
+package com.alex323glo.hibernate.dao;
+
+import com.alex323glo.hibernate.exception.DAOException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.apache.log4j.Logger;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Read-through near cache decorator of DAO.
+ *
+ * Keeps bounded concurrent map of unique identifiers to (detached) instances of Entity,
+ * evicted by size and by time to live. Misses (absent instances) are cached as well,
+ * usually with shorter time to live. Concurrent reads of the same missing identifier
+ * are collapsed into one read from decorated DAO. Write operations invalidate cached
+ * instances with affected identifiers, and instances, which were loaded before invalidation
+ * of their identifiers, aren't cached afterwards.
+ *
+ * Inside of unit of work (see UnitOfWork) instances are read from decorated DAO directly
+ * (so they are managed by unit of work, and its uncommitted changes are never cached), and
+ * affected identifiers are invalidated once more after the end of unit of work.
+ *
+ * WARNING! Cached instances are shared between all callers (and threads), so they
+ * must not be modified. Use 'update' or 'patch' to change stored instances instead.
+ *
+ * @param <ID> type of Primary Key of stored Entity.
+ * @param <V> type of stored Entity.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see DAO
+ */
+public class CachingDAO<ID, V> implements DAO<ID, V> {
+
+    private static final Logger LOG = Logger.getLogger(CachingDAO.class);
+
+    // number of stripes of invalidation counters (power of 2):
+    private static final int INVALIDATION_STRIPES_NUMBER = 64;
+
+    private final DAO<ID, V> delegate;
+    private final Function<? super V, ID> idExtractor;
+    private final Cache<ID, Optional<V>> cache;
+
+    // numbers of invalidations of identifiers, striped by their hashes:
+    private final AtomicLongArray invalidationCounters = new AtomicLongArray(INVALIDATION_STRIPES_NUMBER);
+
+    /**
+     * @param delegate decorated DAO.
+     * @param idExtractor function, which returns unique identifier of instance of Entity.
+     * @param maximumSize max number of cached identifiers.
+     * @param timeToLive time, after which cached instance is evicted.
+     * @param negativeTimeToLive time, after which cached miss (absent instance) is evicted.
+     */
+    public CachingDAO(DAO<ID, V> delegate, Function<? super V, ID> idExtractor,
+                      long maximumSize, Duration timeToLive, Duration negativeTimeToLive) {
+        this.delegate = delegate;
+        this.idExtractor = idExtractor;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new PresenceDependentExpiry<ID, V>(timeToLive.toNanos(), negativeTimeToLive.toNanos()))
+                .recordStats()
+                .build();
+    }
+
+    public DAO<ID, V> getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * @return hit/miss/load statistics of this cache.
+     */
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    /**
+     * Removes all cached instances (and misses).
+     */
+    public void invalidateAll() {
+        for (int i = 0; i < INVALIDATION_STRIPES_NUMBER; i++) {
+            invalidationCounters.incrementAndGet(i);
+        }
+        cache.invalidateAll();
+        LOG.trace("All cached instances were invalidated.");
+    }
+
+    /**
+     * Executes proposed work inside of unit of work of decorated DAO. Work receives this
+     * caching DAO, so its writes invalidate cached instances.
+     * @see DAO#inTransaction(Function)
+     */
+    @Override
+    public <R> R inTransaction(Function<? super DAO<ID, V>, R> work) throws DAOException {
+        return delegate.inTransaction(dao -> work.apply(this));
+    }
+
+    /**
+     * Executes proposed work inside of unit of work of decorated DAO. Work receives this
+     * caching DAO, so its writes invalidate cached instances.
+     * @see DAO#inTransaction(UnitOfWork.Propagation, Function)
+     */
+    @Override
+    public <R> R inTransaction(UnitOfWork.Propagation propagation, Function<? super DAO<ID, V>, R> work)
+            throws DAOException {
+        return delegate.inTransaction(propagation, dao -> work.apply(this));
+    }
+
+    @Override
+    public V create(V element) throws DAOException {
+        V createdValue = delegate.create(element);
+        invalidate(createdValue);
+        return createdValue;
+    }
+
+    /**
+     * Searches for needed instance in cache, and reads it from decorated DAO only if it
+     * wasn't cached yet. Concurrent reads of the same identifier wait for one such load.
+     * @see DAO#readById(Object)
+     */
+    @Override
+    public V readById(ID id) throws DAOException {
+        if (UnitOfWork.isActive()) {
+            return delegate.readById(id);
+        }
+        return cache.get(id, key -> Optional.ofNullable(delegate.readById(key))).orElse(null);
+    }
+
+    /**
+     * Reads needed instance from decorated DAO directly (cached instances could
+     * have not initialized associations).
+     * @see DAO#readById(Object, FetchPlan)
+     */
+    @Override
+    public V readById(ID id, FetchPlan fetchPlan) throws DAOException {
+        return delegate.readById(id, fetchPlan);
+    }
+
+    /**
+     * Searches for needed instances in cache, and reads only not cached ones
+     * from decorated DAO (with one 'readByIds' call). Loaded instance is cached only if
+     * its identifier wasn't invalidated during load (and wasn't cached by other reader).
+     * @see DAO#readByIds(Collection)
+     */
+    @Override
+    public List<V> readByIds(Collection<ID> ids) throws DAOException {
+        if (UnitOfWork.isActive()) {
+            return delegate.readByIds(ids);
+        }
+        Map<ID, Optional<V>> cachedValues = new HashMap<>(cache.getAllPresent(ids));
+
+        // counters are read before load, so invalidation during load is noticed:
+        Map<ID, Long> missingIdCounters = new LinkedHashMap<>();
+        for (ID id : ids) {
+            if (!cachedValues.containsKey(id)) {
+                missingIdCounters.putIfAbsent(id, invalidationCounters.get(stripeOf(id)));
+            }
+        }
+
+        if (!missingIdCounters.isEmpty()) {
+            List<ID> missingIds = new ArrayList<>(missingIdCounters.keySet());
+            List<V> loadedValues = delegate.readByIds(missingIds);
+            for (int i = 0; i < missingIds.size(); i++) {
+                ID id = missingIds.get(i);
+                long counter = missingIdCounters.get(id);
+                Optional<V> loadedValue = Optional.ofNullable(loadedValues.get(i));
+                cachedValues.put(id, loadedValue);
+                // invalidation increments counter before removal (which waits for this computation),
+                // so stale instance is either not put or removed afterwards:
+                cache.asMap().compute(id, (key, cachedValue) -> cachedValue != null ? cachedValue :
+                        invalidationCounters.get(stripeOf(key)) == counter ? loadedValue : null);
+            }
+        }
+
+        List<V> searchedValues = new ArrayList<>(ids.size());
+        for (ID id : ids) {
+            searchedValues.add(cachedValues.get(id).orElse(null));
+        }
+        return searchedValues;
+    }
+
+    @Override
+    public V update(ID id, V element) throws DAOException {
+        try {
+            return delegate.update(id, element);
+        } finally {
+            invalidateId(id);
+            invalidate(element);
+        }
+    }
+
+    @Override
+    public V updateWithRetry(ID id, Consumer<? super V> mutation) throws DAOException {
+        try {
+            return delegate.updateWithRetry(id, mutation);
+        } finally {
+            invalidateId(id);
+        }
+    }
+
+    @Override
+    public V updateWithRetry(ID id, Consumer<? super V> mutation, RetryPolicy retryPolicy) throws DAOException {
+        try {
+            return delegate.updateWithRetry(id, mutation, retryPolicy);
+        } finally {
+            invalidateId(id);
+        }
+    }
+
+    @Override
+    public V upsert(V element) throws DAOException {
+        try {
+            return delegate.upsert(element);
+        } finally {
+            invalidate(element);
+        }
+    }
+
+    @Override
+    public int patch(ID id, Map<String, Object> changes) throws DAOException {
+        try {
+            return delegate.patch(id, changes);
+        } finally {
+            invalidateId(id);
+        }
+    }
+
+    @Override
+    public V delete(ID id) throws DAOException {
+        try {
+            return delegate.delete(id);
+        } finally {
+            invalidateId(id);
+        }
+    }
+
+    @Override
+    public int deleteAll(Collection<ID> ids) throws DAOException {
+        try {
+            return delegate.deleteAll(ids);
+        } finally {
+            ids.forEach(this::invalidateId);
+        }
+    }
+
+    @Override
+    public int deleteWhere(Condition<V> condition) throws DAOException {
+        try {
+            return delegate.deleteWhere(condition);
+        } finally {
+            invalidateAll();
+            if (UnitOfWork.isActive()) {
+                UnitOfWork.afterCompletion(this::invalidateAll);
+            }
+        }
+    }
+
+    @Override
+    public List<V> getAll(int maxResultsNumber) throws DAOException {
+        return delegate.getAll(maxResultsNumber);
+    }
+
+    @Override
+    public List<V> getAll(int maxResultsNumber, FetchPlan fetchPlan) throws DAOException {
+        return delegate.getAll(maxResultsNumber, fetchPlan);
+    }
+
+    @Override
+    public <P> List<P> getAll(Class<P> projectionClass, int maxResultsNumber) throws DAOException {
+        return delegate.getAll(projectionClass, maxResultsNumber);
+    }
+
+    @Override
+    public List<V> findBy(String attributeName, Object value, int maxResultsNumber) throws DAOException {
+        return delegate.findBy(attributeName, value, maxResultsNumber);
+    }
+
+    @Override
+    public List<V> findInRange(String attributeName, Object lowerBound, Object upperBound,
+                               int maxResultsNumber) throws DAOException {
+        return delegate.findInRange(attributeName, lowerBound, upperBound, maxResultsNumber);
+    }
+
+    @Override
+    public Page<ID, V> getPage(ID afterId, int pageSize) throws DAOException {
+        return delegate.getPage(afterId, pageSize);
+    }
+
+    @Override
+    public int createAll(Collection<V> elements) throws DAOException {
+        try {
+            return delegate.createAll(elements);
+        } finally {
+            elements.forEach(this::invalidate);
+        }
+    }
+
+    @Override
+    public int updateAll(Collection<V> elements) throws DAOException {
+        try {
+            return delegate.updateAll(elements);
+        } finally {
+            elements.forEach(this::invalidate);
+        }
+    }
+
+    @Override
+    public long streamAll(Consumer<? super V> consumer) throws DAOException {
+        return delegate.streamAll(consumer);
+    }
+
+    @Override
+    public Stream<V> streamAll() throws DAOException {
+        return delegate.streamAll();
+    }
+
+    /**
+     * Removes cached instance (or miss) with the same unique identifier as proposed instance has.
+     *
+     * @param element instance of Entity (could be null).
+     */
+    private void invalidate(V element) {
+        if (element != null) {
+            ID id = idExtractor.apply(element);
+            if (id != null) {
+                invalidateId(id);
+            }
+        }
+    }
+
+    /**
+     * Removes cached instance (or miss) with proposed unique identifier, and, if current thread
+     * is inside of unit of work, removes it once more after the end of unit of work (so instance,
+     * which was read by other thread before commit, isn't kept).
+     *
+     * @param id unique identifier of instance.
+     */
+    private void invalidateId(ID id) {
+        invalidateCached(id);
+        if (UnitOfWork.isActive()) {
+            UnitOfWork.afterCompletion(() -> invalidateCached(id));
+        }
+    }
+
+    /**
+     * Increments invalidation counter of proposed identifier and removes its cached instance (or miss).
+     *
+     * @param id unique identifier of instance.
+     */
+    private void invalidateCached(ID id) {
+        invalidationCounters.incrementAndGet(stripeOf(id));
+        cache.invalidate(id);
+    }
+
+    /**
+     * @return index of invalidation counter of proposed identifier.
+     */
+    private static int stripeOf(Object id) {
+        int hash = id.hashCode();
+        return (hash ^ (hash >>> 16)) & (INVALIDATION_STRIPES_NUMBER - 1);
+    }
+
+    /**
+     * Expiration policy, which uses different time to live for cached instances and cached misses.
+     */
+    private static class PresenceDependentExpiry<ID, V> implements Expiry<ID, Optional<V>> {
+
+        private final long timeToLiveNanos;
+        private final long negativeTimeToLiveNanos;
+
+        PresenceDependentExpiry(long timeToLiveNanos, long negativeTimeToLiveNanos) {
+            this.timeToLiveNanos = timeToLiveNanos;
+            this.negativeTimeToLiveNanos = negativeTimeToLiveNanos;
+        }
+
+        @Override
+        public long expireAfterCreate(ID key, Optional<V> value, long currentTime) {
+            return value.isPresent() ? timeToLiveNanos : negativeTimeToLiveNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(ID key, Optional<V> value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(ID key, Optional<V> value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+}
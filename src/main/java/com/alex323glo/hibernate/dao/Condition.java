@@ -0,0 +1,31 @@
+package com.alex323glo.hibernate.dao;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+/**
+ * Condition on stored instances of Entity, described with JPA Criteria API.
+ *
+ * Example: (root, builder) -> builder.lessThan(root.get("amount"), 0.0)
+ *
+ * @param <V> type of stored Entity.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see DAO#deleteWhere(Condition)
+ */
+@FunctionalInterface
+public interface Condition<V> {
+
+    /**
+     * Builds Criteria API predicate of this condition.
+     *
+     * @param root root of Criteria query (target Entity).
+     * @param builder builder of Criteria query.
+     * @return predicate, which selects needed instances.
+     */
+    Predicate toPredicate(Root<V> root, CriteriaBuilder builder);
+
+}
@@ -2,7 +2,12 @@ package com.alex323glo.hibernate.dao;
 
 import com.alex323glo.hibernate.exception.DAOException;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
  * General DAO interface.
@@ -22,6 +27,30 @@ public interface DAO<ID, V> {
 
     static final int NO_LIMIT = -1;
 
+    /**
+     * Executes proposed work inside of unit of work with REQUIRED propagation
+     * (joins unit of work, which is already bound to the current thread, if it exists).
+     *
+     * @see DAO#inTransaction(UnitOfWork.Propagation, Function)
+     */
+    <R> R inTransaction(Function<? super DAO<ID, V>, R> work) throws DAOException;
+
+    /**
+     * Executes proposed work inside of unit of work: all operations of this (and other) DAO,
+     * which are called by work and use the same persistence unit, share one EntityManager and
+     * one transaction. Result is committed only if the whole work was successful.
+     *
+     * @param propagation rules of joining to unit of work, which is already bound to
+     *                    the current thread.
+     * @param work work, which receives this DAO.
+     * @param <R> type of work's result.
+     * @return result of work, if it was successfully committed.
+     * @throws DAOException if work (or commit) wasn't successful.
+     *
+     * @see UnitOfWork
+     */
+    <R> R inTransaction(UnitOfWork.Propagation propagation, Function<? super DAO<ID, V>, R> work) throws DAOException;
+
     /**
      * Saves new instance of Entity to Persistence unit.
      *
@@ -41,6 +70,31 @@ public interface DAO<ID, V> {
      */
     V readById(ID id) throws DAOException;
 
+    /**
+     * Searches for needed instance of Entity, which was stored in Persistence, together
+     * with its associations, described by fetch plan (so they are accessible after return).
+     *
+     * @param id unique identifier of stored instance.
+     * @param fetchPlan associations, which should be loaded together with instance.
+     * @return needed instance, if it was stored in Persistence, or null, if Persistence
+     * doesn't contain such instance.
+     * @throws DAOException if operation wasn't successful.
+     *
+     * @see FetchPlan
+     */
+    V readById(ID id, FetchPlan fetchPlan) throws DAOException;
+
+    /**
+     * Searches for several needed instances of Entity, which were stored in Persistence,
+     * using a few multi-row queries instead of one query per instance.
+     *
+     * @param ids unique identifiers of stored instances.
+     * @return List of needed instances, in the order of proposed identifiers (with null
+     * elements in places of instances, which Persistence doesn't contain).
+     * @throws DAOException if operation wasn't successful.
+     */
+    List<V> readByIds(Collection<ID> ids) throws DAOException;
+
     /**
      * Updates stored instance of Entity with new data.
      *
@@ -50,10 +104,66 @@ public interface DAO<ID, V> {
      * @return old version of stored instance, if it was stored in Persistence,
      * or null, if Persistence doesn't contain such instance (in this case it will store
      * proposed version of instance as new record).
-     * @throws DAOException if operation wasn't successful.
+     * @throws DAOException if operation wasn't successful (for example, if proposed version of
+     * instance is outdated, because stored instance was modified concurrently).
      */
     V update(ID id, V element) throws DAOException;
 
+    /**
+     * Updates stored instance of Entity with proposed mutation, retrying on concurrent
+     * modification with RetryPolicy.DEFAULT.
+     *
+     * @see DAO#updateWithRetry(Object, Consumer, RetryPolicy)
+     */
+    V updateWithRetry(ID id, Consumer<? super V> mutation) throws DAOException;
+
+    /**
+     * Reads stored instance of Entity and applies proposed mutation to it in one transaction.
+     * Concurrent modification of the same instance is detected by its version (optimistic
+     * locking), and then fresh state of instance is read and mutation is applied again, after
+     * backoff of retry policy. So mutation must depend only on state of proposed instance
+     * and could be called several times.
+     *
+     * Inside of unit of work mutation is applied once (failed unit of work should be retried
+     * as a whole).
+     *
+     * @param id unique identifier of stored instance.
+     * @param mutation mutation of stored instance (e.g. user -> user.setAmount(user.getAmount() + 10)).
+     * @param retryPolicy max number of attempts and backoff between them.
+     * @return updated instance, or null, if Persistence doesn't contain such instance.
+     * @throws DAOException if operation wasn't successful (including the case, when all attempts
+     * failed because of concurrent modifications).
+     */
+    V updateWithRetry(ID id, Consumer<? super V> mutation, RetryPolicy retryPolicy) throws DAOException;
+
+    /**
+     * Saves new instance of Entity or updates stored one with new data, without reading and
+     * returning of its old version (so new instance costs single INSERT, and stored one costs
+     * single UPDATE, which is checked by version of proposed instance).
+     * Instance is considered to be new, if its unique identifier isn't set yet.
+     *
+     * @param element new or new version of stored instance.
+     * @return saved (or updated) instance, if operation was successful (it gets generated
+     * identifier or new version).
+     * @throws DAOException if operation wasn't successful (for example, if instance with
+     * set unique identifier isn't stored in Persistence).
+     */
+    V upsert(V element) throws DAOException;
+
+    /**
+     * Updates only proposed attributes of stored instance of Entity, without reading it
+     * (so it costs single UPDATE statement, which writes only changed columns).
+     *
+     * @param id unique identifier of stored instance.
+     * @param changes new values of instance's attributes, mapped by attributes' names
+     *                (names of JPA metamodel attributes, not DB columns).
+     * @return number of updated records (0, if Persistence doesn't contain such instance),
+     * if operation was successful.
+     * @throws DAOException if operation wasn't successful (for example, if Entity has no
+     * such single-valued attribute).
+     */
+    int patch(ID id, Map<String, Object> changes) throws DAOException;
+
     /**
      * Removes stored instance of Entity from Persistence.
      *
@@ -64,6 +174,44 @@ public interface DAO<ID, V> {
      */
     V delete(ID id) throws DAOException;
 
+    /**
+     * Removes several stored instances of Entity from Persistence with bulk DELETE
+     * statements (in chunks), without loading them. Rows of join tables, which refer
+     * to removed instances, are removed first.
+     * Optional many-to-one references of other instances to removed ones are set
+     * to null (e.g. city of User, when its City is removed), and required ones make
+     * operation fail with DAOException.
+     *
+     * Chunks are removed in separate transactions (unless operation is called inside of
+     * unit of work), so if operation fails, chunks, which were committed before the
+     * failure, stay removed.
+     *
+     * @param ids unique identifiers of target instances.
+     * @return number of removed instances, if operation was successful.
+     * @throws DAOException if operation wasn't successful.
+     */
+    int deleteAll(Collection<ID> ids) throws DAOException;
+
+    /**
+     * Removes all stored instances of Entity, which match proposed condition, from
+     * Persistence with bulk DELETE statements (in chunks), without loading them.
+     * Rows of join tables, which refer to removed instances, are removed first.
+     * Optional many-to-one references of other instances to removed ones are set
+     * to null (e.g. city of User, when its City is removed), and required ones make
+     * operation fail with DAOException.
+     *
+     * Chunks are removed in separate transactions (unless operation is called inside of
+     * unit of work), so if operation fails, chunks, which were committed before the
+     * failure, stay removed.
+     *
+     * @param condition condition, which selects target instances.
+     * @return number of removed instances, if operation was successful.
+     * @throws DAOException if operation wasn't successful.
+     *
+     * @see Condition
+     */
+    int deleteWhere(Condition<V> condition) throws DAOException;
+
     /**
      * Lists all instances of Entity, which are stored in persistence.
      *
@@ -76,4 +224,136 @@ public interface DAO<ID, V> {
      */
     List<V> getAll(int maxResultsNumber) throws DAOException;
 
+    /**
+     * Lists all instances of Entity, which are stored in persistence, together with
+     * their associations, described by fetch plan (so they are accessible after return).
+     *
+     * If fetch plan contains collections, identifiers of page are selected first (with SQL limit),
+     * and then instances are fetched by their identifiers, so pagination isn't applied in memory.
+     *
+     * @param maxResultsNumber max number of records, which will be listed (used for pagination).
+     *                         Use constant 'NO_LIMIT' to ignore pagination.
+     * @param fetchPlan associations, which should be loaded together with instances.
+     * @return List of stored instances, if operation was successful.
+     * @throws DAOException if operation wasn't successful.
+     *
+     * @see FetchPlan
+     */
+    List<V> getAll(int maxResultsNumber, FetchPlan fetchPlan) throws DAOException;
+
+    /**
+     * Lists read-only projections (DTOs) of all instances of Entity, which are stored in
+     * persistence. Only attributes, declared by projection class, are selected, and no
+     * managed instances of Entity are created.
+     *
+     * @param projectionClass DTO class, annotated with '@Projection'.
+     * @param maxResultsNumber max number of records, which will be listed (used for pagination).
+     *                         Use constant 'NO_LIMIT' to ignore pagination.
+     * @param <P> type of DTO.
+     * @return List of DTOs, if operation was successful.
+     * @throws DAOException if operation wasn't successful.
+     *
+     * @see com.alex323glo.hibernate.projection.Projection
+     */
+    <P> List<P> getAll(Class<P> projectionClass, int maxResultsNumber) throws DAOException;
+
+    /**
+     * Lists instances of Entity, which have proposed value of proposed attribute.
+     * For associations (like User's "city") unique identifier of associated Entity
+     * should be proposed as value.
+     *
+     * @param attributeName name of single-valued attribute of Entity (JPA metamodel attribute).
+     * @param value searched value of attribute.
+     * @param maxResultsNumber max number of records, which will be listed (used for pagination).
+     *                         Use constant 'NO_LIMIT' to ignore pagination.
+     * @return List of found instances, if operation was successful.
+     * @throws DAOException if operation wasn't successful (for example, if Entity has no
+     * such single-valued attribute).
+     */
+    List<V> findBy(String attributeName, Object value, int maxResultsNumber) throws DAOException;
+
+    /**
+     * Lists instances of Entity, which have value of proposed attribute between proposed
+     * bounds (inclusive), ordered by this attribute.
+     *
+     * @param attributeName name of single-valued basic attribute of Entity (JPA metamodel attribute).
+     * @param lowerBound min value of attribute.
+     * @param upperBound max value of attribute.
+     * @param maxResultsNumber max number of records, which will be listed (used for pagination).
+     *                         Use constant 'NO_LIMIT' to ignore pagination.
+     * @return List of found instances, if operation was successful.
+     * @throws DAOException if operation wasn't successful (for example, if Entity has no
+     * such single-valued attribute).
+     */
+    List<V> findInRange(String attributeName, Object lowerBound, Object upperBound,
+                        int maxResultsNumber) throws DAOException;
+
+    /**
+     * Lists one page of instances of Entity, which are stored in persistence, ordered by
+     * their unique identifiers. Uses keyset (seek) pagination, so every page costs the same
+     * index seek, no matter how deep it is.
+     *
+     * @param afterId unique identifier of the last instance of previous page (see Page#getLastId()),
+     *                or null to get the first page.
+     * @param pageSize max number of instances on the page.
+     * @return Page with stored instances, if operation was successful.
+     * @throws DAOException if operation wasn't successful.
+     *
+     * @see Page
+     */
+    Page<ID, V> getPage(ID afterId, int pageSize) throws DAOException;
+
+    /**
+     * Saves a lot of new instances of Entity to Persistence unit, using batched writes.
+     *
+     * Instances are written in several transactions (chunks), unless operation is called
+     * inside of unit of work, so if operation fails, chunks, which were committed before
+     * the failure, stay in Persistence. Identifiers of instances, which weren't committed,
+     * are reset, so they could be created again.
+     *
+     * @param elements target instances.
+     * @return number of saved instances, if operation was successful.
+     * @throws DAOException if operation wasn't successful.
+     */
+    int createAll(Collection<V> elements) throws DAOException;
+
+    /**
+     * Updates a lot of stored instances of Entity with new data, using batched writes.
+     * Each instance is identified by its own unique identifier.
+     *
+     * Instances are written in several transactions (chunks), unless operation is called
+     * inside of unit of work, so if operation fails, chunks, which were committed before
+     * the failure, stay in Persistence.
+     *
+     * @param elements new versions of instances.
+     * @return number of updated instances, if operation was successful.
+     * @throws DAOException if operation wasn't successful (for example, if some of instances
+     * isn't stored in Persistence, or its version is outdated).
+     */
+    int updateAll(Collection<V> elements) throws DAOException;
+
+    /**
+     * Passes all instances of Entity, which are stored in persistence, to proposed consumer
+     * one by one. Instances are read through forward-only cursor and are evicted from persistence
+     * context after consumption, so memory usage doesn't depend on number of stored instances.
+     *
+     * @param consumer consumer of stored instances.
+     * @return number of consumed instances, if operation was successful.
+     * @throws DAOException if operation wasn't successful.
+     */
+    long streamAll(Consumer<? super V> consumer) throws DAOException;
+
+    /**
+     * Opens lazy Stream of all instances of Entity, which are stored in persistence.
+     * Stream is backed by forward-only cursor, and each instance is evicted from persistence
+     * context when Stream advances to the next one.
+     *
+     * WARNING! Returned Stream holds DB resources, so it must be closed
+     * (for example, with try-with-resources statement).
+     *
+     * @return opened Stream of stored instances, if operation was successful.
+     * @throws DAOException if operation wasn't successful.
+     */
+    Stream<V> streamAll() throws DAOException;
+
 }
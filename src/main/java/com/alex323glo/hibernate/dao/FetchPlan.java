@@ -0,0 +1,197 @@
+package com.alex323glo.hibernate.dao;
+
+import javax.persistence.AttributeNode;
+import javax.persistence.CacheRetrieveMode;
+import javax.persistence.EntityGraph;
+import javax.persistence.EntityManager;
+import javax.persistence.Subgraph;
+import javax.persistence.metamodel.ManagedType;
+import javax.persistence.metamodel.Metamodel;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fetch plan, which describes associations of Entity, which should be loaded
+ * together with it (by the same query), instead of lazy loading.
+ *
+ * Plan is defined either by name of entity graph, declared on Entity with
+ * '@NamedEntityGraph', or by list of attribute paths (like "city" or "gameList.userList").
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see DAO#readById(Object, FetchPlan)
+ * @see DAO#getAll(int, FetchPlan)
+ */
+public class FetchPlan {
+
+    /**
+     * Way, in which attributes, which aren't mentioned in fetch plan, are treated.
+     */
+    public enum Mode {
+        /**
+         * Attributes, which aren't mentioned in plan, are treated as lazy ones.
+         */
+        FETCH("javax.persistence.fetchgraph"),
+        /**
+         * Attributes, which aren't mentioned in plan, are loaded with their mapped fetch type.
+         */
+        LOAD("javax.persistence.loadgraph");
+
+        private final String hintName;
+
+        Mode(String hintName) {
+            this.hintName = hintName;
+        }
+
+        public String getHintName() {
+            return hintName;
+        }
+    }
+
+    private final String graphName;
+    private final List<String> attributePaths;
+    private final Mode mode;
+
+    private FetchPlan(String graphName, List<String> attributePaths, Mode mode) {
+        this.graphName = graphName;
+        this.attributePaths = attributePaths;
+        this.mode = mode;
+    }
+
+    /**
+     * @param graphName name of entity graph, declared on Entity.
+     * @return fetch plan, defined by named entity graph.
+     */
+    public static FetchPlan named(String graphName) {
+        return new FetchPlan(graphName, Collections.<String>emptyList(), Mode.FETCH);
+    }
+
+    /**
+     * @param attributePaths attribute paths, separated with dots (like "city" or "gameList.userList").
+     * @return fetch plan, defined by attribute paths.
+     */
+    public static FetchPlan of(String... attributePaths) {
+        return new FetchPlan(null, Collections.unmodifiableList(Arrays.asList(attributePaths)), Mode.FETCH);
+    }
+
+    /**
+     * @param mode way, in which attributes, which aren't mentioned in plan, should be treated.
+     * @return copy of this fetch plan with proposed mode.
+     */
+    public FetchPlan withMode(Mode mode) {
+        return new FetchPlan(graphName, attributePaths, mode);
+    }
+
+    public String getGraphName() {
+        return graphName;
+    }
+
+    public List<String> getAttributePaths() {
+        return attributePaths;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Builds JPA query hints, which apply this plan.
+     *
+     * @param manager EntityManager, which will execute query.
+     * @param entityClass class of root Entity.
+     * @return Map of hints.
+     */
+    <V> Map<String, Object> toHints(EntityManager manager, Class<V> entityClass) {
+        Map<String, Object> hints = new HashMap<>();
+        hints.put(mode.getHintName(), toEntityGraph(manager, entityClass));
+        // instance from second-level cache would be returned without associations:
+        hints.put("javax.persistence.cache.retrieveMode", CacheRetrieveMode.BYPASS);
+        return hints;
+    }
+
+    /**
+     * @param manager EntityManager, which will execute query.
+     * @param entityClass class of root Entity.
+     * @return true, if plan fetches collections (on any level), so fetched rows of root
+     * Entity are multiplied and SQL limit can't be applied to them.
+     */
+    <V> boolean containsCollections(EntityManager manager, Class<V> entityClass) {
+        return containsCollections(manager.getMetamodel(), entityClass,
+                toEntityGraph(manager, entityClass).getAttributeNodes());
+    }
+
+    private static boolean containsCollections(Metamodel metamodel, Class<?> type, List<AttributeNode<?>> nodes) {
+        ManagedType<?> managedType = metamodel.managedType(type);
+        for (AttributeNode<?> node : nodes) {
+            if (managedType.getAttribute(node.getAttributeName()).isCollection()) {
+                return true;
+            }
+            for (Subgraph<?> subgraph : node.getSubgraphs().values()) {
+                if (containsCollections(metamodel, subgraph.getClassType(), subgraph.getAttributeNodes())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Resolves named entity graph, or builds dynamic one from attribute paths.
+     *
+     * @param manager EntityManager, which will use entity graph.
+     * @param entityClass class of root Entity.
+     * @return entity graph of this plan.
+     */
+    <V> EntityGraph<?> toEntityGraph(EntityManager manager, Class<V> entityClass) {
+        if (graphName != null) {
+            return manager.getEntityGraph(graphName);
+        }
+
+        EntityGraph<V> graph = manager.createEntityGraph(entityClass);
+        Map<String, Subgraph<?>> subgraphs = new HashMap<>();
+
+        for (String path : attributePaths) {
+            String[] names = path.split("\\.");
+            Subgraph<?> parent = null;
+            String prefix = "";
+
+            for (int i = 0; i < names.length; i++) {
+                boolean isLast = i == names.length - 1;
+                prefix = prefix.isEmpty() ? names[i] : prefix + "." + names[i];
+
+                if (isLast) {
+                    if (subgraphs.containsKey(prefix)) {
+                        // attribute is already fetched by longer path
+                        continue;
+                    }
+                    if (parent == null) {
+                        graph.addAttributeNodes(names[i]);
+                    } else {
+                        parent.addAttributeNodes(names[i]);
+                    }
+                } else {
+                    Subgraph<?> subgraph = subgraphs.get(prefix);
+                    if (subgraph == null) {
+                        subgraph = parent == null ? graph.addSubgraph(names[i]) : parent.addSubgraph(names[i]);
+                        subgraphs.put(prefix, subgraph);
+                    }
+                    parent = subgraph;
+                }
+            }
+        }
+        return graph;
+    }
+
+    @Override
+    public String toString() {
+        return "FetchPlan{" +
+                (graphName != null ? "graphName=" + graphName : "attributePaths=" + attributePaths) +
+                ", mode=" + mode +
+                '}';
+    }
+
+}
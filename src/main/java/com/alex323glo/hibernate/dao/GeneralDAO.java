@@ -2,19 +2,79 @@ package com.alex323glo.hibernate.dao;
 
 import com.alex323glo.hibernate.exception.DAOException;
 import com.alex323glo.hibernate.model.User;
+import com.alex323glo.hibernate.pool.PoolMetrics;
+import com.alex323glo.hibernate.projection.Projection;
 import org.apache.log4j.Logger;
+import org.hibernate.FlushMode;
+import org.hibernate.Hibernate;
+import org.hibernate.LockOptions;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.StaleObjectStateException;
+import org.hibernate.StaleStateException;
+import org.hibernate.annotations.QueryHints;
+import org.hibernate.engine.spi.CascadeStyle;
+import org.hibernate.engine.spi.CascadingActions;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.collection.AbstractCollectionPersister;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.hibernate.type.CollectionType;
+import org.hibernate.type.ManyToOneType;
+import org.hibernate.type.Type;
 
+import javax.persistence.CacheRetrieveMode;
+import javax.persistence.Cacheable;
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.EntityTransaction;
+import javax.persistence.OptimisticLockException;
+import javax.persistence.Query;
 import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Root;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.IdentifiableType;
+import javax.persistence.metamodel.SingularAttribute;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Implementation of DAO. Used to work with User Entity.
  *
  * WARNING! For more information on methods' logic see implemented interface contracts!
  *
+ * Finders use named queries, declared on Entity (so they are compiled at startup), if
+ * such queries exist: '[EntityName].findBy[AttributeName]' with parameter 'value' for
+ * 'findBy' and '[EntityName].findBy[AttributeName]Range' with parameters 'lower' and
+ * 'upper' for 'findInRange'. Otherwise queries are built with Criteria API.
+ *
+ * Every operation opens its own EntityManager and transaction, unless it's called inside
+ * of unit of work (see UnitOfWork): then it joins EntityManager and transaction of unit
+ * of work, and neither commits, nor closes them.
+ *
  * @author alex323glo
  * @version 1.0
  *
@@ -25,14 +85,58 @@ public class GeneralDAO<ID, V> implements DAO<ID, V> {
 
     private static final Logger LOG = Logger.getLogger(GeneralDAO.class);
 
+    /**
+     * Hints of 'find', which reads instance from DB, even if it's contained by second-level cache.
+     */
+    private static final Map<String, Object> BYPASS_CACHE_HINTS =
+            Collections.singletonMap("javax.persistence.cache.retrieveMode", CacheRetrieveMode.BYPASS);
+
+    /**
+     * Default number of records, which are sent to DB in one JDBC batch
+     * (and after which persistence context is flushed and, outside of unit of work, cleared).
+     */
+    public static final int DEFAULT_BATCH_SIZE = 50;
+
+    /**
+     * Default number of records, which are written in one transaction by batch operations.
+     */
+    public static final int DEFAULT_TRANSACTION_SIZE = 10_000;
+
+    /**
+     * Default number of records, which are fetched from DB in one round trip by streaming operations.
+     */
+    public static final int DEFAULT_FETCH_SIZE = 100;
+
+    /**
+     * Default max number of identifiers, which are passed to one IN query by multi-get operations.
+     */
+    public static final int DEFAULT_MULTI_LOAD_BATCH_SIZE = 100;
+
+    /**
+     * Default max number of identifiers, which are passed to one bulk DELETE statement.
+     */
+    public static final int DEFAULT_BULK_CHUNK_SIZE = 1000;
+
     private final EntityManagerFactory factory;
     private final Class<ID> idClass;
     private final Class<V> valueClass;
+    // registration of named finder queries, checked once per query name:
+    private final Map<String, Boolean> namedQueryRegistrations = new ConcurrentHashMap<>();
+
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int transactionSize = DEFAULT_TRANSACTION_SIZE;
+    private int fetchSize = DEFAULT_FETCH_SIZE;
+    private int multiLoadBatchSize = DEFAULT_MULTI_LOAD_BATCH_SIZE;
+    private int bulkChunkSize = DEFAULT_BULK_CHUNK_SIZE;
+    private boolean queryCacheEnabled;
 
     public GeneralDAO(EntityManagerFactory factory, Class<ID> idClass, Class<V> valueClass) {
         this.factory = factory;
         this.idClass = idClass;
         this.valueClass = valueClass;
+
+        Cacheable cacheable = valueClass.getAnnotation(Cacheable.class);
+        this.queryCacheEnabled = cacheable != null && cacheable.value();
     }
 
     public EntityManagerFactory getFactory() {
@@ -47,6 +151,134 @@ public class GeneralDAO<ID, V> implements DAO<ID, V> {
         return valueClass;
     }
 
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @param batchSize number of records, which are sent to DB in one JDBC batch
+     *                  (and after which persistence context is flushed and, outside of unit of work, cleared).
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive, but was " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
+    public int getTransactionSize() {
+        return transactionSize;
+    }
+
+    /**
+     * @param transactionSize number of records, which are written in one transaction by batch operations.
+     */
+    public void setTransactionSize(int transactionSize) {
+        if (transactionSize < 1) {
+            throw new IllegalArgumentException("transactionSize must be positive, but was " + transactionSize);
+        }
+        this.transactionSize = transactionSize;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * @param fetchSize number of records, which are fetched from DB in one round trip by streaming operations.
+     */
+    public void setFetchSize(int fetchSize) {
+        if (fetchSize < 1) {
+            throw new IllegalArgumentException("fetchSize must be positive, but was " + fetchSize);
+        }
+        this.fetchSize = fetchSize;
+    }
+
+    public int getMultiLoadBatchSize() {
+        return multiLoadBatchSize;
+    }
+
+    /**
+     * @param multiLoadBatchSize max number of identifiers, which are passed to one IN query
+     *                           by multi-get operations.
+     */
+    public void setMultiLoadBatchSize(int multiLoadBatchSize) {
+        if (multiLoadBatchSize < 1) {
+            throw new IllegalArgumentException("multiLoadBatchSize must be positive, but was " + multiLoadBatchSize);
+        }
+        this.multiLoadBatchSize = multiLoadBatchSize;
+    }
+
+    public int getBulkChunkSize() {
+        return bulkChunkSize;
+    }
+
+    /**
+     * @param bulkChunkSize max number of identifiers, which are passed to one bulk DELETE statement
+     *                      (each chunk is removed in separate transaction).
+     */
+    public void setBulkChunkSize(int bulkChunkSize) {
+        if (bulkChunkSize < 1) {
+            throw new IllegalArgumentException("bulkChunkSize must be positive, but was " + bulkChunkSize);
+        }
+        this.bulkChunkSize = bulkChunkSize;
+    }
+
+    public boolean isQueryCacheEnabled() {
+        return queryCacheEnabled;
+    }
+
+    /**
+     * @param queryCacheEnabled true, if results of 'getAll' should be stored in query cache
+     *                          (enabled by default for Entities, which are annotated with @Cacheable).
+     */
+    public void setQueryCacheEnabled(boolean queryCacheEnabled) {
+        this.queryCacheEnabled = queryCacheEnabled;
+    }
+
+    /**
+     * @return Hibernate statistics of the whole persistence unit (statements, entity loads,
+     * cache hits/misses, etc.).
+     */
+    public Statistics getStatistics() {
+        return factory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    /**
+     * @return hit/miss statistics of second-level cache region of Entity,
+     * or null, if Entity isn't stored in second-level cache.
+     */
+    public SecondLevelCacheStatistics getCacheStatistics() {
+        return getStatistics().getSecondLevelCacheStatistics(valueClass.getName());
+    }
+
+    /**
+     * @return utilization and wait-time metrics of connection pool of persistence unit
+     * (collected since the first call), or null, if persistence unit doesn't use HikariCP.
+     */
+    public PoolMetrics getPoolMetrics() {
+        return PoolMetrics.of(factory);
+    }
+
+    /**
+     * Executes proposed work inside of unit of work, bound to persistence unit of this DAO.
+     * @see DAO#inTransaction(Function)
+     */
+    @Override
+    public <R> R inTransaction(Function<? super DAO<ID, V>, R> work) throws DAOException {
+        return inTransaction(UnitOfWork.Propagation.REQUIRED, work);
+    }
+
+    /**
+     * Executes proposed work inside of unit of work, bound to persistence unit of this DAO.
+     * @see DAO#inTransaction(UnitOfWork.Propagation, Function)
+     */
+    @Override
+    public <R> R inTransaction(UnitOfWork.Propagation propagation, Function<? super DAO<ID, V>, R> work)
+            throws DAOException {
+        return UnitOfWork.execute(factory, propagation, () -> work.apply(this));
+    }
+
     /**
      * Saves new instance of Entity to Persistence unit.
      * @see DAO#create(Object)
@@ -57,23 +289,22 @@ public class GeneralDAO<ID, V> implements DAO<ID, V> {
 
         checkIfFactoryIsClosed(factory);
 
-        EntityManager manager = factory.createEntityManager();
-        EntityTransaction transaction = manager.getTransaction();
+        EntityManager manager = openManager();
 
         try {
-            transaction.begin();
+            beginTransaction(manager);
             manager.persist(element);
-            transaction.commit();
+            commitTransaction(manager);
 
             LOG.trace("New " + valueClass.getSimpleName() + " instance was successfully wrote (created).");
             return element;
         } catch (Exception e) {
-            transaction.rollback();
+            rollbackTransaction(manager);
 
             LOG.error("Can't write (create) new " + valueClass.getSimpleName() + ". " + e.getMessage(), e);
             throw new DAOException(e);
         } finally {
-            manager.close();
+            closeManager(manager);
         }
     }
 
@@ -87,7 +318,7 @@ public class GeneralDAO<ID, V> implements DAO<ID, V> {
 
         checkIfFactoryIsClosed(factory);
 
-        EntityManager manager = factory.createEntityManager();
+        EntityManager manager = openManager();
 
         try {
             V searchedValue = manager.find(valueClass, id);
@@ -98,50 +329,291 @@ public class GeneralDAO<ID, V> implements DAO<ID, V> {
             LOG.error("Can't read (find) " + valueClass.getSimpleName() + " by ID. " + e.getMessage(), e);
             throw new DAOException(e);
         } finally {
-            manager.close();
+            closeManager(manager);
+        }
+    }
+
+    /**
+     * Searches for needed instance of Entity together with associations from fetch plan.
+     * @see DAO#readById(Object, FetchPlan)
+     */
+    @Override
+    public V readById(ID id, FetchPlan fetchPlan) throws DAOException {
+        LOG.trace("Trying to read (find) " + valueClass.getSimpleName() + " by ID with " + fetchPlan + "...");
+
+        checkIfFactoryIsClosed(factory);
+
+        EntityManager manager = openManager();
+
+        try {
+            V searchedValue = manager.find(valueClass, id, fetchPlan.toHints(manager, valueClass));
+
+            LOG.trace("Searched " + valueClass.getSimpleName() + " instance was successfully found.");
+            return searchedValue;
+        } catch (Exception e) {
+            LOG.error("Can't read (find) " + valueClass.getSimpleName() + " by ID. " + e.getMessage(), e);
+            throw new DAOException(e);
+        } finally {
+            closeManager(manager);
+        }
+    }
+
+    /**
+     * Searches for several needed instances of Entity, which were stored in Persistence.
+     * Instances are loaded by IN queries with up to 'multiLoadBatchSize' identifiers each,
+     * skipping instances, which are already contained by persistence context.
+     * @see DAO#readByIds(Collection)
+     */
+    @Override
+    public List<V> readByIds(Collection<ID> ids) throws DAOException {
+        LOG.trace("Trying to read (find) " + ids.size() + " " + valueClass.getSimpleName() + " by IDs...");
+
+        checkIfFactoryIsClosed(factory);
+
+        EntityManager manager = openManager();
+
+        try {
+            // identifiers of JPA entities are always Serializable:
+            List<Serializable> idList = new ArrayList<>(ids.size());
+            for (ID id : ids) {
+                idList.add((Serializable) id);
+            }
+
+            List<V> searchedValues = manager.unwrap(Session.class)
+                    .byMultipleIds(valueClass)
+                    .withBatchSize(multiLoadBatchSize)
+                    .enableSessionCheck(true)
+                    .enableOrderedReturn(true)
+                    .multiLoad(idList);
+
+            LOG.trace("Searched " + valueClass.getSimpleName() + " instances were successfully found.");
+            return searchedValues;
+        } catch (Exception e) {
+            LOG.error("Can't read (find) " + valueClass.getSimpleName() + " by IDs. " + e.getMessage(), e);
+            throw new DAOException(e);
+        } finally {
+            closeManager(manager);
         }
     }
 
     /**
      * Updates stored instance of Entity with new data.
+     * Old version is read and new version is merged into it in the same transaction, so only
+     * changed columns are written (for Entities with dynamic update) and proposed instance
+     * stays detached. Outdated version of proposed instance is rejected by merge, and committed
+     * version is copied to proposed instance, so it could be updated again.
      * @see DAO#update(Object, Object)
      */
     @Override
     public V update(ID id, V newElement) throws DAOException {
         LOG.trace("Trying to update existent " + valueClass.getSimpleName() + "...");
 
-        V oldValue = this.readById(id);
-
         checkIfFactoryIsClosed(factory);
 
-        EntityManager manager = factory.createEntityManager();
-        EntityTransaction transaction = manager.getTransaction();
+        EntityManager manager = openManager();
+        Session session = manager.unwrap(Session.class);
 
         try {
-            transaction.begin();
+            beginTransaction(manager);
 
+            V oldValue = session.find(valueClass, id);
             if (oldValue == null) {
-                manager.persist(newElement);
+                session.persist(newElement);
                 LOG.trace("No " + valueClass.getSimpleName() +
                         " instance stored in Persistence by such ID. Creating (storing) new " +
                         valueClass.getSimpleName() + " instance...");
             } else {
-                manager.find(valueClass, id);
-                manager.merge(newElement);
+                // loaded instance receives new version, and its copy is returned to caller as old version:
+                V storedValue = oldValue;
+                oldValue = copyOf(session, storedValue, newElement);
+                session.merge(newElement);
+                afterCommit(session, () -> copyVersion(storedValue, newElement));
                 LOG.trace("Updating existent " + valueClass.getSimpleName() + " instance...");
             }
 
-            transaction.commit();
+            commitTransaction(manager);
 
             LOG.trace(valueClass.getSimpleName() + " instance was successfully updated.");
             return oldValue;
         } catch (Exception e) {
-            transaction.rollback();
+            rollbackTransaction(manager);
 
             LOG.error("Can't update " + valueClass.getSimpleName() + " instance. " + e.getMessage(), e);
             throw new DAOException(e);
         } finally {
-            manager.close();
+            closeManager(manager);
+        }
+    }
+
+    /**
+     * Updates stored instance of Entity with proposed mutation and RetryPolicy.DEFAULT.
+     * @see DAO#updateWithRetry(Object, Consumer)
+     */
+    @Override
+    public V updateWithRetry(ID id, Consumer<? super V> mutation) throws DAOException {
+        return updateWithRetry(id, mutation, RetryPolicy.DEFAULT);
+    }
+
+    /**
+     * Reads, mutates and writes stored instance of Entity in one transaction per attempt.
+     * Repeated attempts read instance from DB, bypassing second-level cache.
+     * @see DAO#updateWithRetry(Object, Consumer, RetryPolicy)
+     */
+    @Override
+    public V updateWithRetry(ID id, Consumer<? super V> mutation, RetryPolicy retryPolicy) throws DAOException {
+        LOG.trace("Trying to update existent " + valueClass.getSimpleName() + " with " + retryPolicy + "...");
+
+        checkIfFactoryIsClosed(factory);
+
+        for (int attempt = 1; ; attempt++) {
+            EntityManager manager = openManager();
+            boolean isJoined = isJoined(manager);
+
+            try {
+                beginTransaction(manager);
+
+                V value = attempt == 1 ? manager.find(valueClass, id) : manager.find(valueClass, id, BYPASS_CACHE_HINTS);
+                if (value != null) {
+                    mutation.accept(value);
+                }
+
+                commitTransaction(manager);
+
+                LOG.trace(valueClass.getSimpleName() + " instance was successfully updated (attempt " + attempt + ").");
+                return value;
+            } catch (Exception e) {
+                rollbackTransaction(manager);
+
+                if (isJoined || !isConcurrentModification(e)) {
+                    LOG.error("Can't update " + valueClass.getSimpleName() + " instance. " + e.getMessage(), e);
+                    throw new DAOException(e);
+                }
+                if (attempt >= retryPolicy.getMaxAttempts()) {
+                    DAOException exception = new DAOException(valueClass.getSimpleName() + " instance wasn't updated in " +
+                            attempt + " attempt(s) because of concurrent modifications.", e);
+                    LOG.error(exception.getMessage(), exception);
+                    throw exception;
+                }
+
+                LOG.trace(valueClass.getSimpleName() + " instance was modified concurrently (attempt " + attempt + ").");
+            } finally {
+                closeManager(manager);
+            }
+
+            try {
+                TimeUnit.NANOSECONDS.sleep(retryPolicy.nextBackoffNanos(attempt + 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new DAOException("Update with retry was interrupted.", e);
+            }
+        }
+    }
+
+    /**
+     * Saves new instance of Entity or reattaches new version of stored one, so it's written by
+     * single versioned UPDATE statement of all columns, without reading of stored version
+     * (missing or outdated stored version is detected by number of updated rows). Associated
+     * detached instances, to which persist is cascaded, are reattached as well, without statements,
+     * so they aren't cascaded. If persistence context of unit of work already contains instance
+     * of the same ID, new version is merged into it.
+     * @see DAO#upsert(Object)
+     */
+    @Override
+    public V upsert(V element) throws DAOException {
+        LOG.trace("Trying to write (upsert) " + valueClass.getSimpleName() + "...");
+
+        checkIfFactoryIsClosed(factory);
+
+        EntityManager manager = openManager();
+        Session session = manager.unwrap(Session.class);
+
+        try {
+            beginTransaction(manager);
+
+            V savedElement;
+            SessionImplementor sessionImplementor = session.unwrap(SessionImplementor.class);
+            EntityPersister persister = sessionImplementor.getEntityPersister(null, element);
+            if (Boolean.TRUE.equals(persister.isTransient(element, sessionImplementor))) {
+                session.persist(element);
+                savedElement = element;
+            } else if (sessionImplementor.getPersistenceContext().getEntity(sessionImplementor.generateEntityKey(
+                    persister.getIdentifier(element, sessionImplementor), persister)) != null) {
+                savedElement = mergeStored(session, element);
+            } else {
+                reattachCascaded(sessionImplementor, persister, element);
+                session.update(element);
+                savedElement = element;
+            }
+
+            commitTransaction(manager);
+
+            LOG.trace(valueClass.getSimpleName() + " instance was successfully wrote (upserted).");
+            return savedElement;
+        } catch (Exception e) {
+            rollbackTransaction(manager);
+
+            LOG.error("Can't write (upsert) " + valueClass.getSimpleName() + " instance. " + e.getMessage(), e);
+            throw new DAOException(e);
+        } finally {
+            closeManager(manager);
+        }
+    }
+
+    /**
+     * Updates only proposed attributes of stored instance of Entity, without reading it.
+     * @see DAO#patch(Object, Map)
+     */
+    @Override
+    public int patch(ID id, Map<String, Object> changes) throws DAOException {
+        LOG.trace("Trying to patch " + changes.keySet() + " of existent " + valueClass.getSimpleName() + "...");
+
+        if (changes.isEmpty()) {
+            DAOException exception = new DAOException("No attributes to patch were proposed.");
+            LOG.error(exception.getMessage(), exception);
+            throw exception;
+        }
+
+        checkIfFactoryIsClosed(factory);
+
+        EntityManager manager = openManager();
+
+        try {
+            EntityType<V> entityType = factory.getMetamodel().entity(valueClass);
+
+            // 'versioned' increments version of patched record, so concurrent optimistic updates fail:
+            StringBuilder queryString = new StringBuilder(entityType.hasVersionAttribute() ? "update versioned " : "update ")
+                    .append(entityType.getName()).append(" e set ");
+            int index = 0;
+            for (String attributeName : changes.keySet()) {
+                checkIfAttributeIsPatchable(entityType.getAttribute(attributeName));
+                queryString.append(index == 0 ? "" : ", ")
+                        .append("e.").append(attributeName).append(" = :value").append(index);
+                index++;
+            }
+            queryString.append(" where e.").append(getIdAttributeName()).append(" = :id");
+
+            beginTransaction(manager);
+
+            Query query = manager.createQuery(queryString.toString());
+            index = 0;
+            for (Object value : changes.values()) {
+                query.setParameter("value" + index, value);
+                index++;
+            }
+            query.setParameter("id", id);
+            int updatedNumber = query.executeUpdate();
+
+            commitTransaction(manager);
+
+            LOG.trace(updatedNumber + " " + valueClass.getSimpleName() + " instance(s) were successfully patched.");
+            return updatedNumber;
+        } catch (Exception e) {
+            rollbackTransaction(manager);
+
+            LOG.error("Can't patch " + valueClass.getSimpleName() + " instance. " + e.getMessage(), e);
+            throw new DAOException(e);
+        } finally {
+            closeManager(manager);
         }
     }
 
@@ -154,11 +626,10 @@ public class GeneralDAO<ID, V> implements DAO<ID, V> {
         LOG.trace("Trying to delete existent " + valueClass.getSimpleName() + " by ID...");
         checkIfFactoryIsClosed(factory);
 
-        EntityManager manager = factory.createEntityManager();
-        EntityTransaction transaction = manager.getTransaction();
+        EntityManager manager = openManager();
 
         try {
-            transaction.begin();
+            beginTransaction(manager);
 
             V existentValue = manager.find(valueClass, id);
             if (existentValue == null) {
@@ -167,57 +638,1104 @@ public class GeneralDAO<ID, V> implements DAO<ID, V> {
                 manager.remove(existentValue);
             }
 
-            transaction.commit();
+            commitTransaction(manager);
 
             LOG.trace("Existent " + valueClass.getSimpleName() + " instance was successfully removed.");
             return existentValue;
         } catch (Exception e) {
-            transaction.rollback();
+            rollbackTransaction(manager);
 
             LOG.error("Can't remove existent " + valueClass.getSimpleName() + ". " + e.getMessage(), e);
             throw new DAOException(e);
         } finally {
-            manager.close();
+            closeManager(manager);
         }
     }
 
     /**
-     * Lists all instances of Entity, which are stored in persistence.
-     * @see DAO#getAll(int)
+     * Removes several stored instances of Entity from Persistence with bulk DELETE statements.
+     * @see DAO#deleteAll(Collection)
      */
     @Override
-    public List<V> getAll(int maxResultsNumber) throws DAOException {
-        LOG.trace("Trying to list all " +
-                (maxResultsNumber == DAO.NO_LIMIT ? "" : maxResultsNumber + " ") +
-                valueClass.getSimpleName() +  "...");
+    public int deleteAll(Collection<ID> ids) throws DAOException {
+        LOG.trace("Trying to delete " + ids.size() + " existent " + valueClass.getSimpleName() + " by IDs...");
 
         checkIfFactoryIsClosed(factory);
 
-        EntityManager manager = factory.createEntityManager();
+        EntityManager manager = openManager();
 
         try {
+            int deletedNumber = 0;
+            List<ID> chunk = new ArrayList<>(Math.min(ids.size(), bulkChunkSize));
+            for (ID id : ids) {
+                chunk.add(id);
+                if (chunk.size() == bulkChunkSize) {
+                    deletedNumber += deleteChunk(manager, chunk);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                deletedNumber += deleteChunk(manager, chunk);
+            }
 
-            TypedQuery<V> typedQuery =
-                    manager.createQuery("select e from " + valueClass.getSimpleName() + " e", valueClass);
+            LOG.trace(deletedNumber + " existent " + valueClass.getSimpleName() + " instances were successfully removed.");
+            return deletedNumber;
+        } catch (Exception e) {
+            LOG.error("Can't remove existent " + valueClass.getSimpleName() + " instances. " + e.getMessage(), e);
+            throw new DAOException(e);
+        } finally {
+            closeManager(manager);
+        }
+    }
 
-            if (maxResultsNumber != DAO.NO_LIMIT) {
-                typedQuery.setMaxResults(maxResultsNumber);
-                LOG.trace("Limiting result List to " + maxResultsNumber + " records...");
-            } else {
-                LOG.trace("Listing results without any limit...");
-            }
+    /**
+     * Removes all stored instances of Entity, which match proposed condition, with bulk DELETE statements.
+     * Identifiers of matching instances are selected (and then removed) chunk by chunk.
+     * @see DAO#deleteWhere(Condition)
+     */
+    @Override
+    public int deleteWhere(Condition<V> condition) throws DAOException {
+        LOG.trace("Trying to delete existent " + valueClass.getSimpleName() + " by condition...");
 
-            List<V> resultList = typedQuery.getResultList();
+        checkIfFactoryIsClosed(factory);
 
-            LOG.trace("All needed " + valueClass.getSimpleName() + " instances were successfully listed.");
-            return resultList;
+        EntityManager manager = openManager();
+
+        try {
+            CriteriaBuilder builder = manager.getCriteriaBuilder();
+            CriteriaQuery<ID> criteriaQuery = builder.createQuery(idClass);
+            Root<V> root = criteriaQuery.from(valueClass);
+            String idName = getIdAttributeName();
+            criteriaQuery.select(root.<ID>get(idName))
+                    .where(condition.toPredicate(root, builder))
+                    .orderBy(builder.asc(root.get(idName)));
+
+            int deletedNumber = 0;
+            List<ID> chunk;
+            do {
+                chunk = manager.createQuery(criteriaQuery)
+                        .setMaxResults(bulkChunkSize)
+                        .getResultList();
+                if (!chunk.isEmpty()) {
+                    deletedNumber += deleteChunk(manager, chunk);
+                }
+            } while (chunk.size() == bulkChunkSize);
+
+            LOG.trace(deletedNumber + " existent " + valueClass.getSimpleName() + " instances were successfully removed.");
+            return deletedNumber;
         } catch (Exception e) {
-            LOG.error("Can't list all needed " + valueClass.getSimpleName() +
-                    " instances. " + e.getMessage(), e);
+            LOG.error("Can't remove existent " + valueClass.getSimpleName() + " instances. " + e.getMessage(), e);
             throw new DAOException(e);
         } finally {
-            manager.close();
+            closeManager(manager);
+        }
+    }
+
+    /**
+     * Removes one chunk of stored instances of Entity (and rows of join tables, which refer to them)
+     * in separate transaction (or in transaction of current unit of work). Optional many-to-one
+     * references to removed instances are set to null (with increment of version of referring
+     * instances), and required ones make operation fail. Affected second-level cache regions are
+     * invalidated by Hibernate.
+     *
+     * @param manager EntityManager, which will execute statements.
+     * @param ids unique identifiers of target instances.
+     * @return number of removed instances.
+     */
+    private int deleteChunk(EntityManager manager, List<ID> ids) {
+        Session session = manager.unwrap(Session.class);
+
+        try {
+            beginTransaction(manager);
+
+            for (String[] joinTableColumn : getJoinTableColumns()) {
+                session.createNativeQuery("delete from " + joinTableColumn[0] + " where " + joinTableColumn[1] + " in (:ids)")
+                        .addSynchronizedQuerySpace(joinTableColumn[0])
+                        .setParameterList("ids", ids)
+                        .executeUpdate();
+            }
+
+            String idName = getIdAttributeName();
+            for (ManyToOneReference reference : getManyToOneReferences()) {
+                String referencePath = "e." + reference.propertyName;
+                if (!reference.nullable) {
+                    long referringNumber = manager
+                            .createQuery("select count(e) from " + reference.entityName + " e where " +
+                                    referencePath + "." + idName + " in (:ids)", Long.class)
+                            .setParameter("ids", ids)
+                            .getSingleResult();
+                    if (referringNumber > 0) {
+                        throw new DAOException("Can't remove " + valueClass.getSimpleName() + " instances, because " +
+                                referringNumber + " instance(s) of " + reference.entityName +
+                                " refer to them by required association '" + reference.propertyName + "'.");
+                    }
+                    continue;
+                }
+                manager.createQuery("update " + (reference.versioned ? "versioned " : "") + reference.entityName +
+                        " e set " + referencePath + " = null where " + referencePath + "." + idName + " in (:ids)")
+                        .setParameter("ids", ids)
+                        .executeUpdate();
+            }
+
+            int deletedNumber = manager
+                    .createQuery("delete from " + valueClass.getSimpleName() + " e where e." + getIdAttributeName() + " in (:ids)")
+                    .setParameter("ids", ids)
+                    .executeUpdate();
+
+            commitTransaction(manager);
+            return deletedNumber;
+        } catch (RuntimeException e) {
+            rollbackTransaction(manager);
+            throw e;
+        }
+    }
+
+    /**
+     * Searches for join tables of many-to-many relations (only owning sides), which refer to Entity.
+     *
+     * @return pairs of join table name and name of its column, which refers to Entity.
+     */
+    private List<String[]> getJoinTableColumns() {
+        List<String[]> joinTableColumns = new ArrayList<>();
+        String entityName = valueClass.getName();
+
+        for (CollectionPersister persister :
+                factory.unwrap(SessionFactoryImplementor.class).getMetamodel().collectionPersisters().values()) {
+            if (!persister.isManyToMany() || persister.isInverse()) {
+                continue;
+            }
+            AbstractCollectionPersister collectionPersister = (AbstractCollectionPersister) persister;
+
+            if (collectionPersister.getOwnerEntityPersister().getEntityName().equals(entityName)) {
+                joinTableColumns.add(new String[]{
+                        collectionPersister.getTableName(), collectionPersister.getKeyColumnNames()[0]});
+            }
+            if (collectionPersister.getElementType().isEntityType() && ((org.hibernate.type.EntityType) collectionPersister.getElementType())
+                    .getAssociatedEntityName().equals(entityName)) {
+                joinTableColumns.add(new String[]{
+                        collectionPersister.getTableName(), collectionPersister.getElementColumnNames()[0]});
+            }
+        }
+        return joinTableColumns;
+    }
+
+    /**
+     * Searches for many-to-one (and owning one-to-one) associations of all Entities, which refer to Entity.
+     *
+     * @return descriptions of referring associations.
+     */
+    private List<ManyToOneReference> getManyToOneReferences() {
+        List<ManyToOneReference> references = new ArrayList<>();
+        String entityName = valueClass.getName();
+
+        for (EntityPersister persister :
+                factory.unwrap(SessionFactoryImplementor.class).getMetamodel().entityPersisters().values()) {
+            Type[] propertyTypes = persister.getPropertyTypes();
+            for (int i = 0; i < propertyTypes.length; i++) {
+                if (propertyTypes[i] instanceof ManyToOneType &&
+                        ((ManyToOneType) propertyTypes[i]).getAssociatedEntityName().equals(entityName)) {
+                    references.add(new ManyToOneReference(persister.getEntityName(), persister.getPropertyNames()[i],
+                            persister.getPropertyNullability()[i], persister.isVersioned()));
+                }
+            }
+        }
+        return references;
+    }
+
+    /**
+     * Many-to-one association of some Entity, which refers to Entity of this DAO.
+     */
+    private static class ManyToOneReference {
+
+        private final String entityName;
+        private final String propertyName;
+        private final boolean nullable;
+        private final boolean versioned;
+
+        private ManyToOneReference(String entityName, String propertyName, boolean nullable, boolean versioned) {
+            this.entityName = entityName;
+            this.propertyName = propertyName;
+            this.nullable = nullable;
+            this.versioned = versioned;
+        }
+    }
+
+    /**
+     * Lists all instances of Entity, which are stored in persistence.
+     * @see DAO#getAll(int)
+     */
+    @Override
+    public List<V> getAll(int maxResultsNumber) throws DAOException {
+        LOG.trace("Trying to list all " +
+                (maxResultsNumber == DAO.NO_LIMIT ? "" : maxResultsNumber + " ") +
+                valueClass.getSimpleName() +  "...");
+
+        checkIfFactoryIsClosed(factory);
+
+        EntityManager manager = openManager();
+
+        try {
+
+            TypedQuery<V> typedQuery =
+                    manager.createQuery("select e from " + valueClass.getSimpleName() + " e", valueClass);
+
+            if (maxResultsNumber != DAO.NO_LIMIT) {
+                typedQuery.setMaxResults(maxResultsNumber);
+                LOG.trace("Limiting result List to " + maxResultsNumber + " records...");
+            } else {
+                LOG.trace("Listing results without any limit...");
+            }
+
+            if (queryCacheEnabled) {
+                typedQuery.setHint(QueryHints.CACHEABLE, true);
+            }
+
+            List<V> resultList = typedQuery.getResultList();
+
+            LOG.trace("All needed " + valueClass.getSimpleName() + " instances were successfully listed.");
+            return resultList;
+        } catch (Exception e) {
+            LOG.error("Can't list all needed " + valueClass.getSimpleName() +
+                    " instances. " + e.getMessage(), e);
+            throw new DAOException(e);
+        } finally {
+            closeManager(manager);
+        }
+    }
+
+    /**
+     * Saves a lot of new instances of Entity to Persistence unit, using batched writes.
+     * @see DAO#createAll(Collection)
+     */
+    @Override
+    public int createAll(Collection<V> elements) throws DAOException {
+        LOG.trace("Trying to write (create) " + elements.size() + " new " + valueClass.getSimpleName() + "...");
+
+        int writtenNumber = writeAll(elements, true);
+
+        LOG.trace(writtenNumber + " new " + valueClass.getSimpleName() + " instances were successfully wrote (created).");
+        return writtenNumber;
+    }
+
+    /**
+     * Updates a lot of stored instances of Entity with new data, using batched writes.
+     * @see DAO#updateAll(Collection)
+     */
+    @Override
+    public int updateAll(Collection<V> elements) throws DAOException {
+        LOG.trace("Trying to update " + elements.size() + " existent " + valueClass.getSimpleName() + "...");
+
+        int writtenNumber = writeAll(elements, false);
+
+        LOG.trace(writtenNumber + " " + valueClass.getSimpleName() + " instances were successfully updated.");
+        return writtenNumber;
+    }
+
+    /**
+     * Lists all instances of Entity together with associations from fetch plan.
+     * If plan contains collections, page is limited by SQL query of identifiers
+     * (see 'getPageWithCollections').
+     * @see DAO#getAll(int, FetchPlan)
+     */
+    @Override
+    public List<V> getAll(int maxResultsNumber, FetchPlan fetchPlan) throws DAOException {
+        LOG.trace("Trying to list all " +
+                (maxResultsNumber == DAO.NO_LIMIT ? "" : maxResultsNumber + " ") +
+                valueClass.getSimpleName() + " with " + fetchPlan + "...");
+
+        checkIfFactoryIsClosed(factory);
+
+        EntityManager manager = openManager();
+
+        try {
+            List<V> resultList;
+            if (maxResultsNumber != DAO.NO_LIMIT && fetchPlan.containsCollections(manager, valueClass)) {
+                resultList = getPageWithCollections(manager, maxResultsNumber, fetchPlan);
+            } else {
+                // fetched collections multiply rows of root Entity, so duplicates are removed
+                // in memory (without SQL 'distinct'):
+                TypedQuery<V> typedQuery = manager.createQuery(
+                        "select distinct e from " + valueClass.getSimpleName() + " e", valueClass);
+                typedQuery.setHint(QueryHints.PASS_DISTINCT_THROUGH, false);
+                fetchPlan.toHints(manager, valueClass).forEach(typedQuery::setHint);
+
+                if (maxResultsNumber != DAO.NO_LIMIT) {
+                    typedQuery.setMaxResults(maxResultsNumber);
+                }
+
+                resultList = typedQuery.getResultList();
+            }
+
+            LOG.trace("All needed " + valueClass.getSimpleName() + " instances were successfully listed.");
+            return resultList;
+        } catch (Exception e) {
+            LOG.error("Can't list all needed " + valueClass.getSimpleName() +
+                    " instances. " + e.getMessage(), e);
+            throw new DAOException(e);
+        } finally {
+            closeManager(manager);
+        }
+    }
+
+    /**
+     * Lists page of instances of Entity with fetch plan, which contains collections (so SQL limit
+     * can't be applied to query, which fetches them): identifiers of page are selected first,
+     * with SQL limit, and then instances are fetched by IN queries with up to 'multiLoadBatchSize'
+     * identifiers each. Instances are ordered by identifier.
+     *
+     * @param manager EntityManager, which executes queries.
+     * @param maxResultsNumber max number of listed instances.
+     * @param fetchPlan associations, which should be loaded together with instances.
+     * @return page of instances.
+     */
+    private List<V> getPageWithCollections(EntityManager manager, int maxResultsNumber, FetchPlan fetchPlan) {
+        String entityName = valueClass.getSimpleName();
+        String idAttributeName = getIdAttributeName();
+
+        List<?> ids = manager.createQuery(
+                "select e." + idAttributeName + " from " + entityName + " e order by e." + idAttributeName)
+                .setMaxResults(maxResultsNumber)
+                .getResultList();
+
+        List<V> resultList = new ArrayList<>(ids.size());
+        for (int fromIndex = 0; fromIndex < ids.size(); fromIndex += multiLoadBatchSize) {
+            TypedQuery<V> typedQuery = manager.createQuery(
+                    "select distinct e from " + entityName + " e where e." + idAttributeName +
+                            " in :ids order by e." + idAttributeName, valueClass);
+            typedQuery.setHint(QueryHints.PASS_DISTINCT_THROUGH, false);
+            fetchPlan.toHints(manager, valueClass).forEach(typedQuery::setHint);
+            typedQuery.setParameter("ids", ids.subList(fromIndex, Math.min(fromIndex + multiLoadBatchSize, ids.size())));
+
+            resultList.addAll(typedQuery.getResultList());
+        }
+        return resultList;
+    }
+
+    /**
+     * Lists read-only projections (DTOs) of all instances of Entity.
+     * Query is executed in read-only mode with manual flushing, so persistence context
+     * neither keeps snapshots, nor is flushed.
+     * @see DAO#getAll(Class, int)
+     */
+    @Override
+    public <P> List<P> getAll(Class<P> projectionClass, int maxResultsNumber) throws DAOException {
+        LOG.trace("Trying to list " + projectionClass.getSimpleName() + " of all " +
+                (maxResultsNumber == DAO.NO_LIMIT ? "" : maxResultsNumber + " ") +
+                valueClass.getSimpleName() + "...");
+
+        Projection projection = projectionClass.getAnnotation(Projection.class);
+        if (projection == null) {
+            DAOException exception = new DAOException(projectionClass.getName() +
+                    " isn't annotated with @" + Projection.class.getSimpleName() + ".");
+            LOG.error(exception.getMessage(), exception);
+            throw exception;
+        }
+
+        checkIfFactoryIsClosed(factory);
+
+        EntityManager manager = openManager();
+        if (!isJoined(manager)) {
+            // session of unit of work is shared with other operations, so its defaults stay untouched:
+            manager.unwrap(Session.class).setDefaultReadOnly(true);
+        }
+
+        try {
+            StringBuilder queryString = new StringBuilder("select new ")
+                    .append(projectionClass.getName()).append("(");
+            for (int i = 0; i < projection.value().length; i++) {
+                queryString.append(i == 0 ? "" : ", ").append("e.").append(projection.value()[i]);
+            }
+            queryString.append(") from ").append(valueClass.getSimpleName()).append(" e");
+
+            TypedQuery<P> typedQuery = manager.createQuery(queryString.toString(), projectionClass);
+            typedQuery.setHint(QueryHints.READ_ONLY, true);
+            typedQuery.setHint(QueryHints.FLUSH_MODE, FlushMode.MANUAL);
+
+            if (maxResultsNumber != DAO.NO_LIMIT) {
+                typedQuery.setMaxResults(maxResultsNumber);
+            }
+
+            List<P> resultList = typedQuery.getResultList();
+
+            LOG.trace(projectionClass.getSimpleName() + " of all needed " + valueClass.getSimpleName() +
+                    " instances were successfully listed.");
+            return resultList;
+        } catch (Exception e) {
+            LOG.error("Can't list " + projectionClass.getSimpleName() + " of all needed " +
+                    valueClass.getSimpleName() + " instances. " + e.getMessage(), e);
+            throw new DAOException(e);
+        } finally {
+            closeManager(manager);
+        }
+    }
+
+    /**
+     * Lists instances of Entity, which have proposed value of proposed attribute.
+     * @see DAO#findBy(String, Object, int)
+     */
+    @Override
+    public List<V> findBy(String attributeName, Object value, int maxResultsNumber) throws DAOException {
+        LOG.trace("Trying to find " + valueClass.getSimpleName() + " by " + attributeName + "...");
+
+        checkIfFactoryIsClosed(factory);
+
+        EntityManager manager = openManager();
+
+        try {
+            SingularAttribute<? super V, ?> attribute = getSingularAttribute(attributeName);
+            String queryName = getFinderQueryName(attributeName, "");
+
+            TypedQuery<V> typedQuery;
+            if (isNamedQueryRegistered(queryName)) {
+                typedQuery = manager.createNamedQuery(queryName, valueClass);
+            } else {
+                CriteriaBuilder builder = manager.getCriteriaBuilder();
+                CriteriaQuery<V> criteriaQuery = builder.createQuery(valueClass);
+                Root<V> root = criteriaQuery.from(valueClass);
+
+                Path<Object> path = root.get(attributeName);
+                if (attribute.isAssociation()) {
+                    path = path.get(getIdAttributeName((IdentifiableType<?>) attribute.getType()));
+                }
+                criteriaQuery.select(root).where(builder.equal(path, builder.parameter(Object.class, "value")));
+                typedQuery = manager.createQuery(criteriaQuery);
+            }
+            typedQuery.setParameter("value", value);
+
+            if (maxResultsNumber != DAO.NO_LIMIT) {
+                typedQuery.setMaxResults(maxResultsNumber);
+            }
+
+            List<V> resultList = typedQuery.getResultList();
+
+            LOG.trace(resultList.size() + " " + valueClass.getSimpleName() + " instances were successfully found.");
+            return resultList;
+        } catch (Exception e) {
+            LOG.error("Can't find " + valueClass.getSimpleName() + " by " + attributeName + ". " + e.getMessage(), e);
+            throw new DAOException(e);
+        } finally {
+            closeManager(manager);
+        }
+    }
+
+    /**
+     * Lists instances of Entity, which have value of proposed attribute between proposed bounds.
+     * @see DAO#findInRange(String, Object, Object, int)
+     */
+    @Override
+    public List<V> findInRange(String attributeName, Object lowerBound, Object upperBound,
+                               int maxResultsNumber) throws DAOException {
+        LOG.trace("Trying to find " + valueClass.getSimpleName() + " by range of " + attributeName + "...");
+
+        checkIfFactoryIsClosed(factory);
+
+        EntityManager manager = openManager();
+
+        try {
+            SingularAttribute<? super V, ?> attribute = getSingularAttribute(attributeName);
+            if (attribute.isAssociation()) {
+                throw new IllegalArgumentException("Association '" + attributeName + "' can't be compared with range.");
+            }
+            String queryName = getFinderQueryName(attributeName, "Range");
+
+            TypedQuery<V> typedQuery;
+            if (isNamedQueryRegistered(queryName)) {
+                typedQuery = manager.createNamedQuery(queryName, valueClass);
+            } else {
+                typedQuery = manager.createQuery("select e from " + valueClass.getSimpleName() + " e where e." +
+                        attributeName + " between :lower and :upper order by e." + attributeName, valueClass);
+            }
+            typedQuery.setParameter("lower", lowerBound);
+            typedQuery.setParameter("upper", upperBound);
+
+            if (maxResultsNumber != DAO.NO_LIMIT) {
+                typedQuery.setMaxResults(maxResultsNumber);
+            }
+
+            List<V> resultList = typedQuery.getResultList();
+
+            LOG.trace(resultList.size() + " " + valueClass.getSimpleName() + " instances were successfully found.");
+            return resultList;
+        } catch (Exception e) {
+            LOG.error("Can't find " + valueClass.getSimpleName() + " by range of " + attributeName + ". " +
+                    e.getMessage(), e);
+            throw new DAOException(e);
+        } finally {
+            closeManager(manager);
+        }
+    }
+
+    /**
+     * Lists one page of instances of Entity, using keyset (seek) pagination.
+     * @see DAO#getPage(Object, int)
+     */
+    @Override
+    public Page<ID, V> getPage(ID afterId, int pageSize) throws DAOException {
+        LOG.trace("Trying to list page of " + pageSize + " " + valueClass.getSimpleName() +
+                " after ID " + afterId + "...");
+
+        if (pageSize < 1) {
+            DAOException exception = new DAOException("Page size must be positive, but was " + pageSize + ".");
+            LOG.error(exception.getMessage(), exception);
+            throw exception;
+        }
+
+        checkIfFactoryIsClosed(factory);
+
+        EntityManager manager = openManager();
+
+        try {
+            String idName = getIdAttributeName();
+            String queryString = "select e from " + valueClass.getSimpleName() + " e" +
+                    (afterId == null ? "" : " where e." + idName + " > :afterId") +
+                    " order by e." + idName;
+
+            TypedQuery<V> typedQuery = manager.createQuery(queryString, valueClass);
+            if (afterId != null) {
+                typedQuery.setParameter("afterId", afterId);
+            }
+            // one extra record shows, if there is the next page:
+            typedQuery.setMaxResults(pageSize + 1);
+
+            List<V> resultList = typedQuery.getResultList();
+
+            boolean hasNext = resultList.size() > pageSize;
+            if (hasNext) {
+                resultList = new ArrayList<>(resultList.subList(0, pageSize));
+            }
+            ID lastId = resultList.isEmpty() ? null :
+                    idClass.cast(factory.getPersistenceUnitUtil().getIdentifier(resultList.get(resultList.size() - 1)));
+
+            LOG.trace("Page of " + valueClass.getSimpleName() + " instances was successfully listed.");
+            return new Page<>(resultList, lastId, hasNext);
+        } catch (Exception e) {
+            LOG.error("Can't list page of " + valueClass.getSimpleName() +
+                    " instances. " + e.getMessage(), e);
+            throw new DAOException(e);
+        } finally {
+            closeManager(manager);
+        }
+    }
+
+    /**
+     * Passes all instances of Entity, which are stored in persistence, to proposed consumer.
+     * @see DAO#streamAll(Consumer)
+     */
+    @Override
+    public long streamAll(Consumer<? super V> consumer) throws DAOException {
+        LOG.trace("Trying to stream all " + valueClass.getSimpleName() + "...");
+
+        checkIfFactoryIsClosed(factory);
+
+        EntityManager manager = openManager();
+        Session session = manager.unwrap(Session.class);
+
+        try (ScrollableResults results = scrollAll(session)) {
+            long consumedNumber = 0;
+            while (results.next()) {
+                V value = valueClass.cast(results.get(0));
+                consumer.accept(value);
+                session.evict(value);
+                consumedNumber++;
+            }
+
+            LOG.trace(consumedNumber + " " + valueClass.getSimpleName() + " instances were successfully streamed.");
+            return consumedNumber;
+        } catch (Exception e) {
+            LOG.error("Can't stream all " + valueClass.getSimpleName() + " instances. " + e.getMessage(), e);
+            throw new DAOException(e);
+        } finally {
+            closeManager(manager);
+        }
+    }
+
+    /**
+     * Opens lazy Stream of all instances of Entity, which are stored in persistence.
+     * @see DAO#streamAll()
+     */
+    @Override
+    public Stream<V> streamAll() throws DAOException {
+        LOG.trace("Trying to open Stream of all " + valueClass.getSimpleName() + "...");
+
+        checkIfFactoryIsClosed(factory);
+
+        EntityManager manager = openManager();
+        Session session = manager.unwrap(Session.class);
+
+        try {
+            ScrollableResults results = scrollAll(session);
+
+            Spliterator<V> spliterator = new Spliterators.AbstractSpliterator<V>(Long.MAX_VALUE,
+                    Spliterator.ORDERED | Spliterator.NONNULL) {
+
+                private V lastValue;
+
+                @Override
+                public boolean tryAdvance(Consumer<? super V> action) {
+                    if (lastValue != null) {
+                        session.evict(lastValue);
+                        lastValue = null;
+                    }
+                    if (!results.next()) {
+                        return false;
+                    }
+                    lastValue = valueClass.cast(results.get(0));
+                    action.accept(lastValue);
+                    return true;
+                }
+            };
+
+            boolean isJoined = isJoined(manager);
+
+            LOG.trace("Stream of all " + valueClass.getSimpleName() + " instances was successfully opened.");
+            return StreamSupport.stream(spliterator, false).onClose(() -> {
+                try {
+                    results.close();
+                } finally {
+                    if (!isJoined) {
+                        manager.close();
+                    }
+                }
+            });
+        } catch (Exception e) {
+            closeManager(manager);
+
+            LOG.error("Can't open Stream of all " + valueClass.getSimpleName() + " instances. " + e.getMessage(), e);
+            throw new DAOException(e);
+        }
+    }
+
+    /**
+     * Opens forward-only read-only cursor over all stored instances of Entity.
+     *
+     * @param session session, which will own the cursor.
+     * @return opened cursor.
+     */
+    private ScrollableResults scrollAll(Session session) {
+        org.hibernate.query.Query<V> query = session.createQuery("select e from " + valueClass.getSimpleName() + " e", valueClass);
+        query.setFetchSize(fetchSize);
+        query.setReadOnly(true);
+        return query.scroll(ScrollMode.FORWARD_ONLY);
+    }
+
+    /**
+     * Writes proposed instances in chunks of 'transactionSize' records per transaction.
+     * Persistence context is flushed (as one JDBC batch) and cleared every 'batchSize' records,
+     * so memory usage doesn't depend on number of written instances.
+     *
+     * Inside of unit of work all instances are written in its transaction (without intermediate
+     * commits), and its persistence context is only flushed, not cleared, so instances, which
+     * are managed by unit of work, stay managed (and written instances are kept in it).
+     *
+     * Stored versions of existent instances are loaded by one IN query per JDBC batch, and new
+     * versions are merged into them (see 'update'), so existent instances must be already stored
+     * in Persistence. Committed versions are copied to proposed instances.
+     *
+     * If operation fails, identifiers (and versions) of new instances, which weren't committed,
+     * are reset to unsaved values, so these instances could be created again.
+     *
+     * @param elements target instances.
+     * @param isNew true, if instances should be created, or false, if they should be updated.
+     * @return number of written instances.
+     * @throws DAOException if operation wasn't successful.
+     */
+    private int writeAll(Collection<V> elements, boolean isNew) throws DAOException {
+        checkIfFactoryIsClosed(factory);
+
+        EntityManager manager = openManager();
+        boolean isJoined = isJoined(manager);
+        Session session = manager.unwrap(Session.class);
+        Integer previousBatchSize = session.getJdbcBatchSize();
+        session.setJdbcBatchSize(batchSize);
+        EntityTransaction transaction = manager.getTransaction();
+
+        List<V> elementList = new ArrayList<>(elements);
+        int writtenNumber = 0;
+        int committedNumber = 0;
+        // number of elements, whose stored versions were loaded to persistence context:
+        int loadedNumber = 0;
+        try {
+            for (V element : elementList) {
+                if (!transaction.isActive()) {
+                    transaction.begin();
+                }
+
+                if (isNew) {
+                    session.persist(element);
+                } else {
+                    if (writtenNumber == loadedNumber) {
+                        loadedNumber = Math.min(writtenNumber + batchSize, elementList.size());
+                        loadStored(session, elementList.subList(writtenNumber, loadedNumber));
+                    }
+                    V storedValue = mergeStored(session, element);
+                    afterCommit(session, () -> copyVersion(storedValue, element));
+                }
+                writtenNumber++;
+
+                if (!isJoined && writtenNumber % transactionSize == 0) {
+                    transaction.commit();
+                    session.clear();
+                    committedNumber = writtenNumber;
+                    loadedNumber = writtenNumber;
+                    LOG.trace(writtenNumber + " " + valueClass.getSimpleName() + " instances were committed...");
+                } else if (writtenNumber % batchSize == 0) {
+                    session.flush();
+                    if (!isJoined) {
+                        session.clear();
+                        loadedNumber = writtenNumber;
+                    }
+                }
+            }
+
+            if (isJoined) {
+                // failures of the last batch are reported by this operation, not by commit of unit of work:
+                session.flush();
+            } else if (transaction.isActive()) {
+                transaction.commit();
+            }
+            return writtenNumber;
+        } catch (Exception e) {
+            rollbackTransaction(manager);
+            if (isNew) {
+                resetIdentifiers(session, elementList.subList(committedNumber,
+                        Math.min(writtenNumber + 1, elementList.size())));
+            }
+
+            LOG.error("Can't write " + valueClass.getSimpleName() + " instances (" + writtenNumber +
+                    " of them were processed). " + e.getMessage(), e);
+            throw new DAOException(e);
+        } finally {
+            session.setJdbcBatchSize(previousBatchSize);
+            closeManager(manager);
+        }
+    }
+
+    /**
+     * Registers action, which will be executed after successful commit of current transaction
+     * of proposed session (own transaction of operation or transaction of unit of work).
+     *
+     * @param session session, which transaction is active.
+     * @param action target action.
+     */
+    private static void afterCommit(Session session, Runnable action) {
+        session.getTransaction().registerSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    action.run();
+                }
+            }
+        });
+    }
+
+    /**
+     * Copies version of written instance to proposed one (if Entity is versioned).
+     *
+     * @param writtenValue instance, which was written by session.
+     * @param element proposed (detached) instance.
+     */
+    private void copyVersion(V writtenValue, V element) {
+        EntityPersister persister = factory.unwrap(SessionFactoryImplementor.class)
+                .getMetamodel().entityPersister(valueClass);
+        if (persister.isVersioned()) {
+            persister.setPropertyValue(element, persister.getVersionProperty(), persister.getVersion(writtenValue));
+        }
+    }
+
+    /**
+     * Resets identifiers and versions of new instances, whose creation was rolled back,
+     * to unsaved values.
+     *
+     * @param session session, which persisted instances.
+     * @param elements new instances.
+     */
+    private void resetIdentifiers(Session session, List<V> elements) {
+        SessionImplementor sessionImplementor = session.unwrap(SessionImplementor.class);
+        for (V element : elements) {
+            EntityPersister persister = sessionImplementor.getEntityPersister(null, element);
+            persister.resetIdentifier(element, persister.getIdentifier(element, sessionImplementor),
+                    persister.getVersion(element), sessionImplementor);
+        }
+    }
+
+    /**
+     * Loads stored versions of proposed instances to persistence context by IN query
+     * (instances, which are already contained by persistence context, are skipped).
+     *
+     * @param session session, which will contain loaded instances.
+     * @param elements new versions of stored instances.
+     */
+    private void loadStored(Session session, List<V> elements) {
+        List<Serializable> idList = new ArrayList<>(elements.size());
+        for (V element : elements) {
+            // identifiers of JPA entities are always Serializable:
+            idList.add((Serializable) factory.getPersistenceUnitUtil().getIdentifier(element));
+        }
+
+        session.byMultipleIds(valueClass)
+                .withBatchSize(batchSize)
+                .enableSessionCheck(true)
+                .multiLoad(idList);
+    }
+
+    /**
+     * Merges new version of instance into its stored version, which is loaded to persistence
+     * context by 'loadStored' (or by this method, if it wasn't loaded yet).
+     *
+     * @param session session, which contains stored version of instance.
+     * @param element new version of stored instance.
+     * @return managed instance, which received new version.
+     * @throws StaleObjectStateException if instance isn't stored in Persistence (for example,
+     * because it was removed concurrently).
+     */
+    private V mergeStored(Session session, V element) {
+        Serializable id = (Serializable) factory.getPersistenceUnitUtil().getIdentifier(element);
+        if (session.get(valueClass, id) == null) {
+            throw new StaleObjectStateException(valueClass.getName(), id);
+        }
+        return valueClass.cast(session.merge(element));
+    }
+
+    /**
+     * Reattaches detached instances, which are associated with proposed one by attributes with
+     * cascaded persist (without statements and without changes of their state), so they aren't
+     * cascaded by flush. Uninitialized collections and new (transient) instances are skipped.
+     *
+     * @param session current session.
+     * @param persister persister of proposed instance.
+     * @param element proposed instance, which will be reattached.
+     */
+    private static void reattachCascaded(SessionImplementor session, EntityPersister persister, Object element) {
+        Type[] types = persister.getPropertyTypes();
+        CascadeStyle[] cascadeStyles = persister.getPropertyCascadeStyles();
+        for (int i = 0; i < types.length; i++) {
+            if (!cascadeStyles[i].doCascade(CascadingActions.PERSIST_ON_FLUSH)) {
+                continue;
+            }
+            Object value = persister.getPropertyValue(element, i);
+            if (value == null || !Hibernate.isInitialized(value)) {
+                continue;
+            }
+
+            Collection<?> associatedValues;
+            if (!types[i].isCollectionType()) {
+                associatedValues = Collections.singletonList(value);
+            } else if (value instanceof Map) {
+                associatedValues = ((Map<?, ?>) value).values();
+            } else {
+                associatedValues = (Collection<?>) value;
+            }
+            for (Object associatedValue : associatedValues) {
+                if (!Hibernate.isInitialized(associatedValue) || session.contains(associatedValue)) {
+                    continue;
+                }
+                EntityPersister associatedPersister = session.getEntityPersister(null, associatedValue);
+                if (Boolean.FALSE.equals(associatedPersister.isTransient(associatedValue, session))) {
+                    session.buildLockRequest(LockOptions.NONE).lock(associatedValue);
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies state of managed instance to new detached instance, so the copy isn't changed by
+     * following merge of new version. Collections, which will be replaced by merge, are
+     * initialized and copied, other ones are shared with managed instance.
+     *
+     * @param session session, which contains managed instance.
+     * @param storedValue managed (stored) version of instance.
+     * @param newElement new version of instance, which will be merged into managed one.
+     * @return detached copy of managed instance.
+     */
+    private V copyOf(Session session, V storedValue, V newElement) {
+        SessionImplementor sessionImplementor = session.unwrap(SessionImplementor.class);
+        EntityPersister persister = sessionImplementor.getEntityPersister(null, storedValue);
+
+        Object[] values = persister.getPropertyValues(storedValue);
+        Object[] newValues = persister.getPropertyValues(newElement);
+        Type[] types = persister.getPropertyTypes();
+        for (int i = 0; i < values.length; i++) {
+            if (types[i].isCollectionType() && values[i] instanceof Collection &&
+                    newValues[i] != null && Hibernate.isInitialized(newValues[i])) {
+                @SuppressWarnings("unchecked")
+                Collection<Object> copy = (Collection<Object>) ((CollectionType) types[i]).instantiate(-1);
+                copy.addAll((Collection<?>) values[i]);
+                values[i] = copy;
+            }
+        }
+
+        V copy = valueClass.cast(persister.instantiate(persister.getIdentifier(storedValue, sessionImplementor),
+                sessionImplementor));
+        persister.setPropertyValues(copy, values);
+        return copy;
+    }
+
+    /**
+     * @return EntityManager of current unit of work (see UnitOfWork), if it's bound to
+     * the current thread, or new EntityManager otherwise.
+     */
+    private EntityManager openManager() {
+        EntityManager manager = UnitOfWork.getCurrentManager(factory);
+        return manager == null ? factory.createEntityManager() : manager;
+    }
+
+    /**
+     * Closes proposed EntityManager, if it doesn't belong to current unit of work.
+     *
+     * @param manager EntityManager, which was returned by 'openManager'.
+     */
+    private void closeManager(EntityManager manager) {
+        if (!isJoined(manager)) {
+            manager.close();
+        }
+    }
+
+    /**
+     * @param manager EntityManager, which was returned by 'openManager'.
+     * @return true, if EntityManager (and its transaction) belongs to current unit of work.
+     */
+    private boolean isJoined(EntityManager manager) {
+        return UnitOfWork.getCurrentManager(factory) == manager;
+    }
+
+    /**
+     * Begins transaction of proposed EntityManager, unless it's already begun by unit of work.
+     *
+     * @param manager EntityManager, which was returned by 'openManager'.
+     */
+    private void beginTransaction(EntityManager manager) {
+        if (!isJoined(manager)) {
+            manager.getTransaction().begin();
+        }
+    }
+
+    /**
+     * Commits transaction of proposed EntityManager, unless it belongs to unit of work
+     * (which commits it at its end).
+     *
+     * @param manager EntityManager, which was returned by 'openManager'.
+     */
+    private void commitTransaction(EntityManager manager) {
+        if (!isJoined(manager)) {
+            manager.getTransaction().commit();
+        }
+    }
+
+    /**
+     * Rolls back active transaction of proposed EntityManager, or marks it as rollback-only,
+     * if it belongs to unit of work.
+     *
+     * @param manager EntityManager, which was returned by 'openManager'.
+     */
+    private void rollbackTransaction(EntityManager manager) {
+        EntityTransaction transaction = manager.getTransaction();
+        if (!transaction.isActive()) {
+            return;
+        }
+        if (isJoined(manager)) {
+            transaction.setRollbackOnly();
+        } else {
+            transaction.rollback();
+        }
+    }
+
+    /**
+     * Searches for name of Entity's unique identifier attribute in JPA metamodel.
+     *
+     * @return name of identifier attribute.
+     */
+    private String getIdAttributeName() {
+        return getIdAttributeName(factory.getMetamodel().entity(valueClass));
+    }
+
+    /**
+     * Searches for name of unique identifier attribute of proposed Entity type.
+     *
+     * @param type Entity type from JPA metamodel.
+     * @return name of identifier attribute.
+     */
+    private static String getIdAttributeName(IdentifiableType<?> type) {
+        for (SingularAttribute<?, ?> attribute : type.getSingularAttributes()) {
+            if (attribute.isId()) {
+                return attribute.getName();
+            }
+        }
+        throw new IllegalStateException(type.getJavaType().getSimpleName() + " has no identifier attribute.");
+    }
+
+    /**
+     * Searches for single-valued attribute of Entity in JPA metamodel.
+     *
+     * @param attributeName name of attribute.
+     * @return found attribute.
+     * @throws IllegalArgumentException if Entity has no such single-valued attribute.
+     */
+    private SingularAttribute<? super V, ?> getSingularAttribute(String attributeName) {
+        return factory.getMetamodel().entity(valueClass).getSingularAttribute(attributeName);
+    }
+
+    /**
+     * @param attributeName name of attribute, used by finder.
+     * @param suffix suffix of finder's kind ("" or "Range").
+     * @return name of named query, which could implement finder.
+     */
+    private String getFinderQueryName(String attributeName, String suffix) {
+        return factory.getMetamodel().entity(valueClass).getName() + ".findBy" +
+                Character.toUpperCase(attributeName.charAt(0)) + attributeName.substring(1) + suffix;
+    }
+
+    /**
+     * @param queryName name of named query.
+     * @return true, if such named query is registered in persistence unit.
+     */
+    private boolean isNamedQueryRegistered(String queryName) {
+        return namedQueryRegistrations.computeIfAbsent(queryName, name -> {
+            // separate EntityManager, because failed lookup marks current transaction for rollback:
+            EntityManager manager = factory.createEntityManager();
+            try {
+                manager.createNamedQuery(name);
+                return true;
+            } catch (IllegalArgumentException e) {
+                return false;
+            } finally {
+                manager.close();
+            }
+        });
+    }
+
+    /**
+     * Checks if proposed attribute could be changed by patch operation
+     * (only single-valued attributes, except identifier and version, could be patched).
+     *
+     * @param attribute attribute of Entity, which will be checked.
+     * @throws IllegalArgumentException if attribute couldn't be patched.
+     */
+    private void checkIfAttributeIsPatchable(Attribute<? super V, ?> attribute) {
+        if (attribute.isCollection()) {
+            throw new IllegalArgumentException("Collection attribute '" + attribute.getName() + "' can't be patched.");
+        }
+        SingularAttribute<? super V, ?> singularAttribute = (SingularAttribute<? super V, ?>) attribute;
+        if (singularAttribute.isId() || singularAttribute.isVersion()) {
+            throw new IllegalArgumentException("Attribute '" + attribute.getName() + "' can't be patched.");
+        }
+    }
+
+    /**
+     * @param e exception of failed operation.
+     * @return true, if operation failed because of concurrent modification of the same record
+     * (version of instance was outdated).
+     */
+    private static boolean isConcurrentModification(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof OptimisticLockException || cause instanceof StaleStateException) {
+                return true;
+            }
         }
+        return false;
     }
 
     /**
@@ -0,0 +1,281 @@
+package com.alex323glo.hibernate.dao;
+
+import com.alex323glo.hibernate.exception.DAOException;
+import com.alex323glo.hibernate.metrics.DAOMetrics;
+import com.alex323glo.hibernate.metrics.OperationMetrics;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Measuring decorator of DAO: records count, error count and latency of every operation
+ * of decorated DAO into DAOMetrics (one OperationMetrics per DAO method name).
+ *
+ * Recording is lock-free, so measuring costs two System.nanoTime() calls and one histogram
+ * update per operation. If metrics are disabled (see DAOMetrics#setEnabled), operations
+ * aren't measured at all.
+ *
+ * Usage:
+ *      InstrumentedDAO<Integer, User> dao = new InstrumentedDAO<>(new GeneralDAO<>(factory, Integer.class, User.class));
+ *      dao.getMetrics().registerMBean();
+ *      ...
+ *      Map<String, OperationSnapshot> snapshots = dao.getMetrics().getOperations();
+ *
+ * @param <ID> type of Primary Key of stored Entity.
+ * @param <V> type of stored Entity.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see DAOMetrics
+ */
+public class InstrumentedDAO<ID, V> implements DAO<ID, V> {
+
+    private final DAO<ID, V> delegate;
+    private final DAOMetrics metrics;
+
+    private final OperationMetrics inTransaction;
+    private final OperationMetrics create;
+    private final OperationMetrics readById;
+    private final OperationMetrics readByIdWithFetchPlan;
+    private final OperationMetrics readByIds;
+    private final OperationMetrics update;
+    private final OperationMetrics updateWithRetry;
+    private final OperationMetrics upsert;
+    private final OperationMetrics patch;
+    private final OperationMetrics delete;
+    private final OperationMetrics deleteAll;
+    private final OperationMetrics deleteWhere;
+    private final OperationMetrics getAll;
+    private final OperationMetrics getAllWithFetchPlan;
+    private final OperationMetrics getAllProjections;
+    private final OperationMetrics findBy;
+    private final OperationMetrics findInRange;
+    private final OperationMetrics getPage;
+    private final OperationMetrics createAll;
+    private final OperationMetrics updateAll;
+    private final OperationMetrics streamAll;
+    private final OperationMetrics openStream;
+
+    /**
+     * Creates measuring decorator of GeneralDAO, which metrics are named after its Entity
+     * class and include Hibernate statistics of its persistence unit.
+     *
+     * @param delegate decorated DAO.
+     */
+    public InstrumentedDAO(GeneralDAO<ID, V> delegate) {
+        this(delegate, new DAOMetrics(delegate.getValueClass().getSimpleName(), delegate.getStatistics()));
+    }
+
+    /**
+     * @param delegate decorated DAO.
+     * @param metrics metrics, which will store measurements.
+     */
+    public InstrumentedDAO(DAO<ID, V> delegate, DAOMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+
+        this.inTransaction = metrics.operation("inTransaction");
+        this.create = metrics.operation("create");
+        this.readById = metrics.operation("readById");
+        this.readByIdWithFetchPlan = metrics.operation("readByIdWithFetchPlan");
+        this.readByIds = metrics.operation("readByIds");
+        this.update = metrics.operation("update");
+        this.updateWithRetry = metrics.operation("updateWithRetry");
+        this.upsert = metrics.operation("upsert");
+        this.patch = metrics.operation("patch");
+        this.delete = metrics.operation("delete");
+        this.deleteAll = metrics.operation("deleteAll");
+        this.deleteWhere = metrics.operation("deleteWhere");
+        this.getAll = metrics.operation("getAll");
+        this.getAllWithFetchPlan = metrics.operation("getAllWithFetchPlan");
+        this.getAllProjections = metrics.operation("getAllProjections");
+        this.findBy = metrics.operation("findBy");
+        this.findInRange = metrics.operation("findInRange");
+        this.getPage = metrics.operation("getPage");
+        this.createAll = metrics.operation("createAll");
+        this.updateAll = metrics.operation("updateAll");
+        this.streamAll = metrics.operation("streamAll");
+        this.openStream = metrics.operation("openStream");
+    }
+
+    public DAO<ID, V> getDelegate() {
+        return delegate;
+    }
+
+    public DAOMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Measures the whole unit of work. Work receives this DAO, so its operations are measured too.
+     * @see DAO#inTransaction(Function)
+     */
+    @Override
+    public <R> R inTransaction(Function<? super DAO<ID, V>, R> work) throws DAOException {
+        return measure(inTransaction, () -> delegate.inTransaction(dao -> work.apply(this)));
+    }
+
+    /**
+     * Measures the whole unit of work. Work receives this DAO, so its operations are measured too.
+     * @see DAO#inTransaction(UnitOfWork.Propagation, Function)
+     */
+    @Override
+    public <R> R inTransaction(UnitOfWork.Propagation propagation, Function<? super DAO<ID, V>, R> work)
+            throws DAOException {
+        return measure(inTransaction, () -> delegate.inTransaction(propagation, dao -> work.apply(this)));
+    }
+
+    @Override
+    public V create(V element) throws DAOException {
+        return measure(create, () -> delegate.create(element));
+    }
+
+    @Override
+    public V readById(ID id) throws DAOException {
+        return measure(readById, () -> delegate.readById(id));
+    }
+
+    @Override
+    public V readById(ID id, FetchPlan fetchPlan) throws DAOException {
+        return measure(readByIdWithFetchPlan, () -> delegate.readById(id, fetchPlan));
+    }
+
+    @Override
+    public List<V> readByIds(Collection<ID> ids) throws DAOException {
+        return measure(readByIds, () -> delegate.readByIds(ids));
+    }
+
+    @Override
+    public V update(ID id, V element) throws DAOException {
+        return measure(update, () -> delegate.update(id, element));
+    }
+
+    /**
+     * Measures all attempts of update (including backoff between them).
+     * @see DAO#updateWithRetry(Object, Consumer)
+     */
+    @Override
+    public V updateWithRetry(ID id, Consumer<? super V> mutation) throws DAOException {
+        return measure(updateWithRetry, () -> delegate.updateWithRetry(id, mutation));
+    }
+
+    /**
+     * Measures all attempts of update (including backoff between them).
+     * @see DAO#updateWithRetry(Object, Consumer, RetryPolicy)
+     */
+    @Override
+    public V updateWithRetry(ID id, Consumer<? super V> mutation, RetryPolicy retryPolicy) throws DAOException {
+        return measure(updateWithRetry, () -> delegate.updateWithRetry(id, mutation, retryPolicy));
+    }
+
+    @Override
+    public V upsert(V element) throws DAOException {
+        return measure(upsert, () -> delegate.upsert(element));
+    }
+
+    @Override
+    public int patch(ID id, Map<String, Object> changes) throws DAOException {
+        return measure(patch, () -> delegate.patch(id, changes));
+    }
+
+    @Override
+    public V delete(ID id) throws DAOException {
+        return measure(delete, () -> delegate.delete(id));
+    }
+
+    @Override
+    public int deleteAll(Collection<ID> ids) throws DAOException {
+        return measure(deleteAll, () -> delegate.deleteAll(ids));
+    }
+
+    @Override
+    public int deleteWhere(Condition<V> condition) throws DAOException {
+        return measure(deleteWhere, () -> delegate.deleteWhere(condition));
+    }
+
+    @Override
+    public List<V> getAll(int maxResultsNumber) throws DAOException {
+        return measure(getAll, () -> delegate.getAll(maxResultsNumber));
+    }
+
+    @Override
+    public List<V> getAll(int maxResultsNumber, FetchPlan fetchPlan) throws DAOException {
+        return measure(getAllWithFetchPlan, () -> delegate.getAll(maxResultsNumber, fetchPlan));
+    }
+
+    @Override
+    public <P> List<P> getAll(Class<P> projectionClass, int maxResultsNumber) throws DAOException {
+        return measure(getAllProjections, () -> delegate.getAll(projectionClass, maxResultsNumber));
+    }
+
+    @Override
+    public List<V> findBy(String attributeName, Object value, int maxResultsNumber) throws DAOException {
+        return measure(findBy, () -> delegate.findBy(attributeName, value, maxResultsNumber));
+    }
+
+    @Override
+    public List<V> findInRange(String attributeName, Object lowerBound, Object upperBound,
+                               int maxResultsNumber) throws DAOException {
+        return measure(findInRange, () -> delegate.findInRange(attributeName, lowerBound, upperBound, maxResultsNumber));
+    }
+
+    @Override
+    public Page<ID, V> getPage(ID afterId, int pageSize) throws DAOException {
+        return measure(getPage, () -> delegate.getPage(afterId, pageSize));
+    }
+
+    @Override
+    public int createAll(Collection<V> elements) throws DAOException {
+        return measure(createAll, () -> delegate.createAll(elements));
+    }
+
+    @Override
+    public int updateAll(Collection<V> elements) throws DAOException {
+        return measure(updateAll, () -> delegate.updateAll(elements));
+    }
+
+    @Override
+    public long streamAll(Consumer<? super V> consumer) throws DAOException {
+        return measure(streamAll, () -> delegate.streamAll(consumer));
+    }
+
+    /**
+     * Measures only opening of Stream (not its consumption).
+     * @see DAO#streamAll()
+     */
+    @Override
+    public Stream<V> streamAll() throws DAOException {
+        return measure(openStream, delegate::streamAll);
+    }
+
+    /**
+     * Executes proposed call of decorated DAO and records its latency and result.
+     *
+     * @param operation metrics of called operation.
+     * @param call call of decorated DAO.
+     * @param <R> type of call's result.
+     * @return result of call.
+     */
+    private <R> R measure(OperationMetrics operation, Supplier<R> call) {
+        if (!metrics.isEnabled()) {
+            return call.get();
+        }
+
+        long startNanos = System.nanoTime();
+        boolean isFailed = true;
+        try {
+            R result = call.get();
+            isFailed = false;
+            return result;
+        } finally {
+            operation.record(System.nanoTime() - startNanos, isFailed);
+        }
+    }
+
+}
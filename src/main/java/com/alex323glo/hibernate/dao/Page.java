@@ -0,0 +1,59 @@
+package com.alex323glo.hibernate.dao;
+
+import java.util.List;
+
+/**
+ * One page of stored Entity instances, which were listed using keyset (seek) pagination.
+ *
+ * @param <ID> type of Primary Key of stored Entity.
+ * @param <V> type of stored Entity.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see DAO#getPage(Object, int)
+ */
+public class Page<ID, V> {
+
+    private final List<V> content;
+    private final ID lastId;
+    private final boolean hasNext;
+
+    public Page(List<V> content, ID lastId, boolean hasNext) {
+        this.content = content;
+        this.lastId = lastId;
+        this.hasNext = hasNext;
+    }
+
+    /**
+     * @return instances of this page, ordered by their unique identifiers.
+     */
+    public List<V> getContent() {
+        return content;
+    }
+
+    /**
+     * @return unique identifier of the last instance of this page (continuation token),
+     * which should be passed to DAO to get the next page, or null, if this page is empty.
+     */
+    public ID getLastId() {
+        return lastId;
+    }
+
+    /**
+     * @return true, if there are more stored instances after this page.
+     */
+    public boolean hasNext() {
+        return hasNext;
+    }
+
+    @Override
+    public String toString() {
+        return "Page{" +
+                "size=" + content.size() +
+                ", lastId=" + lastId +
+                ", hasNext=" + hasNext +
+                '}';
+    }
+
+}
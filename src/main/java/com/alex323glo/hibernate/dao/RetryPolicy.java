@@ -0,0 +1,107 @@
+package com.alex323glo.hibernate.dao;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Policy of retrying of optimistic updates, which failed because of concurrent modification
+ * of the same instance: max number of attempts and bounded exponential backoff with jitter
+ * between them.
+ *
+ * Backoff before attempt N (N > 1) is chosen randomly between half and whole of
+ * min(maxBackoff, initialBackoff * 2^(N - 2)), so concurrent writers of the same hot record
+ * don't retry in lockstep.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see DAO#updateWithRetry(Object, java.util.function.Consumer, RetryPolicy)
+ */
+public class RetryPolicy {
+
+    /**
+     * Default policy: 5 attempts, backoff from 10 ms up to 200 ms.
+     */
+    public static final RetryPolicy DEFAULT = of(5, Duration.ofMillis(10), Duration.ofMillis(200));
+
+    /**
+     * Policy, which doesn't retry failed attempt.
+     */
+    public static final RetryPolicy NO_RETRY = of(1, Duration.ZERO, Duration.ZERO);
+
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+
+    private RetryPolicy(int maxAttempts, Duration initialBackoff, Duration maxBackoff) {
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    /**
+     * @param maxAttempts max number of attempts (including the first one), at least 1.
+     * @param initialBackoff backoff before the second attempt.
+     * @param maxBackoff max backoff between attempts.
+     * @return retry policy.
+     * @throws IllegalArgumentException if arguments are invalid.
+     */
+    public static RetryPolicy of(int maxAttempts, Duration initialBackoff, Duration maxBackoff) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("Number of attempts must be positive.");
+        }
+        if (initialBackoff.isNegative() || maxBackoff.compareTo(initialBackoff) < 0) {
+            throw new IllegalArgumentException("Backoff must be non-negative and not greater than max backoff.");
+        }
+        return new RetryPolicy(maxAttempts, initialBackoff, maxBackoff);
+    }
+
+    /**
+     * @param maxAttempts max number of attempts (including the first one), at least 1.
+     * @return copy of this policy with proposed number of attempts.
+     */
+    public RetryPolicy withMaxAttempts(int maxAttempts) {
+        return of(maxAttempts, initialBackoff, maxBackoff);
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public Duration getInitialBackoff() {
+        return initialBackoff;
+    }
+
+    public Duration getMaxBackoff() {
+        return maxBackoff;
+    }
+
+    /**
+     * @param attempt number of the next attempt (starting from 2).
+     * @return random backoff (in nanoseconds) before proposed attempt.
+     */
+    public long nextBackoffNanos(int attempt) {
+        long initialNanos = initialBackoff.toNanos();
+        long maxNanos = maxBackoff.toNanos();
+
+        // initialBackoff * 2^(attempt - 2), without overflow:
+        int shift = Math.min(Math.max(attempt - 2, 0), 62);
+        long backoffNanos = initialNanos > (maxNanos >> shift) ? maxNanos : Math.min(initialNanos << shift, maxNanos);
+        if (backoffNanos <= 1) {
+            return backoffNanos;
+        }
+
+        long halfNanos = backoffNanos / 2;
+        return halfNanos + ThreadLocalRandom.current().nextLong(backoffNanos - halfNanos + 1);
+    }
+
+    @Override
+    public String toString() {
+        return "RetryPolicy{" +
+                "maxAttempts=" + maxAttempts +
+                ", initialBackoff=" + initialBackoff +
+                ", maxBackoff=" + maxBackoff +
+                '}';
+    }
+
+}
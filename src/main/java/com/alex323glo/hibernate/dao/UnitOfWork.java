@@ -0,0 +1,222 @@
+package com.alex323glo.hibernate.dao;
+
+import com.alex323glo.hibernate.exception.DAOException;
+import org.apache.log4j.Logger;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Unit of work: one EntityManager and one transaction, bound to the current thread
+ * for the time of proposed work.
+ *
+ * DAO operations (see GeneralDAO), called inside of work, join its EntityManager and
+ * transaction instead of opening their own ones: they neither commit, nor close
+ * EntityManager, and instances, which they return, stay managed until the end of work.
+ * If joined operation fails, the whole unit of work is marked as rollback-only.
+ *
+ * Nested units of work follow their propagation rules (see Propagation).
+ *
+ * Usage:
+ *      UnitOfWork.execute(factory, () -> {
+ *          City city = cityDAO.readById(cityId);
+ *          userDAO.create(new User("name", 10, new Date(), city));
+ *          return city;
+ *      });
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see DAO#inTransaction(Propagation, java.util.function.Function)
+ */
+public final class UnitOfWork {
+
+    private static final Logger LOG = Logger.getLogger(UnitOfWork.class);
+
+    // units of work of the current thread (the innermost one is the first):
+    private static final ThreadLocal<Deque<UnitOfWork>> SCOPES = ThreadLocal.withInitial(ArrayDeque::new);
+
+    /**
+     * Rules of unit of work, which is started inside of another one.
+     */
+    public enum Propagation {
+
+        /**
+         * Joins current unit of work of the same persistence unit, if it exists,
+         * or starts new one otherwise.
+         */
+        REQUIRED,
+
+        /**
+         * Always starts new unit of work (with its own EntityManager and transaction),
+         * which is committed independently of enclosing one. Enclosing unit of work
+         * is suspended until the end of new one.
+         */
+        REQUIRES_NEW
+    }
+
+    private final EntityManagerFactory factory;
+    private final EntityManager manager;
+    private final List<Runnable> completionCallbacks = new ArrayList<>();
+
+    private UnitOfWork(EntityManagerFactory factory, EntityManager manager) {
+        this.factory = factory;
+        this.manager = manager;
+    }
+
+    /**
+     * Executes proposed work inside of unit of work with REQUIRED propagation.
+     *
+     * @see UnitOfWork#execute(EntityManagerFactory, Propagation, Supplier)
+     */
+    public static <R> R execute(EntityManagerFactory factory, Supplier<R> work) throws DAOException {
+        return execute(factory, Propagation.REQUIRED, work);
+    }
+
+    /**
+     * Executes proposed work inside of unit of work. New unit of work is committed, if work
+     * was successful, or rolled back, if work threw exception (or if unit of work was marked
+     * as rollback-only by failed DAO operation).
+     *
+     * @param factory persistence unit, which EntityManager will be bound to the current thread.
+     * @param propagation rules of joining to current unit of work.
+     * @param work work, which will be executed.
+     * @param <R> type of work's result.
+     * @return result of work, if unit of work was successfully committed.
+     * @throws DAOException if work failed, or if unit of work wasn't committed.
+     */
+    public static <R> R execute(EntityManagerFactory factory, Propagation propagation,
+                                Supplier<R> work) throws DAOException {
+        if (propagation == Propagation.REQUIRED) {
+            UnitOfWork current = getCurrent(factory);
+            if (current != null) {
+                return current.join(work);
+            }
+        }
+
+        if (!factory.isOpen()) {
+            DAOException exception =
+                    new DAOException("EntityManagerFactory instance was closed before the end of operation.");
+            LOG.error(exception.getMessage(), exception);
+            throw exception;
+        }
+
+        return new UnitOfWork(factory, factory.createEntityManager()).run(work);
+    }
+
+    /**
+     * @return true, if any unit of work is bound to the current thread.
+     */
+    public static boolean isActive() {
+        return !SCOPES.get().isEmpty();
+    }
+
+    /**
+     * Registers callback, which will be called after the end (commit or rollback)
+     * of the innermost unit of work of the current thread.
+     *
+     * @param callback target callback.
+     * @throws IllegalStateException if no unit of work is bound to the current thread.
+     */
+    public static void afterCompletion(Runnable callback) {
+        UnitOfWork current = SCOPES.get().peekFirst();
+        if (current == null) {
+            throw new IllegalStateException("No unit of work is bound to the current thread.");
+        }
+        current.completionCallbacks.add(callback);
+    }
+
+    /**
+     * @param factory persistence unit.
+     * @return EntityManager of current unit of work of proposed persistence unit,
+     * or null, if there is no such unit of work.
+     */
+    static EntityManager getCurrentManager(EntityManagerFactory factory) {
+        UnitOfWork current = getCurrent(factory);
+        return current == null ? null : current.manager;
+    }
+
+    /**
+     * @param factory persistence unit.
+     * @return the innermost unit of work of proposed persistence unit, which is bound
+     * to the current thread, or null, if there is no such unit of work.
+     */
+    private static UnitOfWork getCurrent(EntityManagerFactory factory) {
+        Iterator<UnitOfWork> iterator = SCOPES.get().iterator();
+        while (iterator.hasNext()) {
+            UnitOfWork unitOfWork = iterator.next();
+            if (unitOfWork.factory == factory) {
+                return unitOfWork;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Executes proposed work inside of this (already started) unit of work.
+     * Failed work marks this unit of work as rollback-only.
+     */
+    private <R> R join(Supplier<R> work) {
+        LOG.trace("Joining current unit of work...");
+
+        try {
+            return work.get();
+        } catch (RuntimeException e) {
+            EntityTransaction transaction = manager.getTransaction();
+            if (transaction.isActive()) {
+                transaction.setRollbackOnly();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Binds this unit of work to the current thread, executes proposed work and completes
+     * (commits or rolls back) transaction.
+     */
+    private <R> R run(Supplier<R> work) {
+        LOG.trace("Trying to start new unit of work...");
+
+        Deque<UnitOfWork> scopes = SCOPES.get();
+        EntityTransaction transaction = manager.getTransaction();
+
+        scopes.addFirst(this);
+        try {
+            transaction.begin();
+            R result = work.get();
+
+            if (transaction.getRollbackOnly()) {
+                throw new DAOException("Unit of work was marked as rollback-only by failed operation.");
+            }
+            transaction.commit();
+
+            LOG.trace("Unit of work was successfully committed.");
+            return result;
+        } catch (Exception e) {
+            if (transaction.isActive()) {
+                transaction.rollback();
+            }
+
+            LOG.error("Unit of work was rolled back. " + e.getMessage(), e);
+            throw e instanceof DAOException ? (DAOException) e : new DAOException(e);
+        } finally {
+            scopes.removeFirst();
+            if (scopes.isEmpty()) {
+                SCOPES.remove();
+            }
+            manager.close();
+
+            for (Runnable callback : completionCallbacks) {
+                callback.run();
+            }
+        }
+    }
+
+}
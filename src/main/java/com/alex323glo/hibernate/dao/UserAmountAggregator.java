@@ -0,0 +1,113 @@
+package com.alex323glo.hibernate.dao;
+
+import com.alex323glo.hibernate.exception.DAOException;
+import com.alex323glo.hibernate.model.User;
+import com.alex323glo.hibernate.projection.AmountAggregate;
+import org.apache.log4j.Logger;
+import org.hibernate.annotations.QueryHints;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.TypedQuery;
+import java.util.List;
+
+/**
+ * Calculates aggregated amounts (count, sum, average, min and max) of Users
+ * grouped by City, Game or birthday month.
+ *
+ * Aggregation is done by DB (with GROUP BY query), so only one compact row
+ * per group is transferred, and no User instances are created.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see User
+ * @see AmountAggregate
+ */
+public class UserAmountAggregator {
+
+    private static final Logger LOG = Logger.getLogger(UserAmountAggregator.class);
+
+    /**
+     * Criteria of Users grouping.
+     */
+    public enum Grouping {
+        /**
+         * Users are grouped by City (Users without City are skipped).
+         */
+        CITY("c.id", "join u.city c"),
+        /**
+         * Users are grouped by Game (each User is counted once per each of their Games).
+         */
+        GAME("g.id", "join u.gameList g"),
+        /**
+         * Users are grouped by month of birthday (Users without birthday are skipped).
+         */
+        BIRTHDAY_MONTH("month(u.birthday)", "where u.birthday is not null");
+
+        private final String groupKey;
+        private final String fromClause;
+
+        Grouping(String groupKey, String fromClause) {
+            this.groupKey = groupKey;
+            this.fromClause = fromClause;
+        }
+    }
+
+    private final EntityManagerFactory factory;
+
+    public UserAmountAggregator(EntityManagerFactory factory) {
+        this.factory = factory;
+    }
+
+    public EntityManagerFactory getFactory() {
+        return factory;
+    }
+
+    /**
+     * Calculates aggregated amounts of Users, grouped by proposed criteria.
+     *
+     * @param grouping criteria of Users grouping.
+     * @return List of aggregated amounts (one per group), ordered by group key,
+     * if operation was successful.
+     * @throws DAOException if operation wasn't successful.
+     */
+    public List<AmountAggregate> aggregate(Grouping grouping) throws DAOException {
+        LOG.trace("Trying to aggregate User amounts by " + grouping + "...");
+
+        if (!factory.isOpen()) {
+            DAOException exception =
+                    new DAOException("EntityManagerFactory instance was closed before the end of operation.");
+            LOG.error(exception.getMessage(), exception);
+            throw exception;
+        }
+
+        // joins current unit of work (see UnitOfWork), if it's bound to the current thread:
+        EntityManager joinedManager = UnitOfWork.getCurrentManager(factory);
+        EntityManager manager = joinedManager == null ? factory.createEntityManager() : joinedManager;
+
+        try {
+            TypedQuery<AmountAggregate> typedQuery = manager.createQuery(
+                    "select new " + AmountAggregate.class.getName() + "(" + grouping.groupKey +
+                            ", count(u), sum(u.amount), avg(u.amount), min(u.amount), max(u.amount))" +
+                            " from User u " + grouping.fromClause +
+                            " group by " + grouping.groupKey +
+                            " order by " + grouping.groupKey,
+                    AmountAggregate.class);
+            typedQuery.setHint(QueryHints.READ_ONLY, true);
+
+            List<AmountAggregate> resultList = typedQuery.getResultList();
+
+            LOG.trace("User amounts were successfully aggregated into " + resultList.size() + " groups.");
+            return resultList;
+        } catch (Exception e) {
+            LOG.error("Can't aggregate User amounts by " + grouping + ". " + e.getMessage(), e);
+            throw new DAOException(e);
+        } finally {
+            if (joinedManager == null) {
+                manager.close();
+            }
+        }
+    }
+
+}
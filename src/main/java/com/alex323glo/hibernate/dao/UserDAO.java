@@ -0,0 +1,64 @@
+package com.alex323glo.hibernate.dao;
+
+import com.alex323glo.hibernate.exception.DAOException;
+import com.alex323glo.hibernate.model.User;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * DAO of User Entity with typed finders.
+ * Each finder is implemented with named query, declared on User, and is backed by index.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see GeneralDAO
+ * @see User
+ */
+public class UserDAO extends GeneralDAO<Integer, User> {
+
+    public UserDAO(EntityManagerFactory factory) {
+        super(factory, Integer.class, User.class);
+    }
+
+    /**
+     * @param name name of Users.
+     * @return List of Users with proposed name.
+     * @throws DAOException if operation wasn't successful.
+     */
+    public List<User> findByName(String name) throws DAOException {
+        return findBy("name", name, DAO.NO_LIMIT);
+    }
+
+    /**
+     * @param cityId unique identifier of City.
+     * @return List of Users, who live in proposed City.
+     * @throws DAOException if operation wasn't successful.
+     */
+    public List<User> findByCity(int cityId) throws DAOException {
+        return findBy("city", cityId, DAO.NO_LIMIT);
+    }
+
+    /**
+     * @param minAmount min amount (inclusive).
+     * @param maxAmount max amount (inclusive).
+     * @return List of Users with amount between proposed bounds, ordered by amount.
+     * @throws DAOException if operation wasn't successful.
+     */
+    public List<User> findByAmountBetween(double minAmount, double maxAmount) throws DAOException {
+        return findInRange("amount", minAmount, maxAmount, DAO.NO_LIMIT);
+    }
+
+    /**
+     * @param from min birthday (inclusive).
+     * @param to max birthday (inclusive).
+     * @return List of Users with birthday between proposed dates, ordered by birthday.
+     * @throws DAOException if operation wasn't successful.
+     */
+    public List<User> findByBirthdayBetween(Date from, Date to) throws DAOException {
+        return findInRange("birthday", from, to, DAO.NO_LIMIT);
+    }
+
+}
@@ -0,0 +1,910 @@
+package com.alex323glo.hibernate.dao;
+
+import com.alex323glo.hibernate.exception.DAOException;
+import org.apache.log4j.Logger;
+import org.hibernate.exception.JDBCConnectionException;
+import org.hibernate.exception.LockAcquisitionException;
+
+import javax.persistence.LockTimeoutException;
+import javax.persistence.QueryTimeoutException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Write-behind decorator of DAO: 'create', 'update' and 'delete' (and their batch versions)
+ * are buffered in memory and written to decorated DAO later, in batches, by background thread.
+ * Repeated writes of the same ID are coalesced, so only the last of them is written.
+ *
+ * Buffer is flushed, when it contains 'flushSize' writes or 'flushInterval' after the previous
+ * flush (whichever comes first), or by explicit 'flush()' call. If buffer (together with writes,
+ * which are being flushed) contains 'maxBufferSize' writes, writers are blocked until flush
+ * frees space (backpressure).
+ *
+ * Consistency:
+ *  - 'readById' and 'readByIds' see buffered writes (read-your-writes);
+ *  - queries ('getAll', 'findBy', etc.) and reads with fetch plan see only flushed state;
+ *  - 'upsert', 'patch', 'deleteWhere' and units of work flush buffer and are executed directly,
+ *    so they are ordered after all previous writes;
+ *  - results of buffered writes describe buffer: 'update' and 'delete' return previously
+ *    buffered (not flushed yet) version of instance or null, and IDs of created instances
+ *    are generated during flush;
+ *  - buffered write, which fails during flush (e.g. because of outdated version), is logged
+ *    and dropped (see 'getFailedNumber');
+ *  - buffered writes, which fail during flush because of transient failure (lost connection,
+ *    lock or query timeout), are buffered again and retried by the next flush (not earlier
+ *    than 'flushInterval' later, see 'getRetriedNumber'), unless they are left after 'close'.
+ *
+ * Instances, which were updated by flush, get committed versions, so they could be changed
+ * and updated again (by the same or the next flush).
+ *
+ * Buffered instances are shared by readers and writers, so they should be changed through
+ * 'updateWithRetry' (mutation is applied under buffer's lock and never during flush of the
+ * same instance), e.g. for counters:
+ *      dao.updateWithRetry(userId, user -> user.setAmount(user.getAmount() + 1));
+ *
+ * Decorated DAO should be GeneralDAO (or InstrumentedDAO over it), because instances, which
+ * it returns, are changed. DAO must be closed before EntityManagerFactory:
+ *      WriteBehindDAO<Integer, User> dao = new WriteBehindDAO<>(userDAO, User::getId, 10_000, 500, Duration.ofMillis(200));
+ *      ...
+ *      dao.close();        // flushes all buffered writes
+ *      factory.close();
+ *
+ * @param <ID> type of Primary Key of stored Entity.
+ * @param <V> type of stored Entity.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see DAO
+ */
+public class WriteBehindDAO<ID, V> implements DAO<ID, V>, AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(WriteBehindDAO.class);
+
+    private static final AtomicInteger INSTANCE_COUNTER = new AtomicInteger();
+
+    private final DAO<ID, V> delegate;
+    private final Function<? super V, ID> idExtractor;
+    private final int maxBufferSize;
+    private final int flushSize;
+    private final long flushIntervalNanos;
+
+    // guards buffer; flusher waits for 'flushNeeded', writers wait for 'bufferReleased':
+    private final ReentrantLock lock = new ReentrantLock();
+    private final java.util.concurrent.locks.Condition flushNeeded = lock.newCondition();
+    private final java.util.concurrent.locks.Condition bufferReleased = lock.newCondition();
+
+    // only one flush is executed at the same time, so flushes are ordered:
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private List<V> bufferedCreates = new ArrayList<>();
+    private Map<ID, V> bufferedUpdates = new LinkedHashMap<>();
+    private Set<ID> bufferedDeletes = new LinkedHashSet<>();
+
+    // writes, which are being flushed:
+    private int flushedCreatesNumber;
+    private Map<ID, V> flushedUpdates = Collections.emptyMap();
+    private Set<ID> flushedDeletes = Collections.emptySet();
+
+    // number of started flushes (instance, read from decorated DAO, is outdated, if flush was started after read):
+    private long flushesNumber;
+
+    // true, if writes of the last flush were buffered again (so the next one waits for flush interval):
+    private boolean retryDelayed;
+
+    private boolean closed;
+
+    private final LongAdder writtenNumber = new LongAdder();
+    private final LongAdder coalescedNumber = new LongAdder();
+    private final LongAdder failedNumber = new LongAdder();
+    private final LongAdder retriedNumber = new LongAdder();
+
+    private final Thread flusher;
+
+    /**
+     * @param delegate decorated DAO.
+     * @param idExtractor function, which returns unique identifier of stored instance.
+     * @param maxBufferSize max number of buffered writes (including ones, which are being flushed).
+     * @param flushSize number of buffered writes, which triggers flush (not greater than 'maxBufferSize').
+     * @param flushInterval max time between flushes.
+     */
+    public WriteBehindDAO(DAO<ID, V> delegate, Function<? super V, ID> idExtractor,
+                          int maxBufferSize, int flushSize, Duration flushInterval) {
+        if (flushSize < 1 || flushSize > maxBufferSize) {
+            throw new IllegalArgumentException("flushSize must be between 1 and maxBufferSize (" + maxBufferSize +
+                    "), but was " + flushSize);
+        }
+        if (flushInterval.isNegative() || flushInterval.isZero()) {
+            throw new IllegalArgumentException("flushInterval must be positive, but was " + flushInterval);
+        }
+
+        this.delegate = delegate;
+        this.idExtractor = idExtractor;
+        this.maxBufferSize = maxBufferSize;
+        this.flushSize = flushSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+
+        this.flusher = new Thread(this::runFlusher, "write-behind-dao-" + INSTANCE_COUNTER.incrementAndGet());
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+
+        LOG.trace("Write-behind DAO was created (max buffer size " + maxBufferSize + ", flush size " +
+                flushSize + ", flush interval " + flushInterval + ").");
+    }
+
+    public DAO<ID, V> getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * @return number of buffered writes (including ones, which are being flushed).
+     */
+    public int getPendingNumber() {
+        lock.lock();
+        try {
+            return getBufferedNumber() + getFlushedNumber();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return number of writes, which were successfully written to decorated DAO.
+     */
+    public long getWrittenNumber() {
+        return writtenNumber.sum();
+    }
+
+    /**
+     * @return number of writes, which replaced buffered writes of the same ID.
+     */
+    public long getCoalescedNumber() {
+        return coalescedNumber.sum();
+    }
+
+    /**
+     * @return number of writes, which failed during flush (and were dropped).
+     */
+    public long getFailedNumber() {
+        return failedNumber.sum();
+    }
+
+    /**
+     * @return number of writes, which failed during flush because of transient failure
+     * (and were buffered again).
+     */
+    public long getRetriedNumber() {
+        return retriedNumber.sum();
+    }
+
+    /**
+     * Flushes buffer and executes work directly with decorated DAO (work doesn't use buffer).
+     * @see DAO#inTransaction(Function)
+     */
+    @Override
+    public <R> R inTransaction(Function<? super DAO<ID, V>, R> work) throws DAOException {
+        flush();
+        return delegate.inTransaction(work);
+    }
+
+    /**
+     * Flushes buffer and executes work directly with decorated DAO (work doesn't use buffer).
+     * @see DAO#inTransaction(UnitOfWork.Propagation, Function)
+     */
+    @Override
+    public <R> R inTransaction(UnitOfWork.Propagation propagation, Function<? super DAO<ID, V>, R> work)
+            throws DAOException {
+        flush();
+        return delegate.inTransaction(propagation, work);
+    }
+
+    /**
+     * Buffers creation of instance (its ID is generated during flush).
+     * @see DAO#create(Object)
+     */
+    @Override
+    public V create(V element) throws DAOException {
+        lock.lock();
+        try {
+            awaitSpace();
+            bufferedCreates.add(element);
+            signalIfFlushNeeded();
+            return element;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns buffered instance, if it was written, but wasn't flushed yet.
+     * @see DAO#readById(Object)
+     */
+    @Override
+    public V readById(ID id) throws DAOException {
+        lock.lock();
+        try {
+            if (isPending(id)) {
+                return getPending(id);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return delegate.readById(id);
+    }
+
+    /**
+     * Reads instance directly from decorated DAO (buffered writes aren't visible).
+     * @see DAO#readById(Object, FetchPlan)
+     */
+    @Override
+    public V readById(ID id, FetchPlan fetchPlan) throws DAOException {
+        return delegate.readById(id, fetchPlan);
+    }
+
+    /**
+     * Returns buffered instances, if they were written, but weren't flushed yet,
+     * and reads other ones from decorated DAO.
+     * @see DAO#readByIds(Collection)
+     */
+    @Override
+    public List<V> readByIds(Collection<ID> ids) throws DAOException {
+        Map<ID, V> bufferedValues = new HashMap<>();
+        List<ID> missedIds = new ArrayList<>();
+        lock.lock();
+        try {
+            for (ID id : ids) {
+                if (isPending(id)) {
+                    bufferedValues.put(id, getPending(id));
+                } else {
+                    missedIds.add(id);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        Map<ID, V> loadedValues = new HashMap<>();
+        if (!missedIds.isEmpty()) {
+            List<V> loadedList = delegate.readByIds(missedIds);
+            for (int i = 0; i < missedIds.size(); i++) {
+                loadedValues.put(missedIds.get(i), loadedList.get(i));
+            }
+        }
+
+        List<V> searchedValues = new ArrayList<>(ids.size());
+        for (ID id : ids) {
+            searchedValues.add(bufferedValues.containsKey(id) ? bufferedValues.get(id) : loadedValues.get(id));
+        }
+        return searchedValues;
+    }
+
+    /**
+     * Buffers update of instance, replacing buffered write of the same ID.
+     *
+     * @return previously buffered version of instance, or null, if there was no such one.
+     * @see DAO#update(Object, Object)
+     */
+    @Override
+    public V update(ID id, V element) throws DAOException {
+        lock.lock();
+        try {
+            return bufferUpdate(id, element);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Mutation is applied to buffered instance (or instance, read from decorated DAO) under
+     * buffer's lock, so mutations of the same instance are coalesced. Retry policy isn't used:
+     * concurrent modification is detected during flush (then update is dropped).
+     *
+     * @see DAO#updateWithRetry(Object, Consumer)
+     */
+    @Override
+    public V updateWithRetry(ID id, Consumer<? super V> mutation) throws DAOException {
+        return updateWithRetry(id, mutation, RetryPolicy.NO_RETRY);
+    }
+
+    /**
+     * Mutation is applied to buffered instance (or instance, read from decorated DAO) under
+     * buffer's lock, so mutations of the same instance are coalesced. Retry policy isn't used:
+     * concurrent modification is detected during flush (then update is dropped).
+     *
+     * @see DAO#updateWithRetry(Object, Consumer, RetryPolicy)
+     */
+    @Override
+    public V updateWithRetry(ID id, Consumer<? super V> mutation, RetryPolicy retryPolicy) throws DAOException {
+        V loadedValue = null;
+        long loadedFlushesNumber = 0;
+        while (true) {
+            long currentFlushesNumber;
+            lock.lock();
+            try {
+                awaitSlotFor(id);
+                V value;
+                if (isBuffered(id)) {
+                    value = bufferedUpdates.get(id);
+                    if (value == null) {
+                        // removal of instance is buffered:
+                        return null;
+                    }
+                } else if (loadedValue != null && loadedFlushesNumber == flushesNumber) {
+                    value = loadedValue;
+                } else {
+                    // instance wasn't read yet or could be flushed after read:
+                    value = null;
+                }
+
+                if (value != null) {
+                    // lock wasn't released since 'awaitSlotFor', so update is buffered without waiting:
+                    mutation.accept(value);
+                    bufferUpdate(id, value);
+                    return value;
+                }
+                currentFlushesNumber = flushesNumber;
+            } finally {
+                lock.unlock();
+            }
+
+            // instance isn't buffered, so it's read without lock (and buffer is checked again):
+            loadedFlushesNumber = currentFlushesNumber;
+            loadedValue = delegate.readById(id);
+            if (loadedValue == null) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Flushes buffer and writes instance directly.
+     * @see DAO#upsert(Object)
+     */
+    @Override
+    public V upsert(V element) throws DAOException {
+        flush();
+        return delegate.upsert(element);
+    }
+
+    /**
+     * Flushes buffer and patches instance directly.
+     * @see DAO#patch(Object, Map)
+     */
+    @Override
+    public int patch(ID id, Map<String, Object> changes) throws DAOException {
+        flush();
+        return delegate.patch(id, changes);
+    }
+
+    /**
+     * Buffers removal of instance, replacing buffered write of the same ID.
+     *
+     * @return previously buffered version of instance, or null, if there was no such one.
+     * @see DAO#delete(Object)
+     */
+    @Override
+    public V delete(ID id) throws DAOException {
+        lock.lock();
+        try {
+            return bufferDelete(id);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Buffers removal of instances (they are removed by bulk DELETE statements during flush).
+     *
+     * @return number of buffered removals.
+     * @see DAO#deleteAll(Collection)
+     */
+    @Override
+    public int deleteAll(Collection<ID> ids) throws DAOException {
+        lock.lock();
+        try {
+            for (ID id : ids) {
+                bufferDelete(id);
+            }
+            return ids.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Flushes buffer and removes instances directly.
+     * @see DAO#deleteWhere(Condition)
+     */
+    @Override
+    public int deleteWhere(Condition<V> condition) throws DAOException {
+        flush();
+        return delegate.deleteWhere(condition);
+    }
+
+    @Override
+    public List<V> getAll(int maxResultsNumber) throws DAOException {
+        return delegate.getAll(maxResultsNumber);
+    }
+
+    @Override
+    public List<V> getAll(int maxResultsNumber, FetchPlan fetchPlan) throws DAOException {
+        return delegate.getAll(maxResultsNumber, fetchPlan);
+    }
+
+    @Override
+    public <P> List<P> getAll(Class<P> projectionClass, int maxResultsNumber) throws DAOException {
+        return delegate.getAll(projectionClass, maxResultsNumber);
+    }
+
+    @Override
+    public List<V> findBy(String attributeName, Object value, int maxResultsNumber) throws DAOException {
+        return delegate.findBy(attributeName, value, maxResultsNumber);
+    }
+
+    @Override
+    public List<V> findInRange(String attributeName, Object lowerBound, Object upperBound,
+                               int maxResultsNumber) throws DAOException {
+        return delegate.findInRange(attributeName, lowerBound, upperBound, maxResultsNumber);
+    }
+
+    @Override
+    public Page<ID, V> getPage(ID afterId, int pageSize) throws DAOException {
+        return delegate.getPage(afterId, pageSize);
+    }
+
+    /**
+     * Buffers creation of instances (writer is blocked, while buffer is full).
+     *
+     * @return number of buffered instances.
+     * @see DAO#createAll(Collection)
+     */
+    @Override
+    public int createAll(Collection<V> elements) throws DAOException {
+        lock.lock();
+        try {
+            for (V element : elements) {
+                awaitSpace();
+                bufferedCreates.add(element);
+                signalIfFlushNeeded();
+            }
+            return elements.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Buffers update of instances (writer is blocked, while buffer is full).
+     *
+     * @return number of buffered instances.
+     * @see DAO#updateAll(Collection)
+     */
+    @Override
+    public int updateAll(Collection<V> elements) throws DAOException {
+        lock.lock();
+        try {
+            for (V element : elements) {
+                bufferUpdate(idExtractor.apply(element), element);
+            }
+            return elements.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long streamAll(Consumer<? super V> consumer) throws DAOException {
+        return delegate.streamAll(consumer);
+    }
+
+    @Override
+    public Stream<V> streamAll() throws DAOException {
+        return delegate.streamAll();
+    }
+
+    /**
+     * Writes all buffered writes to decorated DAO (creations, then updates, then removals),
+     * in batches. Returns, when all of them are written (or buffered again because of
+     * transient failure).
+     *
+     * @return number of successfully written instances.
+     */
+    public int flush() {
+        flushLock.lock();
+        try {
+            List<V> creates;
+            Map<ID, V> updates;
+            Set<ID> deletes;
+
+            lock.lock();
+            try {
+                if (getBufferedNumber() == 0) {
+                    return 0;
+                }
+
+                creates = bufferedCreates;
+                updates = bufferedUpdates;
+                deletes = bufferedDeletes;
+                bufferedCreates = new ArrayList<>();
+                bufferedUpdates = new LinkedHashMap<>();
+                bufferedDeletes = new LinkedHashSet<>();
+
+                flushedCreatesNumber = creates.size();
+                flushedUpdates = updates;
+                flushedDeletes = deletes;
+                flushesNumber++;
+                retryDelayed = false;
+            } finally {
+                lock.unlock();
+            }
+
+            LOG.trace("Flushing " + creates.size() + " creations, " + updates.size() + " updates and " +
+                    deletes.size() + " removals...");
+            List<V> retriedCreates = new ArrayList<>();
+            List<V> retriedUpdates = new ArrayList<>();
+            List<ID> retriedDeletes = new ArrayList<>();
+            try {
+                int flushedNumber = 0;
+                if (!creates.isEmpty()) {
+                    flushedNumber += write("create", creates, DAO::createAll, retriedCreates);
+                }
+                if (!updates.isEmpty()) {
+                    flushedNumber += write("update", new ArrayList<>(updates.values()), DAO::updateAll,
+                            retriedUpdates);
+                }
+                if (!deletes.isEmpty()) {
+                    flushedNumber += write("delete", new ArrayList<>(deletes), (dao, deletedIds) -> {
+                        dao.deleteAll(deletedIds);
+                        return deletedIds.size();
+                    }, retriedDeletes);
+                }
+                return flushedNumber;
+            } finally {
+                lock.lock();
+                try {
+                    rebuffer(retriedCreates, retriedUpdates, retriedDeletes);
+                    flushedCreatesNumber = 0;
+                    flushedUpdates = Collections.emptyMap();
+                    flushedDeletes = Collections.emptySet();
+                    bufferReleased.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Stops accepting of writes, flushes all buffered ones and stops background thread.
+     * Should be called before closing of EntityManagerFactory.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            flushNeeded.signalAll();
+            bufferReleased.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        dropLeftWrites();
+
+        LOG.trace("Write-behind DAO was closed (" + getWrittenNumber() + " writes, " + getCoalescedNumber() +
+                " coalesced, " + getRetriedNumber() + " retried, " + getFailedNumber() + " failed).");
+    }
+
+    /**
+     * Loop of background thread: waits for flush size or flush interval and flushes buffer.
+     */
+    private void runFlusher() {
+        while (true) {
+            lock.lock();
+            try {
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                long remainingNanos = flushIntervalNanos;
+                while (!closed && (getBufferedNumber() < flushSize || retryDelayed) && remainingNanos > 0) {
+                    flushNeeded.awaitNanos(remainingNanos);
+                    remainingNanos = deadline - System.nanoTime();
+                }
+                if (closed) {
+                    // the rest is flushed by 'close':
+                    return;
+                }
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                flush();
+            } catch (RuntimeException e) {
+                LOG.error("Can't flush buffered writes. " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Writes proposed instances with batch operation in one unit of work. If batch fails, nothing
+     * of it is committed (and decorated DAO doesn't change proposed instances: new ones get back
+     * their unsaved identifiers). If failure is transient, the whole batch is retried later,
+     * otherwise instances are written again one by one, and only failed ones are dropped.
+     *
+     * @param operationName name of operation (for logs).
+     * @param elements written instances (or IDs).
+     * @param batchWriter batch operation of decorated DAO.
+     * @param retriedElements list, which collects elements, which should be buffered again.
+     * @param <T> type of written elements.
+     * @return number of successfully written elements.
+     */
+    private <T> int write(String operationName, List<T> elements,
+                          BiFunction<DAO<ID, V>, List<T>, Integer> batchWriter, List<T> retriedElements) {
+        try {
+            int batchWrittenNumber = delegate.inTransaction(UnitOfWork.Propagation.REQUIRES_NEW,
+                    dao -> batchWriter.apply(dao, elements));
+            writtenNumber.add(batchWrittenNumber);
+            return batchWrittenNumber;
+        } catch (DAOException e) {
+            if (isTransientFailure(e)) {
+                retriedElements.addAll(elements);
+                retriedNumber.add(elements.size());
+                LOG.warn(elements.size() + " buffered writes (" + operationName +
+                        ") failed because of transient failure and will be retried. " + e.getMessage());
+                return 0;
+            }
+            if (elements.size() == 1) {
+                failedNumber.increment();
+                LOG.error("Buffered " + operationName + " failed and was dropped. " + e.getMessage(), e);
+                return 0;
+            }
+
+            LOG.error("Batch of " + elements.size() + " buffered writes (" + operationName +
+                    ") failed. Writing them one by one...", e);
+            int elementsWrittenNumber = 0;
+            for (T element : elements) {
+                elementsWrittenNumber += write(operationName, Collections.singletonList(element), batchWriter,
+                        retriedElements);
+            }
+            return elementsWrittenNumber;
+        }
+    }
+
+    /**
+     * Buffers again writes, which failed because of transient failure, before the ones, which
+     * were buffered during flush. Writers of flushed IDs are blocked till the end of flush,
+     * so retried writes aren't newer than buffered ones of the same ID, and the latter win
+     * (lock must be held).
+     */
+    private void rebuffer(List<V> retriedCreates, List<V> retriedUpdates, List<ID> retriedDeletes) {
+        if (retriedCreates.isEmpty() && retriedUpdates.isEmpty() && retriedDeletes.isEmpty()) {
+            return;
+        }
+
+        bufferedCreates.addAll(0, retriedCreates);
+
+        Map<ID, V> updates = new LinkedHashMap<>();
+        for (V element : retriedUpdates) {
+            ID id = idExtractor.apply(element);
+            if (!isBuffered(id)) {
+                updates.put(id, element);
+            }
+        }
+        updates.putAll(bufferedUpdates);
+        bufferedUpdates = updates;
+
+        Set<ID> deletes = new LinkedHashSet<>();
+        for (ID id : retriedDeletes) {
+            if (!isBuffered(id)) {
+                deletes.add(id);
+            }
+        }
+        deletes.addAll(bufferedDeletes);
+        bufferedDeletes = deletes;
+
+        retryDelayed = true;
+    }
+
+    /**
+     * Drops writes, which are left in buffer after the last flush (because of transient
+     * failure), and counts them as failed.
+     */
+    private void dropLeftWrites() {
+        lock.lock();
+        try {
+            int leftNumber = getBufferedNumber();
+            if (leftNumber > 0) {
+                failedNumber.add(leftNumber);
+                LOG.error(leftNumber + " buffered writes weren't written before close and were dropped.");
+                bufferedCreates.clear();
+                bufferedUpdates.clear();
+                bufferedDeletes.clear();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @param e exception of failed write.
+     * @return true, if write failed because of transient failure (lost connection, lock or query
+     * timeout), so it could succeed later.
+     */
+    private static boolean isTransientFailure(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLTransientException || cause instanceof SQLRecoverableException ||
+                    cause instanceof JDBCConnectionException || cause instanceof LockAcquisitionException ||
+                    cause instanceof LockTimeoutException || cause instanceof QueryTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Buffers update of instance (lock must be held).
+     *
+     * @return previously buffered version of instance, or null.
+     */
+    private V bufferUpdate(ID id, V element) {
+        awaitSlotFor(id);
+        if (isBuffered(id)) {
+            coalescedNumber.increment();
+        }
+
+        bufferedDeletes.remove(id);
+        V previousValue = bufferedUpdates.put(id, element);
+        signalIfFlushNeeded();
+        return previousValue;
+    }
+
+    /**
+     * Buffers removal of instance (lock must be held).
+     *
+     * @return previously buffered version of instance, or null.
+     */
+    private V bufferDelete(ID id) {
+        awaitSlotFor(id);
+        if (isBuffered(id)) {
+            coalescedNumber.increment();
+        }
+
+        V previousValue = bufferedUpdates.remove(id);
+        bufferedDeletes.add(id);
+        signalIfFlushNeeded();
+        return previousValue;
+    }
+
+    /**
+     * @return true, if buffer contains write of proposed ID, which waits for flush (lock must be held).
+     */
+    private boolean isBuffered(ID id) {
+        return bufferedUpdates.containsKey(id) || bufferedDeletes.contains(id);
+    }
+
+    /**
+     * @return true, if write of proposed ID is being flushed (lock must be held).
+     */
+    private boolean isFlushed(ID id) {
+        return flushedUpdates.containsKey(id) || flushedDeletes.contains(id);
+    }
+
+    /**
+     * @return true, if write of proposed ID waits for flush or is being flushed (lock must be held).
+     */
+    private boolean isPending(ID id) {
+        return isBuffered(id) || isFlushed(id);
+    }
+
+    /**
+     * @return the latest pending version of instance, or null, if its removal is pending (lock must be held).
+     */
+    private V getPending(ID id) {
+        return isBuffered(id) ? bufferedUpdates.get(id) : flushedUpdates.get(id);
+    }
+
+    /**
+     * @return number of writes, which wait for flush (lock must be held).
+     */
+    private int getBufferedNumber() {
+        return bufferedCreates.size() + bufferedUpdates.size() + bufferedDeletes.size();
+    }
+
+    /**
+     * @return number of writes, which are being flushed (lock must be held).
+     */
+    private int getFlushedNumber() {
+        return flushedCreatesNumber + flushedUpdates.size() + flushedDeletes.size();
+    }
+
+    /**
+     * Blocks writer, while buffer is full (lock must be held).
+     *
+     * @throws DAOException if DAO is closed or writer was interrupted.
+     */
+    private void awaitSpace() throws DAOException {
+        checkIfClosed();
+        while (isFull()) {
+            flushNeeded.signal();
+            awaitBufferRelease();
+        }
+    }
+
+    /**
+     * Blocks writer of proposed ID, while its previous write is being flushed (so instance is
+     * neither changed during flush, nor overwritten by older version), or while buffer is full
+     * and write of this ID can't be coalesced with buffered one (lock must be held).
+     *
+     * @throws DAOException if DAO is closed or writer was interrupted.
+     */
+    private void awaitSlotFor(ID id) throws DAOException {
+        checkIfClosed();
+        while (isFlushed(id) || (!isBuffered(id) && isFull())) {
+            if (isFull()) {
+                flushNeeded.signal();
+            }
+            awaitBufferRelease();
+        }
+    }
+
+    /**
+     * @return true, if buffer (together with writes, which are being flushed) is full (lock must be held).
+     */
+    private boolean isFull() {
+        return getBufferedNumber() + getFlushedNumber() >= maxBufferSize;
+    }
+
+    private void awaitBufferRelease() throws DAOException {
+        try {
+            bufferReleased.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DAOException("Buffered write was interrupted.", e);
+        }
+        checkIfClosed();
+    }
+
+    private void signalIfFlushNeeded() {
+        if (getBufferedNumber() >= flushSize) {
+            flushNeeded.signal();
+        }
+    }
+
+    private void checkIfClosed() throws DAOException {
+        if (closed) {
+            DAOException exception = new DAOException("Write-behind DAO is closed.");
+            LOG.error(exception.getMessage(), exception);
+            throw exception;
+        }
+    }
+
+}
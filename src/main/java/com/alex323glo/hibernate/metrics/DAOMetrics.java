@@ -0,0 +1,138 @@
+package com.alex323glo.hibernate.metrics;
+
+import org.hibernate.stat.Statistics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Metrics of all operations of one DAO (usually of one Entity class): counts, error counts
+ * and latency histograms per operation, together with Hibernate statistics of persistence unit.
+ *
+ * Metrics are available through pull-style snapshot API ('getOperations', 'getStatistics')
+ * and through JMX, after 'registerMBean' call (ObjectName
+ * 'com.alex323glo.hibernate:type=DAOMetrics,name=[name]').
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see OperationMetrics
+ * @see com.alex323glo.hibernate.dao.InstrumentedDAO
+ */
+public class DAOMetrics implements DAOMetricsMXBean {
+
+    private static final String OBJECT_NAME_PREFIX = "com.alex323glo.hibernate:type=DAOMetrics,name=";
+
+    private final String name;
+    private final Statistics statistics;
+    private final ConcurrentMap<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+
+    private volatile boolean enabled = true;
+
+    /**
+     * @param name name of metrics (usually name of Entity class).
+     * @param statistics Hibernate statistics of persistence unit (could be null).
+     */
+    public DAOMetrics(String name, Statistics statistics) {
+        this.name = name;
+        this.statistics = statistics;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param enabled false, if DAO operations shouldn't be measured (recorded values stay).
+     */
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @param operationName name of operation.
+     * @return metrics of proposed operation (created at the first call).
+     */
+    public OperationMetrics operation(String operationName) {
+        return operations.computeIfAbsent(operationName, OperationMetrics::new);
+    }
+
+    @Override
+    public Map<String, OperationSnapshot> getOperations() {
+        Map<String, OperationSnapshot> snapshots = new TreeMap<>();
+        for (OperationMetrics operationMetrics : operations.values()) {
+            snapshots.put(operationMetrics.getName(), operationMetrics.snapshot());
+        }
+        return snapshots;
+    }
+
+    @Override
+    public StatisticsSnapshot getStatistics() {
+        return statistics == null ? null : StatisticsSnapshot.of(statistics);
+    }
+
+    @Override
+    public void reset() {
+        operations.values().forEach(OperationMetrics::reset);
+    }
+
+    /**
+     * Registers these metrics in platform MBeanServer.
+     *
+     * @throws IllegalStateException if metrics with the same name are already registered.
+     */
+    public void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, getObjectName());
+        } catch (JMException e) {
+            throw new IllegalStateException("Can't register metrics " + name + " in MBeanServer.", e);
+        }
+    }
+
+    /**
+     * Removes these metrics from platform MBeanServer, if they were registered.
+     */
+    public void unregisterMBean() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName objectName = getObjectName();
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Can't unregister metrics " + name + " from MBeanServer.", e);
+        }
+    }
+
+    /**
+     * @return ObjectName of these metrics in MBeanServer.
+     */
+    private ObjectName getObjectName() throws JMException {
+        return new ObjectName(OBJECT_NAME_PREFIX + ObjectName.quote(name));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("DAOMetrics{").append(name);
+        for (OperationSnapshot snapshot : getOperations().values()) {
+            // operations, which weren't called, are skipped:
+            if (snapshot.getCount() > 0) {
+                builder.append("\n    ").append(snapshot);
+            }
+        }
+        return builder.append("\n    ").append(getStatistics()).append("\n}").toString();
+    }
+
+}
@@ -0,0 +1,37 @@
+package com.alex323glo.hibernate.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX interface of DAO metrics.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see DAOMetrics
+ */
+public interface DAOMetricsMXBean {
+
+    /**
+     * @return true, if DAO operations are measured.
+     */
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    /**
+     * @return snapshots of all measured operations, mapped by operations' names.
+     */
+    Map<String, OperationSnapshot> getOperations();
+
+    /**
+     * @return snapshot of Hibernate statistics of persistence unit, or null, if it's unknown.
+     */
+    StatisticsSnapshot getStatistics();
+
+    /**
+     * Removes all recorded executions of operations.
+     */
+    void reset();
+
+}
@@ -0,0 +1,81 @@
+package com.alex323glo.hibernate.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histogram of one DAO operation.
+ *
+ * Recording is lock-free (LongAdder counters and HdrHistogram Recorder), so it could be
+ * called by any number of threads concurrently. Snapshots move recorded latencies into
+ * accumulated histogram, so they are synchronized only with each other.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see OperationSnapshot
+ */
+public class OperationMetrics {
+
+    // latencies are recorded in nanoseconds with 3 significant digits (auto-resized histogram):
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final String name;
+
+    private final LongAdder errorNumber = new LongAdder();
+    private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+
+    // guarded by 'this':
+    private final Histogram accumulatedHistogram = new Histogram(SIGNIFICANT_DIGITS);
+    private Histogram intervalHistogram;
+
+    public OperationMetrics(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Records one execution of operation.
+     *
+     * @param latencyNanos time of execution (in nanoseconds).
+     * @param isFailed true, if operation threw exception.
+     */
+    public void record(long latencyNanos, boolean isFailed) {
+        recorder.recordValue(Math.max(latencyNanos, 0));
+        if (isFailed) {
+            errorNumber.increment();
+        }
+    }
+
+    /**
+     * @return counters and latency percentiles of all executions, recorded since creation
+     * (or the last reset).
+     */
+    public synchronized OperationSnapshot snapshot() {
+        accumulate();
+        return new OperationSnapshot(name, accumulatedHistogram, errorNumber.sum());
+    }
+
+    /**
+     * Removes all recorded executions.
+     */
+    public synchronized void reset() {
+        accumulate();
+        accumulatedHistogram.reset();
+        errorNumber.reset();
+    }
+
+    /**
+     * Moves latencies, recorded since the last call, into accumulated histogram.
+     */
+    private void accumulate() {
+        intervalHistogram = recorder.getIntervalHistogram(intervalHistogram);
+        accumulatedHistogram.add(intervalHistogram);
+    }
+
+}
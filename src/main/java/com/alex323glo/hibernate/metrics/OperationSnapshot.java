@@ -0,0 +1,110 @@
+package com.alex323glo.hibernate.metrics;
+
+import org.HdrHistogram.Histogram;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Immutable snapshot of counters and latency percentiles of one DAO operation.
+ * Latencies are measured in microseconds.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see OperationMetrics
+ */
+public class OperationSnapshot {
+
+    private static final double NANOS_PER_MICRO = 1000.0;
+
+    private final String name;
+    private final long count;
+    private final long errorCount;
+    private final double meanMicros;
+    private final double p50Micros;
+    private final double p90Micros;
+    private final double p99Micros;
+    private final double p999Micros;
+    private final double maxMicros;
+
+    @ConstructorProperties({"name", "count", "errorCount", "meanMicros",
+            "p50Micros", "p90Micros", "p99Micros", "p999Micros", "maxMicros"})
+    public OperationSnapshot(String name, long count, long errorCount, double meanMicros,
+                             double p50Micros, double p90Micros, double p99Micros, double p999Micros,
+                             double maxMicros) {
+        this.name = name;
+        this.count = count;
+        this.errorCount = errorCount;
+        this.meanMicros = meanMicros;
+        this.p50Micros = p50Micros;
+        this.p90Micros = p90Micros;
+        this.p99Micros = p99Micros;
+        this.p999Micros = p999Micros;
+        this.maxMicros = maxMicros;
+    }
+
+    /**
+     * @param name name of operation.
+     * @param histogram latencies of operation (in nanoseconds).
+     * @param errorCount number of failed executions.
+     */
+    OperationSnapshot(String name, Histogram histogram, long errorCount) {
+        this(name, histogram.getTotalCount(), errorCount,
+                histogram.getMean() / NANOS_PER_MICRO,
+                histogram.getValueAtPercentile(50) / NANOS_PER_MICRO,
+                histogram.getValueAtPercentile(90) / NANOS_PER_MICRO,
+                histogram.getValueAtPercentile(99) / NANOS_PER_MICRO,
+                histogram.getValueAtPercentile(99.9) / NANOS_PER_MICRO,
+                histogram.getMaxValue() / NANOS_PER_MICRO);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return number of executions (including failed ones).
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return number of failed executions.
+     */
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    public double getMeanMicros() {
+        return meanMicros;
+    }
+
+    public double getP50Micros() {
+        return p50Micros;
+    }
+
+    public double getP90Micros() {
+        return p90Micros;
+    }
+
+    public double getP99Micros() {
+        return p99Micros;
+    }
+
+    public double getP999Micros() {
+        return p999Micros;
+    }
+
+    public double getMaxMicros() {
+        return maxMicros;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s{count=%d, errors=%d, mean=%.1fus, p50=%.1fus, p90=%.1fus, p99=%.1fus, " +
+                        "p99.9=%.1fus, max=%.1fus}",
+                name, count, errorCount, meanMicros, p50Micros, p90Micros, p99Micros, p999Micros, maxMicros);
+    }
+
+}
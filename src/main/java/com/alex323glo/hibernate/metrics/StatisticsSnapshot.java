@@ -0,0 +1,133 @@
+package com.alex323glo.hibernate.metrics;
+
+import org.hibernate.stat.Statistics;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Immutable snapshot of Hibernate statistics of the whole persistence unit
+ * (statements, entity loads, flushes, second-level and query cache hits/misses).
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see Statistics
+ */
+public class StatisticsSnapshot {
+
+    private final long prepareStatementCount;
+    private final long entityLoadCount;
+    private final long entityFetchCount;
+    private final long collectionFetchCount;
+    private final long queryExecutionCount;
+    private final long flushCount;
+    private final long transactionCount;
+    private final long secondLevelCacheHitCount;
+    private final long secondLevelCacheMissCount;
+    private final long queryCacheHitCount;
+    private final long queryCacheMissCount;
+
+    @ConstructorProperties({"prepareStatementCount", "entityLoadCount", "entityFetchCount",
+            "collectionFetchCount", "queryExecutionCount", "flushCount", "transactionCount",
+            "secondLevelCacheHitCount", "secondLevelCacheMissCount", "queryCacheHitCount", "queryCacheMissCount"})
+    public StatisticsSnapshot(long prepareStatementCount, long entityLoadCount, long entityFetchCount,
+                              long collectionFetchCount, long queryExecutionCount, long flushCount,
+                              long transactionCount, long secondLevelCacheHitCount, long secondLevelCacheMissCount,
+                              long queryCacheHitCount, long queryCacheMissCount) {
+        this.prepareStatementCount = prepareStatementCount;
+        this.entityLoadCount = entityLoadCount;
+        this.entityFetchCount = entityFetchCount;
+        this.collectionFetchCount = collectionFetchCount;
+        this.queryExecutionCount = queryExecutionCount;
+        this.flushCount = flushCount;
+        this.transactionCount = transactionCount;
+        this.secondLevelCacheHitCount = secondLevelCacheHitCount;
+        this.secondLevelCacheMissCount = secondLevelCacheMissCount;
+        this.queryCacheHitCount = queryCacheHitCount;
+        this.queryCacheMissCount = queryCacheMissCount;
+    }
+
+    /**
+     * @param statistics Hibernate statistics (must be enabled, see 'hibernate.generate_statistics').
+     * @return current values of Hibernate statistics.
+     */
+    public static StatisticsSnapshot of(Statistics statistics) {
+        return new StatisticsSnapshot(
+                statistics.getPrepareStatementCount(),
+                statistics.getEntityLoadCount(),
+                statistics.getEntityFetchCount(),
+                statistics.getCollectionFetchCount(),
+                statistics.getQueryExecutionCount(),
+                statistics.getFlushCount(),
+                statistics.getTransactionCount(),
+                statistics.getSecondLevelCacheHitCount(),
+                statistics.getSecondLevelCacheMissCount(),
+                statistics.getQueryCacheHitCount(),
+                statistics.getQueryCacheMissCount());
+    }
+
+    /**
+     * @return number of JDBC statements, which were prepared.
+     */
+    public long getPrepareStatementCount() {
+        return prepareStatementCount;
+    }
+
+    public long getEntityLoadCount() {
+        return entityLoadCount;
+    }
+
+    public long getEntityFetchCount() {
+        return entityFetchCount;
+    }
+
+    public long getCollectionFetchCount() {
+        return collectionFetchCount;
+    }
+
+    public long getQueryExecutionCount() {
+        return queryExecutionCount;
+    }
+
+    public long getFlushCount() {
+        return flushCount;
+    }
+
+    public long getTransactionCount() {
+        return transactionCount;
+    }
+
+    public long getSecondLevelCacheHitCount() {
+        return secondLevelCacheHitCount;
+    }
+
+    public long getSecondLevelCacheMissCount() {
+        return secondLevelCacheMissCount;
+    }
+
+    public long getQueryCacheHitCount() {
+        return queryCacheHitCount;
+    }
+
+    public long getQueryCacheMissCount() {
+        return queryCacheMissCount;
+    }
+
+    @Override
+    public String toString() {
+        return "StatisticsSnapshot{" +
+                "statements=" + prepareStatementCount +
+                ", entityLoads=" + entityLoadCount +
+                ", entityFetches=" + entityFetchCount +
+                ", collectionFetches=" + collectionFetchCount +
+                ", queries=" + queryExecutionCount +
+                ", flushes=" + flushCount +
+                ", transactions=" + transactionCount +
+                ", cacheHits=" + secondLevelCacheHitCount +
+                ", cacheMisses=" + secondLevelCacheMissCount +
+                ", queryCacheHits=" + queryCacheHitCount +
+                ", queryCacheMisses=" + queryCacheMissCount +
+                '}';
+    }
+
+}
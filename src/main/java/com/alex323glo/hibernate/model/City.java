@@ -1,25 +1,48 @@
 package com.alex323glo.hibernate.model;
 
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
+
 import javax.persistence.*;
 import java.util.List;
 
 /**
  * City POJO model, annotated with JPA.
  *
+ * City is read-mostly reference data, so it is stored in second-level cache.
+ * Uninitialized City proxies (see User#getCity()) are loaded in batches of 100.
+ *
  * @author alex323glo
  * @version 1.0
  *
  * @see IDEntity
  */
 @Entity
-@Table(name = "cities")
+@Table(name = "cities", indexes = @Index(name = "idx_cities_name", columnList = "name"))
+@NamedQuery(name = "City.findByName", query = "select e from City e where e.name = :value")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@BatchSize(size = 100)
+@NamedEntityGraph(name = City.GRAPH_WITH_USERS, attributeNodes = @NamedAttributeNode("userList"))
 public class City extends IDEntity {
 
+    /**
+     * Name of entity graph, which loads City with its Users.
+     */
+    public static final String GRAPH_WITH_USERS = "City.withUsers";
+
     @Column(nullable = false)
     private String name;
 
     // mappedBy = fieldName, describe reference between column join configurations
+    // userList of all Cities, loaded by the same query, is initialized with one subselect query.
+    // It isn't stored in second-level cache: it's inverse side of User#getCity(), so cached list
+    // wouldn't be invalidated by changes of Users (and User itself isn't cached).
     @OneToMany(mappedBy = "city", fetch = FetchType.LAZY)
+    @Fetch(FetchMode.SUBSELECT)
     private List<User> userList;
 
     public City() {
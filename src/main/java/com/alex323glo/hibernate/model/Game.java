@@ -1,33 +1,54 @@
 package com.alex323glo.hibernate.model;
 
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Game POJO model, annotated with JPA.
  *
+ * Games are rarely changed, so they are cached (see ehcache.xml for region settings).
+ *
  * @author alex323glo
  * @version 1.0
  *
  * @see IDEntity
  */
 @Entity
-@Table(name = "games")
+@Table(name = "games", indexes = @Index(name = "idx_games_name", columnList = "name"))
+@NamedQuery(name = "Game.findByName", query = "select e from Game e where e.name = :value")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@BatchSize(size = 100)
+@NamedEntityGraph(name = Game.GRAPH_WITH_USERS, attributeNodes = @NamedAttributeNode("userList"))
 public class Game extends IDEntity {
 
+    /**
+     * Name of entity graph, which loads Game with its Users.
+     */
+    public static final String GRAPH_WITH_USERS = "Game.withUsers";
+
     @Column(nullable = false)
     private String name;
 
-    @ManyToMany
+    // inverse side of relation, which is stored in 'user_games' join table, owned by User.
+    // Popular Game has a lot of Users, and IDEntity#hashCode() is the same for all of them,
+    // so they are kept in List (bag), not in hash-based Set.
+    @ManyToMany(mappedBy = "gameList")
+    @BatchSize(size = 50)
     private List<User> userList;
 
     public Game() {
+        userList = new ArrayList<>();
     }
 
-
-
     public Game(String name) {
         this.name = name;
+        userList = new ArrayList<>();
     }
 
     public Game(String name, List<User> userList) {
@@ -43,6 +64,12 @@ public class Game extends IDEntity {
         this.name = name;
     }
 
+    /**
+     * WARNING! This is inverse side of relation, so its changes aren't stored.
+     * Use User#addGame(Game) and User#removeGame(Game) instead.
+     *
+     * @return Users of this Game.
+     */
     public List<User> getUserList() {
         return userList;
     }
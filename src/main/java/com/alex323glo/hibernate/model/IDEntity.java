@@ -1,21 +1,36 @@
 package com.alex323glo.hibernate.model;
 
+import com.alex323glo.hibernate.id.PooledLoSequenceGenerator;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.proxy.HibernateProxyHelper;
+
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
 import javax.persistence.MappedSuperclass;
+import javax.persistence.Version;
 
 /**
  * POJO ID Entity class, which is mapped as superclass.
  *
+ * IDs are generated by per-Entity sequences with pooled-lo optimization.
+ * Version is incremented by every update, so update of outdated instance (which was
+ * modified concurrently after it had been read) fails with OptimisticLockException.
+ *
  * @author alex323glo
  * @version 1.0
+ *
+ * @see PooledLoSequenceGenerator
  */
 @MappedSuperclass
 public abstract class IDEntity {
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = "pooled-lo-sequence")
+    @GenericGenerator(name = "pooled-lo-sequence", strategy = "com.alex323glo.hibernate.id.PooledLoSequenceGenerator")
     private int id;
 
+    @Version
+    private long version;
+
     public IDEntity() {
     }
 
@@ -27,19 +42,39 @@ public abstract class IDEntity {
         this.id = id;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    /**
+     * Instances are equal, if they have the same Entity class (Hibernate proxies are
+     * compared by class of proxied Entity) and the same generated ID. Instances without
+     * ID (not saved yet) are equal only to themselves.
+     */
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
+        if (o == null || HibernateProxyHelper.getClassWithoutInitializingProxy(this) !=
+                HibernateProxyHelper.getClassWithoutInitializingProxy(o)) return false;
 
         IDEntity idEntity = (IDEntity) o;
 
-        return id == idEntity.id;
+        return getId() != 0 && getId() == idEntity.getId();
     }
 
+    /**
+     * Hash code doesn't depend on ID, so it doesn't change, when ID is generated
+     * (while instance is already contained by some Set). All instances of the same Entity
+     * have the same hash code, so hash-based collections of them are searched linearly:
+     * large collections of Entities (e.g. Game#getUserList()) should be Lists.
+     */
     @Override
     public int hashCode() {
-        return id;
+        return HibernateProxyHelper.getClassWithoutInitializingProxy(this).hashCode();
     }
 
 }
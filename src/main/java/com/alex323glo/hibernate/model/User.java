@@ -1,22 +1,65 @@
 package com.alex323glo.hibernate.model;
 
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
+
 import javax.persistence.*;
-import java.util.ArrayList;
 import java.util.Date;
-import java.util.List;
+import java.util.HashSet;
+import java.util.Set;
 
 /**
  * User POJO model, annotated with JPA.
  *
+ * UPDATE statements for User include only changed columns (see DynamicUpdate). Dirty columns
+ * are found by comparison with loaded state, so GeneralDAO merges new versions into instances,
+ * loaded in the same transaction, instead of reattaching them.
+ * Each finder query (see GeneralDAO) is backed by index of searched column.
+ *
  * @author alex323glo
  * @version 1.0
  *
  * @see IDEntity
  */
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = {
+        @Index(name = "idx_users_name", columnList = "name"),
+        @Index(name = "idx_users_city_id", columnList = "city_id"),
+        @Index(name = "idx_users_amount", columnList = "amount"),
+        @Index(name = "idx_users_birthday", columnList = "birthday")
+})
+@NamedQueries({
+        @NamedQuery(name = "User.findByName",
+                query = "select e from User e where e.name = :value"),
+        @NamedQuery(name = "User.findByCity",
+                query = "select e from User e where e.city.id = :value"),
+        @NamedQuery(name = "User.findByAmountRange",
+                query = "select e from User e where e.amount between :lower and :upper order by e.amount"),
+        @NamedQuery(name = "User.findByBirthdayRange",
+                query = "select e from User e where e.birthday between :lower and :upper order by e.birthday")
+})
+@DynamicUpdate
+@NamedEntityGraphs({
+        @NamedEntityGraph(name = User.GRAPH_WITH_CITY,
+                attributeNodes = @NamedAttributeNode("city")),
+        @NamedEntityGraph(name = User.GRAPH_WITH_CITY_AND_GAMES,
+                attributeNodes = {@NamedAttributeNode("city"), @NamedAttributeNode("gameList")})
+})
 public class User extends IDEntity {
 
+    /**
+     * Name of entity graph, which loads User with its City.
+     */
+    public static final String GRAPH_WITH_CITY = "User.withCity";
+
+    /**
+     * Name of entity graph, which loads User with its City and Games.
+     */
+    public static final String GRAPH_WITH_CITY_AND_GAMES = "User.withCityAndGames";
+
     @Column(nullable = false)
     private String name;
 
@@ -30,14 +73,20 @@ public class User extends IDEntity {
     @JoinColumn(name = "city_id", referencedColumnName = "id")
     private City city;
 
+    // User is the owner of 'user_games' join table (Game#getUserList() is its inverse side).
+    // Set semantics let Hibernate add/remove single rows of join table, and primary key
+    // (user_id, game_id) covers lookups by user_id.
     @ManyToMany(fetch = FetchType.LAZY, cascade = CascadeType.PERSIST)
     @JoinTable(name = "user_games",
             joinColumns = {@JoinColumn(name = "user_id", referencedColumnName = "id")},
-            inverseJoinColumns = {@JoinColumn(name = "game_id", referencedColumnName = "id")})
-    private List<Game> gameList;
+            inverseJoinColumns = {@JoinColumn(name = "game_id", referencedColumnName = "id")},
+            indexes = {@Index(name = "idx_user_games_game_id", columnList = "game_id")})
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+    @BatchSize(size = 100)
+    private Set<Game> gameList;
 
     public User() {
-        gameList = new ArrayList<>();
+        gameList = new HashSet<>();
     }
 
     public User(String name, double amount, Date birthday, City city) {
@@ -45,16 +94,17 @@ public class User extends IDEntity {
         this.amount = amount;
         this.birthday = birthday;
         this.city = city;
-        gameList = new ArrayList<>();
+        gameList = new HashSet<>();
     }
 
     public User(String name, double amount, Date birthday) {
         this.name = name;
         this.amount = amount;
         this.birthday = birthday;
+        gameList = new HashSet<>();
     }
 
-    public User(String name, double amount, Date birthday, City city, List<Game> gameList) {
+    public User(String name, double amount, Date birthday, City city, Set<Game> gameList) {
         this.name = name;
         this.amount = amount;
         this.birthday = birthday;
@@ -62,7 +112,7 @@ public class User extends IDEntity {
         this.gameList = gameList;
     }
 
-    private User(int id, String name, double amount, Date birthday, City city, List<Game> gameList) {
+    private User(int id, String name, double amount, Date birthday, City city, Set<Game> gameList) {
         setId(id);
         this.name = name;
         this.amount = amount;
@@ -103,12 +153,37 @@ public class User extends IDEntity {
         this.city = city;
     }
 
-    public List<Game> getGameList() {
+    public Set<Game> getGameList() {
         return gameList;
     }
 
-    public void setGameList(List<Game> gameList) {
+    public void setGameList(Set<Game> gameList) {
         this.gameList = gameList;
     }
 
+    /**
+     * Adds Game to this User, keeping both sides of relation in sync
+     * (if Users of Game were already loaded).
+     *
+     * @param game target Game.
+     */
+    public void addGame(Game game) {
+        if (gameList.add(game) && game.getUserList() != null && Hibernate.isInitialized(game.getUserList())) {
+            game.getUserList().add(this);
+        }
+    }
+
+    /**
+     * Removes Game from this User, keeping both sides of relation in sync
+     * (if Users of Game were already loaded).
+     *
+     * @param game target Game.
+     */
+    public void removeGame(Game game) {
+        gameList.remove(game);
+        if (game.getUserList() != null && Hibernate.isInitialized(game.getUserList())) {
+            game.getUserList().remove(this);
+        }
+    }
+
 }
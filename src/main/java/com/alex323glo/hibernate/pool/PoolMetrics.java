@@ -0,0 +1,230 @@
+package com.alex323glo.hibernate.pool;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.MetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Utilization and wait-time metrics of HikariCP connection pool of persistence unit.
+ *
+ * Gauges (active, idle, total connections and threads, which wait for connection) are
+ * read from pool statistics, which are refreshed by pool at most once per second.
+ * Counters (connection acquisitions, their wait time, time of connection usage, acquisition
+ * timeouts) are collected by metrics tracker, which is installed to pool by
+ * 'of(EntityManagerFactory)', so they cover only time after its first call.
+ *
+ * Usage:
+ *      PoolMetrics metrics = PoolMetrics.of(factory);
+ *      ...
+ *      LOG.info(metrics);
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see com.zaxxer.hikari.HikariDataSource
+ */
+public class PoolMetrics implements MetricsTrackerFactory {
+
+    private final HikariDataSource dataSource;
+
+    private final LongAdder acquiredNumber = new LongAdder();
+    private final LongAdder acquisitionNanos = new LongAdder();
+    private final LongAccumulator maxAcquisitionNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder usageMillis = new LongAdder();
+    private final LongAccumulator maxUsageMillis = new LongAccumulator(Math::max, 0);
+    private final LongAdder timeoutNumber = new LongAdder();
+
+    // statistics of pool, passed by pool to 'create' method:
+    private volatile PoolStats poolStats;
+
+    private PoolMetrics(HikariDataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Returns metrics of connection pool of proposed persistence unit
+     * (installs metrics tracker to pool, if it wasn't installed yet).
+     *
+     * @param factory persistence unit, which uses HikariCP connection provider.
+     * @return metrics of connection pool, or null, if persistence unit doesn't use HikariCP.
+     * @throws IllegalStateException if another metrics tracker was already installed to pool.
+     */
+    public static PoolMetrics of(EntityManagerFactory factory) {
+        ConnectionProvider connectionProvider = factory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(ConnectionProvider.class);
+        if (!connectionProvider.isUnwrappableAs(DataSource.class)) {
+            return null;
+        }
+        DataSource dataSource = connectionProvider.unwrap(DataSource.class);
+        if (!(dataSource instanceof HikariDataSource)) {
+            return null;
+        }
+        HikariDataSource hikariDataSource = (HikariDataSource) dataSource;
+
+        synchronized (hikariDataSource) {
+            MetricsTrackerFactory installedFactory = hikariDataSource.getMetricsTrackerFactory();
+            if (installedFactory instanceof PoolMetrics) {
+                return (PoolMetrics) installedFactory;
+            }
+            if (installedFactory != null) {
+                throw new IllegalStateException("Pool " + hikariDataSource.getPoolName() +
+                        " already has metrics tracker " + installedFactory.getClass().getName() + ".");
+            }
+
+            PoolMetrics metrics = new PoolMetrics(hikariDataSource);
+            hikariDataSource.setMetricsTrackerFactory(metrics);
+            return metrics;
+        }
+    }
+
+    /**
+     * Creates tracker, which collects counters of this metrics (called by pool).
+     */
+    @Override
+    public MetricsTracker create(String poolName, PoolStats poolStats) {
+        this.poolStats = poolStats;
+        return new MetricsTracker() {
+
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquiredNumber.increment();
+                acquisitionNanos.add(elapsedAcquiredNanos);
+                maxAcquisitionNanos.accumulate(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usageMillis.add(elapsedBorrowedMillis);
+                maxUsageMillis.accumulate(elapsedBorrowedMillis);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeoutNumber.increment();
+            }
+        };
+    }
+
+    public String getPoolName() {
+        return dataSource.getPoolName();
+    }
+
+    public int getMaximumPoolSize() {
+        return dataSource.getMaximumPoolSize();
+    }
+
+    public int getMinimumIdle() {
+        return dataSource.getMinimumIdle();
+    }
+
+    /**
+     * @return number of connections, which are borrowed from pool at the moment.
+     */
+    public int getActiveConnections() {
+        PoolStats stats = poolStats;
+        return stats == null ? 0 : stats.getActiveConnections();
+    }
+
+    /**
+     * @return number of connections, which are opened, but not borrowed at the moment.
+     */
+    public int getIdleConnections() {
+        PoolStats stats = poolStats;
+        return stats == null ? 0 : stats.getIdleConnections();
+    }
+
+    /**
+     * @return number of opened connections.
+     */
+    public int getTotalConnections() {
+        PoolStats stats = poolStats;
+        return stats == null ? 0 : stats.getTotalConnections();
+    }
+
+    /**
+     * @return number of threads, which wait for connection at the moment.
+     */
+    public int getThreadsAwaitingConnection() {
+        PoolStats stats = poolStats;
+        return stats == null ? 0 : stats.getPendingThreads();
+    }
+
+    /**
+     * @return part of max pool size, which is borrowed at the moment (from 0 to 1).
+     */
+    public double getUtilization() {
+        return (double) getActiveConnections() / getMaximumPoolSize();
+    }
+
+    /**
+     * @return number of connections, which were borrowed from pool.
+     */
+    public long getAcquiredNumber() {
+        return acquiredNumber.sum();
+    }
+
+    /**
+     * @return average time of waiting for connection (in microseconds).
+     */
+    public double getAverageAcquisitionMicros() {
+        long acquired = acquiredNumber.sum();
+        return acquired == 0 ? 0 : acquisitionNanos.sum() / 1000.0 / acquired;
+    }
+
+    /**
+     * @return max time of waiting for connection (in microseconds).
+     */
+    public long getMaxAcquisitionMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(maxAcquisitionNanos.get());
+    }
+
+    /**
+     * @return average time, during which connection was borrowed (in milliseconds).
+     */
+    public double getAverageUsageMillis() {
+        long acquired = acquiredNumber.sum();
+        return acquired == 0 ? 0 : (double) usageMillis.sum() / acquired;
+    }
+
+    /**
+     * @return max time, during which connection was borrowed (in milliseconds).
+     */
+    public long getMaxUsageMillis() {
+        return maxUsageMillis.get();
+    }
+
+    /**
+     * @return number of threads, which didn't get connection in 'connectionTimeout'.
+     */
+    public long getTimeoutNumber() {
+        return timeoutNumber.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "PoolMetrics{" +
+                "pool=" + getPoolName() +
+                ", active=" + getActiveConnections() +
+                ", idle=" + getIdleConnections() +
+                ", total=" + getTotalConnections() +
+                ", max=" + getMaximumPoolSize() +
+                ", awaiting=" + getThreadsAwaitingConnection() +
+                ", acquired=" + getAcquiredNumber() +
+                ", avgAcquisitionMicros=" + String.format("%.1f", getAverageAcquisitionMicros()) +
+                ", maxAcquisitionMicros=" + getMaxAcquisitionMicros() +
+                ", avgUsageMillis=" + String.format("%.1f", getAverageUsageMillis()) +
+                ", maxUsageMillis=" + getMaxUsageMillis() +
+                ", timeouts=" + getTimeoutNumber() +
+                '}';
+    }
+
+}
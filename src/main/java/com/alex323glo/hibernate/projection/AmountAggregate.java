@@ -0,0 +1,69 @@
+package com.alex323glo.hibernate.projection;
+
+/**
+ * Aggregated amounts of one group of Users (calculated by DB).
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see com.alex323glo.hibernate.dao.UserAmountAggregator
+ */
+public class AmountAggregate {
+
+    private final int groupKey;
+    private final long count;
+    private final double sum;
+    private final double average;
+    private final double min;
+    private final double max;
+
+    public AmountAggregate(int groupKey, long count, double sum, double average, double min, double max) {
+        this.groupKey = groupKey;
+        this.count = count;
+        this.sum = sum;
+        this.average = average;
+        this.min = min;
+        this.max = max;
+    }
+
+    /**
+     * @return key of group: ID of City, ID of Game or number of birthday month (1-12),
+     * depending on grouping.
+     */
+    public int getGroupKey() {
+        return groupKey;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    public double getAverage() {
+        return average;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return "AmountAggregate{" +
+                "groupKey=" + groupKey +
+                ", count=" + count +
+                ", sum=" + sum +
+                ", average=" + average +
+                ", min=" + min +
+                ", max=" + max +
+                '}';
+    }
+
+}
@@ -0,0 +1,39 @@
+package com.alex323glo.hibernate.projection;
+
+/**
+ * Read-only view of Entity, which contains only its ID and name
+ * (suitable for User, City and Game list screens).
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see Projection
+ */
+@Projection({"id", "name"})
+public class IdNameView {
+
+    private final int id;
+    private final String name;
+
+    public IdNameView(int id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return "IdNameView{" +
+                "id=" + id +
+                ", name='" + name + '\'' +
+                '}';
+    }
+
+}
@@ -0,0 +1,32 @@
+package com.alex323glo.hibernate.projection;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks read-only DTO class, which could be listed instead of Entity
+ * (only needed columns are selected, and no Entities are instantiated).
+ *
+ * DTO class must have public constructor with parameters, which match
+ * listed attributes (in the same order).
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see com.alex323glo.hibernate.dao.DAO#getAll(Class, int)
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Projection {
+
+    /**
+     * @return paths of Entity attributes (like "name" or "city.name"),
+     * which are passed to DTO constructor.
+     */
+    String[] value();
+
+}
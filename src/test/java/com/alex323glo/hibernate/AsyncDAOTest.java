@@ -0,0 +1,161 @@
+package com.alex323glo.hibernate;
+
+import com.alex323glo.hibernate.dao.AsyncDAO;
+import com.alex323glo.hibernate.dao.GeneralDAO;
+import com.alex323glo.hibernate.exception.DAOException;
+import com.alex323glo.hibernate.model.User;
+import com.alex323glo.hibernate.support.PersistenceRule;
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks, that AsyncDAO executes operations on its own threads, limits number of pending
+ * operations, and fails (and interrupts) operations, which timed out or were cancelled.
+ */
+public class AsyncDAOTest {
+
+    private static final long WAIT_SECONDS = 10;
+
+    @ClassRule
+    public static final PersistenceRule PERSISTENCE = new PersistenceRule("async_dao");
+
+    private static GeneralDAO<Integer, User> userDAO;
+
+    private AsyncDAO<Integer, User> asyncDAO;
+
+    @BeforeClass
+    public static void setUpClass() {
+        userDAO = PERSISTENCE.createDAO(Integer.class, User.class);
+    }
+
+    @After
+    public void tearDown() {
+        if (asyncDAO != null) {
+            asyncDAO.close();
+        }
+    }
+
+    @Test
+    public void operationsAreExecutedOnOwnThreads() throws Exception {
+        asyncDAO = new AsyncDAO<>(userDAO, 2, 10, Duration.ofSeconds(WAIT_SECONDS), false);
+        Thread callerThread = Thread.currentThread();
+
+        User user = asyncDAO.create(new User("Async", 1, new Date())).get(WAIT_SECONDS, TimeUnit.SECONDS);
+        Thread runnerThread = asyncDAO.inTransaction(dao -> Thread.currentThread()).get(WAIT_SECONDS, TimeUnit.SECONDS);
+
+        assertEquals("Async", asyncDAO.readById(user.getId()).get(WAIT_SECONDS, TimeUnit.SECONDS).getName());
+        assertNotSame(callerThread, runnerThread);
+    }
+
+    @Test
+    public void failureOfOperationFailsFuture() throws Exception {
+        asyncDAO = new AsyncDAO<>(userDAO, 1, 1, Duration.ofSeconds(WAIT_SECONDS), false);
+
+        assertFailedBy(DAOException.class, asyncDAO.delete(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void operationsOverQueueCapacityAreRejected() throws Exception {
+        asyncDAO = new AsyncDAO<>(userDAO, 1, 1, Duration.ofSeconds(WAIT_SECONDS), false);
+        CountDownLatch releaseLatch = new CountDownLatch(1);
+
+        CompletableFuture<Boolean> executing = asyncDAO.inTransaction(dao -> await(releaseLatch));
+        CompletableFuture<Boolean> waiting = asyncDAO.inTransaction(dao -> true);
+        CompletableFuture<Boolean> rejected = asyncDAO.inTransaction(dao -> true);
+
+        assertFailedBy(DAOException.class, rejected);
+        assertEquals(2, asyncDAO.getPendingNumber());
+
+        releaseLatch.countDown();
+        assertTrue(executing.get(WAIT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(waiting.get(WAIT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(0, asyncDAO.getPendingNumber());
+    }
+
+    @Test
+    public void operationWhichTimedOutIsInterrupted() throws Exception {
+        asyncDAO = new AsyncDAO<>(userDAO, 1, 1, Duration.ofMillis(200), false);
+        CountDownLatch interruptionLatch = new CountDownLatch(1);
+
+        CompletableFuture<Boolean> future = asyncDAO.inTransaction(dao -> {
+            try {
+                new CountDownLatch(1).await(WAIT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                interruptionLatch.countDown();
+            }
+            return true;
+        });
+
+        Throwable cause = assertFailedBy(DAOException.class, future);
+        assertTrue(String.valueOf(cause.getCause()), cause.getCause() instanceof TimeoutException);
+        assertTrue(interruptionLatch.await(WAIT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void cancelledOperationIsNotExecuted() throws Exception {
+        asyncDAO = new AsyncDAO<>(userDAO, 1, 1, Duration.ofSeconds(WAIT_SECONDS), false);
+        CountDownLatch releaseLatch = new CountDownLatch(1);
+        AtomicBoolean cancelledIsExecuted = new AtomicBoolean();
+
+        CompletableFuture<Boolean> executing = asyncDAO.inTransaction(dao -> await(releaseLatch));
+        CompletableFuture<Boolean> cancelled = asyncDAO.inTransaction(dao -> {
+            cancelledIsExecuted.set(true);
+            return true;
+        });
+        assertTrue(cancelled.cancel(true));
+
+        releaseLatch.countDown();
+        assertTrue(executing.get(WAIT_SECONDS, TimeUnit.SECONDS));
+        // the next operation is executed after cancelled one (by the only thread):
+        asyncDAO.inTransaction(dao -> true).get(WAIT_SECONDS, TimeUnit.SECONDS);
+        assertFalse(cancelledIsExecuted.get());
+        assertEquals(0, asyncDAO.getPendingNumber());
+    }
+
+    @Test
+    public void operationsAfterCloseAreRejected() throws Exception {
+        asyncDAO = new AsyncDAO<>(userDAO, 1, 1, Duration.ofSeconds(WAIT_SECONDS), false);
+        asyncDAO.close();
+
+        assertFailedBy(DAOException.class, asyncDAO.readById(1));
+        assertEquals(0, asyncDAO.getPendingNumber());
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Throwable assertFailedBy(Class<? extends Throwable> expectedClass,
+                                            CompletableFuture<?> future) throws Exception {
+        try {
+            future.get(WAIT_SECONDS, TimeUnit.SECONDS);
+            fail("Future wasn't failed by " + expectedClass.getSimpleName() + ".");
+            return null;
+        } catch (ExecutionException e) {
+            assertTrue(String.valueOf(e.getCause()), expectedClass.isInstance(e.getCause()));
+            return e.getCause();
+        }
+    }
+
+}
@@ -0,0 +1,207 @@
+package com.alex323glo.hibernate;
+
+import com.alex323glo.hibernate.dao.CachingDAO;
+import com.alex323glo.hibernate.dao.DAO;
+import com.alex323glo.hibernate.dao.GeneralDAO;
+import com.alex323glo.hibernate.model.IDEntity;
+import com.alex323glo.hibernate.model.User;
+import com.alex323glo.hibernate.support.PersistenceRule;
+import com.alex323glo.hibernate.support.QueryRecorder;
+import com.alex323glo.hibernate.support.QueryRecording;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Checks read-through caching, collapsing of concurrent loads and invalidation by writes
+ * (including ones, which happen during bulk load) of CachingDAO over GeneralDAO of User (which isn't stored in second-level cache).
+ */
+public class CachingDAOTest {
+
+    private static final int MISSING_ID = Integer.MAX_VALUE;
+
+    @ClassRule
+    public static final PersistenceRule PERSISTENCE = new PersistenceRule("caching_dao");
+
+    private static GeneralDAO<Integer, User> userDAO;
+
+    private CachingDAO<Integer, User> cachingDAO;
+
+    @BeforeClass
+    public static void setUpClass() {
+        userDAO = PERSISTENCE.createDAO(Integer.class, User.class);
+    }
+
+    @Before
+    public void setUp() {
+        cachingDAO = new CachingDAO<>(userDAO, IDEntity::getId, 1000, Duration.ofMinutes(10), Duration.ofMinutes(1));
+    }
+
+    @Test
+    public void readByIdIsServedFromCache() {
+        int userId = userDAO.create(new User("Cached", 1, new Date())).getId();
+        User user = cachingDAO.readById(userId);
+
+        QueryRecording recording = QueryRecorder.record(() -> assertSame(user, cachingDAO.readById(userId)));
+
+        recording.assertCount(0);
+        assertEquals(1, cachingDAO.getStats().hitCount());
+    }
+
+    @Test
+    public void missIsCached() {
+        QueryRecording recording = QueryRecorder.record(() -> {
+            assertNull(cachingDAO.readById(MISSING_ID));
+            assertNull(cachingDAO.readById(MISSING_ID));
+        });
+
+        recording.assertCount(1);
+    }
+
+    @Test
+    public void concurrentReadsOfSameIdAreCollapsed() throws Exception {
+        int userId = userDAO.create(new User("Collapsed", 1, new Date())).getId();
+        int threadsNumber = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threadsNumber);
+        CountDownLatch startLatch = new CountDownLatch(1);
+        try {
+            List<Future<User>> futures = new ArrayList<>();
+            for (int i = 0; i < threadsNumber; i++) {
+                futures.add(executor.submit(() -> {
+                    startLatch.await();
+                    return cachingDAO.readById(userId);
+                }));
+            }
+            startLatch.countDown();
+
+            User user = futures.get(0).get();
+            for (Future<User> future : futures) {
+                assertSame(user, future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(1, cachingDAO.getStats().loadCount());
+    }
+
+    @Test
+    public void readByIdsLoadsOnlyMissingInstances() {
+        int firstId = userDAO.create(new User("First", 1, new Date())).getId();
+        int secondId = userDAO.create(new User("Second", 2, new Date())).getId();
+        cachingDAO.readById(firstId);
+
+        QueryRecording recording = QueryRecorder.record(() -> {
+            List<User> users = cachingDAO.readByIds(Arrays.asList(secondId, MISSING_ID, firstId));
+            assertEquals("Second", users.get(0).getName());
+            assertNull(users.get(1));
+            assertEquals("First", users.get(2).getName());
+        });
+
+        recording.assertCount(1);
+    }
+
+    @Test
+    public void instanceInvalidatedDuringBulkLoadIsNotCached() {
+        int userId = userDAO.create(new User("Before invalidation", 1, new Date())).getId();
+        // the first bulk load is followed by concurrent update (before loaded instances are cached):
+        AtomicBoolean updated = new AtomicBoolean();
+        DAO<Integer, User> racingDAO = delegatingDAO((proxy, method, args) -> {
+            Object result = invokeOnUserDAO(method, args);
+            if (method.getName().equals("readByIds") && !updated.getAndSet(true)) {
+                cachingDAO.patch(userId, Collections.singletonMap("name", "After invalidation"));
+            }
+            return result;
+        });
+        cachingDAO = new CachingDAO<>(racingDAO, IDEntity::getId, 1000, Duration.ofMinutes(10), Duration.ofMinutes(1));
+
+        assertEquals("Before invalidation", cachingDAO.readByIds(Collections.singletonList(userId)).get(0).getName());
+
+        assertEquals("After invalidation", cachingDAO.readById(userId).getName());
+        assertEquals("After invalidation", cachingDAO.readByIds(Collections.singletonList(userId)).get(0).getName());
+    }
+
+    @Test
+    public void writesInvalidateCachedInstances() {
+        int userId = userDAO.create(new User("Invalidated", 1, new Date())).getId();
+
+        cachingDAO.readById(userId);
+        cachingDAO.patch(userId, Collections.singletonMap("amount", 2.0));
+        assertEquals(2, cachingDAO.readById(userId).getAmount(), 0);
+
+        User newUser = userDAO.readById(userId);
+        newUser.setAmount(3);
+        cachingDAO.update(userId, newUser);
+        assertEquals(3, cachingDAO.readById(userId).getAmount(), 0);
+
+        cachingDAO.updateWithRetry(userId, user -> user.setAmount(4));
+        assertEquals(4, cachingDAO.readById(userId).getAmount(), 0);
+
+        cachingDAO.delete(userId);
+        assertNull(cachingDAO.readById(userId));
+    }
+
+    @Test
+    public void creationInvalidatesCachedMiss() {
+        User user = new User("Created after miss", 1, new Date());
+        userDAO.create(user);
+        cachingDAO.readById(user.getId());
+        cachingDAO.delete(user.getId());
+        assertNull(cachingDAO.readById(user.getId()));
+
+        User createdUser = cachingDAO.upsert(new User("Created by upsert", 1, new Date()));
+
+        assertEquals("Created by upsert", cachingDAO.readById(createdUser.getId()).getName());
+    }
+
+    @Test
+    public void writeInsideOfUnitOfWorkIsVisibleAfterCommit() {
+        int userId = userDAO.create(new User("Unit of work", 1, new Date())).getId();
+        cachingDAO.readById(userId);
+
+        cachingDAO.inTransaction(dao -> {
+            dao.patch(userId, Collections.singletonMap("amount", 5.0));
+            // reads inside of unit of work bypass cache:
+            assertEquals(5, dao.readById(userId).getAmount(), 0);
+            return null;
+        });
+
+        assertEquals(5, cachingDAO.readById(userId).getAmount(), 0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static DAO<Integer, User> delegatingDAO(InvocationHandler handler) {
+        return (DAO<Integer, User>) Proxy.newProxyInstance(DAO.class.getClassLoader(), new Class<?>[]{DAO.class},
+                handler);
+    }
+
+    private static Object invokeOnUserDAO(Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(userDAO, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+}
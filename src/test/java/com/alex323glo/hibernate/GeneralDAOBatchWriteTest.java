@@ -0,0 +1,105 @@
+package com.alex323glo.hibernate;
+
+import com.alex323glo.hibernate.dao.GeneralDAO;
+import com.alex323glo.hibernate.exception.DAOException;
+import com.alex323glo.hibernate.model.User;
+import com.alex323glo.hibernate.support.PersistenceRule;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks batched 'createAll' and 'updateAll' of GeneralDAO, which write instances in chunks
+ * of 'transactionSize' records, flushed every 'batchSize' records.
+ */
+public class GeneralDAOBatchWriteTest {
+
+    @ClassRule
+    public static final PersistenceRule PERSISTENCE = new PersistenceRule("general_dao_batch_write");
+
+    private GeneralDAO<Integer, User> userDAO;
+
+    @Before
+    public void setUp() {
+        userDAO = PERSISTENCE.createDAO(Integer.class, User.class);
+        // 7 instances are written by 3 transactions with 2 JDBC batches in each full one:
+        userDAO.setBatchSize(2);
+        userDAO.setTransactionSize(3);
+    }
+
+    @Test
+    public void createAllStoresAllInstances() {
+        List<User> users = newUsers("Created", 7);
+
+        assertEquals(7, userDAO.createAll(users));
+
+        for (User user : users) {
+            assertNotEquals(0, user.getId());
+            User storedUser = userDAO.readById(user.getId());
+            assertNotNull(storedUser);
+            assertEquals(user.getName(), storedUser.getName());
+            assertEquals(user.getAmount(), storedUser.getAmount(), 0);
+        }
+    }
+
+    @Test
+    public void updateAllStoresNewDataOfAllInstances() {
+        List<User> users = newUsers("Updated", 7);
+        userDAO.createAll(users);
+
+        for (User user : users) {
+            user.setAmount(user.getAmount() + 100);
+        }
+        assertEquals(7, userDAO.updateAll(users));
+
+        for (User user : users) {
+            assertEquals(user.getAmount(), userDAO.readById(user.getId()).getAmount(), 0);
+        }
+    }
+
+    @Test
+    public void failedCreateAllKeepsChunksCommittedBeforeFailure() {
+        List<User> users = newUsers("Partially created", 6);
+        // the second chunk (4th - 6th instances) fails:
+        users.get(4).setName(null);
+
+        try {
+            userDAO.createAll(users);
+            fail("Instance without name was created.");
+        } catch (DAOException expected) {
+            // chunks, committed before failure, stay stored
+        }
+
+        for (User user : users.subList(0, 3)) {
+            assertNotNull(userDAO.readById(user.getId()));
+        }
+        if (users.get(3).getId() != 0) {
+            assertNull(userDAO.readById(users.get(3).getId()));
+        }
+    }
+
+    @Test
+    public void createAllOfNoInstancesWritesNothing() {
+        assertEquals(0, userDAO.createAll(new ArrayList<>()));
+        assertEquals(0, userDAO.updateAll(new ArrayList<>()));
+    }
+
+    private static List<User> newUsers(String namePrefix, int number) {
+        List<User> users = new ArrayList<>(number);
+        for (int i = 0; i < number; i++) {
+            users.add(new User(namePrefix + " " + i, i, new Date()));
+        }
+        return users;
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.alex323glo.hibernate;
+
+import com.alex323glo.hibernate.dao.GeneralDAO;
+import com.alex323glo.hibernate.model.City;
+import com.alex323glo.hibernate.model.Game;
+import com.alex323glo.hibernate.model.User;
+import com.alex323glo.hibernate.support.PersistenceRule;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks bulk 'deleteAll' and 'deleteWhere' of GeneralDAO for instances, which are referred
+ * by other instances (by many-to-one associations and by rows of join tables).
+ */
+public class GeneralDAODeleteTest {
+
+    @ClassRule
+    public static final PersistenceRule PERSISTENCE = new PersistenceRule("general_dao_delete");
+
+    private static GeneralDAO<Integer, User> userDAO;
+    private static GeneralDAO<Integer, City> cityDAO;
+    private static GeneralDAO<Integer, Game> gameDAO;
+
+    @BeforeClass
+    public static void setUpClass() {
+        userDAO = PERSISTENCE.createDAO(Integer.class, User.class);
+        cityDAO = PERSISTENCE.createDAO(Integer.class, City.class);
+        gameDAO = PERSISTENCE.createDAO(Integer.class, Game.class);
+    }
+
+    @Test
+    public void deleteAllOfCitiesWithUsersUnsetsCityOfUsers() {
+        City city = cityDAO.create(new City("Removed city"));
+        City otherCity = cityDAO.create(new City("Kept city"));
+        User user = userDAO.create(new User("Citizen", 1, new Date(), city));
+        User otherUser = userDAO.create(new User("Other citizen", 1, new Date(), otherCity));
+
+        assertEquals(1, cityDAO.deleteAll(Collections.singletonList(city.getId())));
+
+        assertNull(cityDAO.readById(city.getId()));
+        User storedUser = userDAO.readById(user.getId());
+        assertEquals(user.getVersion() + 1, storedUser.getVersion());
+        assertNull(cityIdOf(user.getId()));
+        assertEquals(Integer.valueOf(otherCity.getId()), cityIdOf(otherUser.getId()));
+        assertEquals(otherUser.getVersion(), userDAO.readById(otherUser.getId()).getVersion());
+    }
+
+    @Test
+    public void deleteWhereOfCitiesWithUsersUnsetsCityOfUsers() {
+        City city = cityDAO.create(new City("Removed by condition"));
+        User user = userDAO.create(new User("Citizen by condition", 1, new Date(), city));
+
+        assertEquals(1, cityDAO.deleteWhere((root, builder) ->
+                builder.equal(root.get("name"), "Removed by condition")));
+
+        assertNull(cityDAO.readById(city.getId()));
+        assertNull(cityIdOf(user.getId()));
+    }
+
+    @Test
+    public void deleteAllOfGamesRemovesRowsOfJoinTable() {
+        int userId;
+        int firstGameId;
+        int secondGameId;
+        EntityManager manager = PERSISTENCE.getManagerFactory().createEntityManager();
+        try {
+            manager.getTransaction().begin();
+            Game firstGame = new Game("First removed game");
+            Game secondGame = new Game("Second removed game");
+            manager.persist(firstGame);
+            manager.persist(secondGame);
+            User user = new User("Player", 1, new Date());
+            user.addGame(firstGame);
+            user.addGame(secondGame);
+            manager.persist(user);
+            manager.getTransaction().commit();
+            userId = user.getId();
+            firstGameId = firstGame.getId();
+            secondGameId = secondGame.getId();
+        } finally {
+            manager.close();
+        }
+
+        assertEquals(2, gameDAO.deleteAll(Arrays.asList(firstGameId, secondGameId)));
+
+        assertEquals(0, (int) userDAO.inTransaction(dao -> dao.readById(userId).getGameList().size()));
+    }
+
+    private static Integer cityIdOf(int userId) {
+        return userDAO.inTransaction(dao -> {
+            City city = dao.readById(userId).getCity();
+            return city == null ? null : city.getId();
+        });
+    }
+
+}
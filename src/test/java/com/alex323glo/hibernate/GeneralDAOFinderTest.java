@@ -0,0 +1,141 @@
+package com.alex323glo.hibernate;
+
+import com.alex323glo.hibernate.dao.DAO;
+import com.alex323glo.hibernate.dao.GeneralDAO;
+import com.alex323glo.hibernate.exception.DAOException;
+import com.alex323glo.hibernate.model.City;
+import com.alex323glo.hibernate.model.User;
+import com.alex323glo.hibernate.support.PersistenceRule;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks finders ('findBy' and 'findInRange') of GeneralDAO, which are implemented by named
+ * queries of Entity (like 'User.findByName' or 'User.findByAmountRange'), if they exist,
+ * or by queries, built by DAO, otherwise.
+ */
+public class GeneralDAOFinderTest {
+
+    @ClassRule
+    public static final PersistenceRule PERSISTENCE = new PersistenceRule("general_dao_finder");
+
+    private static GeneralDAO<Integer, User> userDAO;
+    private static City city;
+    private static City otherCity;
+
+    @BeforeClass
+    public static void setUpClass() {
+        userDAO = PERSISTENCE.createDAO(Integer.class, User.class);
+        GeneralDAO<Integer, City> cityDAO = PERSISTENCE.createDAO(Integer.class, City.class);
+
+        city = cityDAO.create(new City("Finder city"));
+        otherCity = cityDAO.create(new City("Other finder city"));
+        userDAO.create(new User("Anna", 9, new Date(), otherCity));
+        userDAO.create(new User("Boris", 10, new Date(), city));
+        userDAO.create(new User("Clara", 15, new Date(), city));
+        userDAO.create(new User("Denis", 20, new Date(), city));
+        userDAO.create(new User("Eva", 21, new Date(), otherCity));
+        userDAO.create(new User("Eva", 30, new Date()));
+    }
+
+    @Test
+    public void findByNameUsesNamedQuery() {
+        List<User> users = userDAO.findBy("name", "Eva", DAO.NO_LIMIT);
+
+        assertEquals(Arrays.asList(21.0, 30.0), users.stream().map(User::getAmount).sorted().collect(Collectors.toList()));
+        assertEquals(Collections.singletonList("Clara"), namesOf(userDAO.findBy("name", "Clara", DAO.NO_LIMIT)));
+        assertTrue(userDAO.findBy("name", "Nobody", DAO.NO_LIMIT).isEmpty());
+    }
+
+    @Test
+    public void findByAssociationComparesIdOfAssociatedInstance() {
+        assertEquals(Arrays.asList("Boris", "Clara", "Denis"), namesOf(userDAO.findBy("city", city.getId(), DAO.NO_LIMIT)));
+        assertEquals(Arrays.asList("Anna", "Eva"), namesOf(userDAO.findBy("city", otherCity.getId(), DAO.NO_LIMIT)));
+    }
+
+    @Test
+    public void findByWithoutNamedQueryUsesBuiltQuery() {
+        // there is no 'User.findByAmount' query:
+        assertEquals(Collections.singletonList("Clara"), namesOf(userDAO.findBy("amount", 15.0, DAO.NO_LIMIT)));
+        // the second call reuses checked absence of named query:
+        assertEquals(Collections.singletonList("Denis"), namesOf(userDAO.findBy("amount", 20.0, DAO.NO_LIMIT)));
+    }
+
+    @Test
+    public void finderWithoutNamedQueryDoesntBreakUnitOfWork() {
+        // new DAO checks absence of named query inside of unit of work:
+        GeneralDAO<Integer, User> newUserDAO = PERSISTENCE.createDAO(Integer.class, User.class);
+
+        User user = newUserDAO.inTransaction(dao -> {
+            assertEquals(1, dao.findBy("amount", 9.0, DAO.NO_LIMIT).size());
+            assertEquals(1, dao.findInRange("name", "Ca", "Cz", DAO.NO_LIMIT).size());
+            return dao.create(new User("Found in unit of work", 50, new Date()));
+        });
+
+        assertEquals("Found in unit of work", userDAO.readById(user.getId()).getName());
+    }
+
+    @Test
+    public void findByIsLimited() {
+        assertEquals(1, userDAO.findBy("name", "Eva", 1).size());
+    }
+
+    @Test
+    public void findInRangeIncludesBothBounds() {
+        List<User> users = userDAO.findInRange("amount", 10.0, 20.0, DAO.NO_LIMIT);
+
+        assertEquals(Arrays.asList(10.0, 15.0, 20.0), amountsOf(users));
+    }
+
+    @Test
+    public void findInRangeExcludesValuesOutOfBounds() {
+        assertEquals(Collections.singletonList(15.0), amountsOf(userDAO.findInRange("amount", 10.5, 19.5, DAO.NO_LIMIT)));
+        assertTrue(userDAO.findInRange("amount", 31.0, 40.0, DAO.NO_LIMIT).isEmpty());
+        assertTrue(userDAO.findInRange("amount", 20.0, 10.0, DAO.NO_LIMIT).isEmpty());
+    }
+
+    @Test
+    public void findInRangeWithoutNamedQueryUsesBuiltQuery() {
+        // there is no 'User.findByNameRange' query:
+        assertEquals(Arrays.asList("Boris", "Clara", "Denis"), namesOf(userDAO.findInRange("name", "B", "E", DAO.NO_LIMIT)));
+    }
+
+    @Test
+    public void findInRangeIsLimitedInOrderOfAttribute() {
+        assertEquals(Arrays.asList(9.0, 10.0), amountsOf(userDAO.findInRange("amount", 0.0, 100.0, 2)));
+    }
+
+    @Test(expected = DAOException.class)
+    public void findByUnknownAttributeFails() {
+        userDAO.findBy("nickname", "Eva", DAO.NO_LIMIT);
+    }
+
+    @Test(expected = DAOException.class)
+    public void findInRangeOfUnknownAttributeFails() {
+        userDAO.findInRange("nickname", "A", "Z", DAO.NO_LIMIT);
+    }
+
+    @Test(expected = DAOException.class)
+    public void findInRangeOfAssociationFails() {
+        userDAO.findInRange("city", city.getId(), otherCity.getId(), DAO.NO_LIMIT);
+    }
+
+    private static List<String> namesOf(List<User> users) {
+        return users.stream().map(User::getName).sorted().collect(Collectors.toList());
+    }
+
+    private static List<Double> amountsOf(List<User> users) {
+        return users.stream().map(User::getAmount).collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,127 @@
+package com.alex323glo.hibernate;
+
+import com.alex323glo.hibernate.dao.GeneralDAO;
+import com.alex323glo.hibernate.dao.Page;
+import com.alex323glo.hibernate.exception.DAOException;
+import com.alex323glo.hibernate.model.City;
+import com.alex323glo.hibernate.model.User;
+import com.alex323glo.hibernate.support.PersistenceRule;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks keyset pagination ('getPage') of GeneralDAO: continuation by ID of the last
+ * instance of page and detection of the last page.
+ */
+public class GeneralDAOPageTest {
+
+    private static final int STORED_NUMBER = 6;
+
+    @ClassRule
+    public static final PersistenceRule PERSISTENCE = new PersistenceRule("general_dao_page");
+
+    private static GeneralDAO<Integer, User> userDAO;
+    private static GeneralDAO<Integer, City> cityDAO;
+    private static List<Integer> storedIds;
+
+    @BeforeClass
+    public static void setUpClass() {
+        userDAO = PERSISTENCE.createDAO(Integer.class, User.class);
+        cityDAO = PERSISTENCE.createDAO(Integer.class, City.class);
+
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < STORED_NUMBER; i++) {
+            users.add(new User("Paged " + i, i, new Date()));
+        }
+        userDAO.createAll(users);
+        storedIds = users.stream().map(User::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    public void pagesListAllInstancesInOrderOfIds() {
+        Page<Integer, User> firstPage = userDAO.getPage(null, 4);
+        assertEquals(storedIds.subList(0, 4), idsOf(firstPage));
+        assertEquals(storedIds.get(3), firstPage.getLastId());
+        assertTrue(firstPage.hasNext());
+
+        Page<Integer, User> lastPage = userDAO.getPage(firstPage.getLastId(), 4);
+        assertEquals(storedIds.subList(4, STORED_NUMBER), idsOf(lastPage));
+        assertEquals(storedIds.get(STORED_NUMBER - 1), lastPage.getLastId());
+        assertFalse(lastPage.hasNext());
+    }
+
+    @Test
+    public void pageEndingOnTheLastInstanceHasNoNext() {
+        Page<Integer, User> firstPage = userDAO.getPage(null, STORED_NUMBER / 2);
+        assertTrue(firstPage.hasNext());
+
+        Page<Integer, User> lastPage = userDAO.getPage(firstPage.getLastId(), STORED_NUMBER / 2);
+        assertEquals(storedIds.subList(STORED_NUMBER / 2, STORED_NUMBER), idsOf(lastPage));
+        assertFalse(lastPage.hasNext());
+
+        Page<Integer, User> pageAfterTheLast = userDAO.getPage(lastPage.getLastId(), STORED_NUMBER / 2);
+        assertTrue(pageAfterTheLast.getContent().isEmpty());
+        assertNull(pageAfterTheLast.getLastId());
+        assertFalse(pageAfterTheLast.hasNext());
+    }
+
+    @Test
+    public void pageOfAllInstancesHasNoNext() {
+        Page<Integer, User> page = userDAO.getPage(null, STORED_NUMBER);
+
+        assertEquals(storedIds, idsOf(page));
+        assertFalse(page.hasNext());
+    }
+
+    @Test
+    public void pageOfEmptyTableIsEmpty() {
+        Page<Integer, City> page = cityDAO.getPage(null, 10);
+
+        assertTrue(page.getContent().isEmpty());
+        assertNull(page.getLastId());
+        assertFalse(page.hasNext());
+    }
+
+    @Test
+    public void pageAfterIdOfNotStoredInstanceStartsAfterIt() {
+        Page<Integer, User> page = userDAO.getPage(storedIds.get(0) - 1, STORED_NUMBER);
+        assertEquals(storedIds, idsOf(page));
+
+        Page<Integer, User> pageAfterAll = userDAO.getPage(storedIds.get(STORED_NUMBER - 1) + 1, STORED_NUMBER);
+        assertTrue(pageAfterAll.getContent().isEmpty());
+        assertFalse(pageAfterAll.hasNext());
+    }
+
+    @Test(expected = DAOException.class)
+    public void pageOfNotPositiveSizeFails() {
+        userDAO.getPage(null, 0);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void pageAfterIdOfWrongTypeFails() {
+        try {
+            ((GeneralDAO) userDAO).getPage("not an ID", 2);
+            fail("Page was listed after ID of wrong type.");
+        } catch (DAOException expected) {
+            // ID of User is Integer
+        }
+    }
+
+    private static List<Integer> idsOf(Page<Integer, User> page) {
+        return page.getContent().stream().map(User::getId).collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,135 @@
+package com.alex323glo.hibernate;
+
+import com.alex323glo.hibernate.dao.DAO;
+import com.alex323glo.hibernate.dao.GeneralDAO;
+import com.alex323glo.hibernate.exception.DAOException;
+import com.alex323glo.hibernate.model.City;
+import com.alex323glo.hibernate.model.User;
+import com.alex323glo.hibernate.projection.IdNameView;
+import com.alex323glo.hibernate.projection.Projection;
+import com.alex323glo.hibernate.support.PersistenceRule;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks listing of read-only DTO projections ('getAll(Class, int)') of GeneralDAO.
+ */
+public class GeneralDAOProjectionTest {
+
+    @ClassRule
+    public static final PersistenceRule PERSISTENCE = new PersistenceRule("general_dao_projection");
+
+    private static GeneralDAO<Integer, User> userDAO;
+    private static GeneralDAO<Integer, City> cityDAO;
+
+    @BeforeClass
+    public static void setUpClass() {
+        userDAO = PERSISTENCE.createDAO(Integer.class, User.class);
+        cityDAO = PERSISTENCE.createDAO(Integer.class, City.class);
+    }
+
+    @Test
+    public void projectionsOfAllInstancesArePopulated() {
+        City city = cityDAO.create(new City("Projected city"));
+        User firstUser = userDAO.create(new User("First projected", 1, new Date(), city));
+        User secondUser = userDAO.create(new User("Second projected", 2, new Date(), city));
+
+        Map<Integer, String> names = userDAO.getAll(IdNameView.class, DAO.NO_LIMIT).stream()
+                .collect(Collectors.toMap(IdNameView::getId, IdNameView::getName));
+
+        assertEquals("First projected", names.get(firstUser.getId()));
+        assertEquals("Second projected", names.get(secondUser.getId()));
+    }
+
+    @Test
+    public void projectionsAreLimited() {
+        for (int i = 0; i < 3; i++) {
+            cityDAO.create(new City("Limited projection " + i));
+        }
+
+        assertEquals(2, cityDAO.getAll(IdNameView.class, 2).size());
+    }
+
+    @Test
+    public void projectionsDontLoadEntities() {
+        userDAO.create(new User("Not loaded", 1, new Date()));
+        Statistics statistics = PERSISTENCE.getManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        long entityLoadCount = statistics.getEntityLoadCount();
+
+        assertTrue(userDAO.getAll(IdNameView.class, DAO.NO_LIMIT).size() > 0);
+
+        assertEquals(entityLoadCount, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    public void projectionInUnitOfWorkDoesntFlushChangedInstances() {
+        User user = userDAO.create(new User("Not flushed", 1, new Date()));
+
+        String projectedName = userDAO.inTransaction(dao -> {
+            dao.readById(user.getId()).setName("Changed in unit of work");
+            return dao.getAll(IdNameView.class, DAO.NO_LIMIT).stream()
+                    .filter(view -> view.getId() == user.getId())
+                    .findFirst()
+                    .map(IdNameView::getName)
+                    .orElse(null);
+        });
+
+        // projection query isn't preceded by automatic flush:
+        assertEquals("Not flushed", projectedName);
+        assertEquals("Changed in unit of work", userDAO.readById(user.getId()).getName());
+    }
+
+    @Test
+    public void entitiesOfProjectionInUnitOfWorkAreNotDirtyChecked() {
+        City city = cityDAO.create(new City("Read-only city"));
+        userDAO.create(new User("Citizen of read-only city", 1, new Date(), city));
+
+        userDAO.inTransaction(dao -> {
+            dao.getAll(UserCityView.class, DAO.NO_LIMIT).stream()
+                    .filter(view -> view.getCity().getId() == city.getId())
+                    .forEach(view -> view.getCity().setName("Changed read-only city"));
+            return null;
+        });
+
+        assertEquals("Read-only city", cityDAO.readById(city.getId()).getName());
+    }
+
+    @Test(expected = DAOException.class)
+    public void classWithoutProjectionAnnotationIsRejected() {
+        userDAO.getAll(String.class, DAO.NO_LIMIT);
+    }
+
+    /**
+     * Projection, which contains associated Entity (it's loaded as read-only instance).
+     */
+    @Projection({"name", "city"})
+    public static class UserCityView {
+
+        private final String name;
+        private final City city;
+
+        public UserCityView(String name, City city) {
+            this.name = name;
+            this.city = city;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public City getCity() {
+            return city;
+        }
+    }
+
+}
@@ -0,0 +1,136 @@
+package com.alex323glo.hibernate;
+
+import com.alex323glo.hibernate.dao.GeneralDAO;
+import com.alex323glo.hibernate.exception.DAOException;
+import com.alex323glo.hibernate.model.User;
+import com.alex323glo.hibernate.support.PersistenceRule;
+import org.hibernate.LazyInitializationException;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks cursor-backed 'streamAll' of GeneralDAO: both overloads pass all stored instances
+ * in order of their creation, evict consumed instances and release cursor and EntityManager.
+ */
+public class GeneralDAOStreamTest {
+
+    private static final int STORED_NUMBER = 10;
+
+    @ClassRule
+    public static final PersistenceRule PERSISTENCE = new PersistenceRule("general_dao_stream");
+
+    private static GeneralDAO<Integer, User> userDAO;
+    private static List<Integer> storedIds;
+
+    @BeforeClass
+    public static void setUpClass() {
+        userDAO = PERSISTENCE.createDAO(Integer.class, User.class);
+
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < STORED_NUMBER; i++) {
+            users.add(new User("Streamed " + i, i, new Date()));
+        }
+        userDAO.createAll(users);
+        storedIds = users.stream().map(User::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    public void streamAllToConsumerPassesAllInstancesInOrder() {
+        List<Integer> streamedIds = new ArrayList<>();
+
+        assertEquals(STORED_NUMBER, userDAO.streamAll(user -> streamedIds.add(user.getId())));
+
+        assertEquals(storedIds, streamedIds);
+    }
+
+    @Test
+    public void streamAllToConsumerEvictsConsumedInstances() {
+        AtomicReference<User> previousUser = new AtomicReference<>();
+
+        userDAO.streamAll(user -> {
+            if (previousUser.get() != null) {
+                assertIsDetached(previousUser.get());
+            }
+            previousUser.set(user);
+        });
+    }
+
+    @Test
+    public void failedConsumerFailsStreamAll() {
+        try {
+            userDAO.streamAll(user -> {
+                throw new IllegalStateException("Consumer failure.");
+            });
+            fail("Failure of consumer was ignored.");
+        } catch (DAOException expected) {
+            // the next streaming isn't affected
+        }
+
+        assertEquals(STORED_NUMBER, userDAO.streamAll(user -> { }));
+    }
+
+    @Test
+    public void openedStreamPassesAllInstancesInOrder() {
+        try (Stream<User> stream = userDAO.streamAll()) {
+            assertEquals(storedIds, stream.map(User::getId).collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void openedStreamEvictsInstanceWhenItAdvances() {
+        try (Stream<User> stream = userDAO.streamAll()) {
+            AtomicReference<User> previousUser = new AtomicReference<>();
+
+            stream.forEach(user -> {
+                if (previousUser.get() != null) {
+                    assertIsDetached(previousUser.get());
+                }
+                previousUser.set(user);
+            });
+        }
+    }
+
+    @Test
+    public void streamClosedBeforeTheEndReleasesEntityManager() {
+        User firstUser;
+        try (Stream<User> stream = userDAO.streamAll()) {
+            firstUser = stream.findFirst().orElseThrow(IllegalStateException::new);
+        }
+
+        assertEquals(storedIds.get(0), Integer.valueOf(firstUser.getId()));
+        assertIsDetached(firstUser);
+
+        // closed streams don't hold cursors and connections:
+        for (int i = 0; i < 3 * STORED_NUMBER; i++) {
+            try (Stream<User> stream = userDAO.streamAll()) {
+                stream.findFirst();
+            }
+        }
+        assertEquals(STORED_NUMBER, userDAO.streamAll(user -> { }));
+    }
+
+    /**
+     * Checks, that lazy collection of proposed instance can't be initialized anymore,
+     * because instance isn't managed by open EntityManager.
+     */
+    private static void assertIsDetached(User user) {
+        try {
+            user.getGameList().size();
+            fail("Lazy collection of " + user + " was initialized after eviction.");
+        } catch (LazyInitializationException expected) {
+            // instance was evicted
+        }
+    }
+
+}
@@ -0,0 +1,268 @@
+package com.alex323glo.hibernate;
+
+import com.alex323glo.hibernate.dao.GeneralDAO;
+import com.alex323glo.hibernate.exception.DAOException;
+import com.alex323glo.hibernate.model.Game;
+import com.alex323glo.hibernate.model.User;
+import com.alex323glo.hibernate.support.PersistenceRule;
+import com.alex323glo.hibernate.support.QueryRecorder;
+import com.alex323glo.hibernate.support.QueryRecording;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks 'update', 'updateAll' and 'upsert' of GeneralDAO for Users, which have Games
+ * (detached associated instances mustn't be cascaded), and optimistic versioning of them.
+ */
+public class GeneralDAOUpdateTest {
+
+    @ClassRule
+    public static final PersistenceRule PERSISTENCE = new PersistenceRule("general_dao_update");
+
+    private static GeneralDAO<Integer, User> userDAO;
+
+    @BeforeClass
+    public static void setUpClass() {
+        userDAO = PERSISTENCE.createDAO(Integer.class, User.class);
+    }
+
+    @Test
+    public void updateOfUserWithGamesKeepsGames() {
+        User user = readWithGames(createUserWithGames("Update", 2));
+        user.setAmount(500);
+
+        User oldUser = userDAO.update(user.getId(), user);
+
+        assertEquals(100, oldUser.getAmount(), 0);
+        User storedUser = readWithGames(user.getId());
+        assertEquals(500, storedUser.getAmount(), 0);
+        assertEquals(2, storedUser.getGameList().size());
+        assertEquals(oldUser.getVersion() + 1, storedUser.getVersion());
+        assertEquals(storedUser.getVersion(), user.getVersion());
+    }
+
+    @Test
+    public void updateReturnsUntouchedOldVersion() {
+        User user = readWithGames(createUserWithGames("Old version", 2));
+        user.setName("New version");
+        user.removeGame(user.getGameList().iterator().next());
+
+        User oldUser = userDAO.update(user.getId(), user);
+
+        assertEquals("Old version", oldUser.getName());
+        assertEquals(2, oldUser.getGameList().size());
+        assertEquals(1, readWithGames(user.getId()).getGameList().size());
+    }
+
+    @Test
+    public void updateWritesOnlyChangedColumns() {
+        User user = readWithGames(createUserWithGames("Dynamic update", 1));
+        user.setAmount(200);
+
+        QueryRecording recording = QueryRecorder.record(() -> userDAO.update(user.getId(), user));
+
+        assertOnlyAmountIsUpdated(recording, 1);
+    }
+
+    @Test
+    public void updateAllWritesOnlyChangedColumns() {
+        User firstUser = readWithGames(createUserWithGames("Dynamic update all", 1));
+        User secondUser = readWithGames(createUserWithGames("Dynamic update all", 2));
+        firstUser.setAmount(10);
+        secondUser.setAmount(20);
+
+        QueryRecording recording = QueryRecorder.record(() ->
+                userDAO.updateAll(Arrays.asList(firstUser, secondUser)));
+
+        // both UPDATEs have the same columns, so they are sent as one JDBC batch of one statement:
+        assertOnlyAmountIsUpdated(recording, 1);
+    }
+
+    @Test
+    public void updateWithRetryWritesOnlyChangedColumns() {
+        int userId = createUserWithGames("Dynamic update with retry", 1);
+
+        QueryRecording recording = QueryRecorder.record(() ->
+                userDAO.updateWithRetry(userId, user -> user.setAmount(user.getAmount() + 1)));
+
+        assertOnlyAmountIsUpdated(recording, 1);
+    }
+
+    @Test
+    public void updateOfOutdatedVersionIsRejected() {
+        int userId = createUserWithGames("Outdated", 1);
+        User staleUser = readWithGames(userId);
+        User freshUser = readWithGames(userId);
+        freshUser.setAmount(300);
+        userDAO.update(userId, freshUser);
+
+        staleUser.setName("Lost update");
+        try {
+            userDAO.update(userId, staleUser);
+            fail("Outdated version wasn't rejected.");
+        } catch (DAOException e) {
+            // expected
+        }
+
+        User storedUser = userDAO.readById(userId);
+        assertEquals("Outdated", storedUser.getName());
+        assertEquals(300, storedUser.getAmount(), 0);
+    }
+
+    @Test
+    public void updateAllOfUsersWithGamesKeepsGames() {
+        User firstUser = readWithGames(createUserWithGames("First", 2));
+        User secondUser = readWithGames(createUserWithGames("Second", 3));
+        firstUser.setAmount(1);
+        secondUser.setAmount(2);
+
+        QueryRecording recording = QueryRecorder.record(() ->
+                assertEquals(2, userDAO.updateAll(Arrays.asList(firstUser, secondUser))));
+
+        // stored versions of both Users are loaded by one IN query:
+        assertEquals(1, recording.getStatements().stream()
+                .filter(statement -> statement.getShape().startsWith("select") &&
+                        statement.getShape().contains(" from users "))
+                .count());
+        assertEquals(1, userDAO.readById(firstUser.getId()).getAmount(), 0);
+        assertEquals(2, userDAO.readById(secondUser.getId()).getAmount(), 0);
+        assertEquals(3, readWithGames(secondUser.getId()).getGameList().size());
+    }
+
+    @Test
+    public void updateAllOfMissingUserFailsWithoutInsert() {
+        User missingUser = new User("Missing", 0, new Date());
+        missingUser.setId(Integer.MAX_VALUE);
+
+        try {
+            userDAO.updateAll(Collections.singletonList(missingUser));
+            fail("Update of missing User didn't fail.");
+        } catch (DAOException e) {
+            // expected
+        }
+
+        assertTrue(userDAO.findBy("name", "Missing", 10).isEmpty());
+    }
+
+    @Test
+    public void upsertOfUserWithGamesKeepsGames() {
+        User user = readWithGames(createUserWithGames("Upsert", 2));
+        user.setAmount(700);
+
+        User savedUser = userDAO.upsert(user);
+
+        assertEquals(700, savedUser.getAmount(), 0);
+        assertEquals(2, readWithGames(user.getId()).getGameList().size());
+    }
+
+    @Test
+    public void upsertOfStoredUserExecutesOneStatement() {
+        User userWithGames = readWithGames(createUserWithGames("Upsert with games", 2));
+        User userWithoutGames = userDAO.readById(createUserWithGames("Upsert without games", 2));
+        userWithGames.setAmount(800);
+        userWithoutGames.setAmount(900);
+
+        QueryRecording recording = QueryRecorder.record(() -> {
+            userDAO.upsert(userWithGames);
+            userDAO.upsert(userWithoutGames);
+        });
+
+        recording.assertCount(2);
+        assertEquals(2, recording.getCount("update"));
+        User storedUser = readWithGames(userWithGames.getId());
+        assertEquals(800, storedUser.getAmount(), 0);
+        assertEquals(2, storedUser.getGameList().size());
+        assertEquals(storedUser.getVersion(), userWithGames.getVersion());
+        assertEquals(900, readWithGames(userWithoutGames.getId()).getAmount(), 0);
+    }
+
+    @Test
+    public void upsertOfOutdatedUserFails() {
+        User user = userDAO.readById(createUserWithGames("Outdated upsert", 1));
+        userDAO.patch(user.getId(), Collections.singletonMap("amount", 1.0));
+        user.setAmount(2);
+
+        try {
+            userDAO.upsert(user);
+            fail("Upsert of outdated User didn't fail.");
+        } catch (DAOException e) {
+            // expected
+        }
+
+        assertEquals(1, userDAO.readById(user.getId()).getAmount(), 0);
+    }
+
+    @Test
+    public void upsertOfNewUserCreatesIt() {
+        User user = userDAO.upsert(new User("New upsert", 10, new Date()));
+
+        assertNotEquals(0, user.getId());
+        assertNotNull(userDAO.readById(user.getId()));
+    }
+
+    @Test
+    public void upsertOfMissingUserFails() {
+        User missingUser = new User("Missing upsert", 0, new Date());
+        missingUser.setId(Integer.MAX_VALUE - 1);
+
+        try {
+            userDAO.upsert(missingUser);
+            fail("Upsert of missing User didn't fail.");
+        } catch (DAOException e) {
+            // expected
+        }
+
+        assertNull(userDAO.readById(missingUser.getId()));
+    }
+
+    private static void assertOnlyAmountIsUpdated(QueryRecording recording, int expectedUpdatesNumber) {
+        assertEquals(expectedUpdatesNumber, recording.getCount("update"));
+        recording.getStatements().stream()
+                .filter(statement -> statement.getShape().startsWith("update"))
+                .forEach(statement -> assertTrue(statement.getShape(),
+                        statement.getShape().startsWith("update users set version=?, amount=? where")));
+    }
+
+    private static int createUserWithGames(String name, int gamesNumber) {
+        EntityManager manager = PERSISTENCE.getManagerFactory().createEntityManager();
+        try {
+            manager.getTransaction().begin();
+            User user = new User(name, 100, new Date());
+            for (int i = 0; i < gamesNumber; i++) {
+                Game game = new Game(name + " game " + i);
+                manager.persist(game);
+                user.addGame(game);
+            }
+            manager.persist(user);
+            manager.getTransaction().commit();
+            return user.getId();
+        } finally {
+            manager.close();
+        }
+    }
+
+    /**
+     * @return detached User with initialized Games.
+     */
+    private static User readWithGames(int userId) {
+        return userDAO.inTransaction(dao -> {
+            User user = dao.readById(userId);
+            user.getGameList().size();
+            return user;
+        });
+    }
+
+}
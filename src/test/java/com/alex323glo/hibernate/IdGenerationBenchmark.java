@@ -0,0 +1,80 @@
+package com.alex323glo.hibernate;
+
+import com.alex323glo.hibernate.dao.GeneralDAO;
+import com.alex323glo.hibernate.id.PooledLoSequenceGenerator;
+import com.alex323glo.hibernate.model.User;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures per-insert cost of User with different ID allocation sizes:
+ * 1 (one sequence call per row, as before pooled-lo optimization) and pooled-lo ones.
+ *
+ * Usage: IdGenerationBenchmark [usersNumber] [allocationSize...]
+ */
+public class IdGenerationBenchmark {
+
+    private static final int WARM_UP_ROUNDS = 3;
+
+    public static void main(String[] args) {
+        int usersNumber = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int[] allocationSizes = {1, 50, 100, 500};
+        if (args.length > 1) {
+            allocationSizes = new int[args.length - 1];
+            for (int i = 1; i < args.length; i++) {
+                allocationSizes[i - 1] = Integer.parseInt(args[i]);
+            }
+        }
+
+        for (int allocationSize : allocationSizes) {
+            EntityManagerFactory managerFactory = createFactory(allocationSize);
+            try {
+                GeneralDAO<Integer, User> userDAO = new GeneralDAO<>(managerFactory, Integer.class, User.class);
+
+                for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+                    userDAO.createAll(generateUsers(usersNumber));
+                }
+
+                Statistics statistics = managerFactory.unwrap(SessionFactory.class).getStatistics();
+                statistics.clear();
+
+                long start = System.nanoTime();
+                userDAO.createAll(generateUsers(usersNumber));
+                long elapsed = System.nanoTime() - start;
+
+                System.out.printf("allocationSize=%d: %.2f us/insert, %d statements prepared for %d users%n",
+                        allocationSize, elapsed / 1000.0 / usersNumber,
+                        statistics.getPrepareStatementCount(), usersNumber);
+            } finally {
+                managerFactory.close();
+            }
+        }
+    }
+
+    private static EntityManagerFactory createFactory(int allocationSize) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("javax.persistence.jdbc.url", "jdbc:h2:mem:id_benchmark_" + allocationSize + ";DB_CLOSE_DELAY=-1");
+        properties.put("hibernate.hbm2ddl.auto", "create-drop");
+        properties.put("hibernate.show_sql", "false");
+        properties.put(PooledLoSequenceGenerator.ALLOCATION_SIZE_PROPERTY, String.valueOf(allocationSize));
+        properties.put(PooledLoSequenceGenerator.ALLOCATION_SIZE_PROPERTY + ".User", String.valueOf(allocationSize));
+        return Persistence.createEntityManagerFactory("test-hibernate-h2-unit", properties);
+    }
+
+    private static List<User> generateUsers(int usersNumber) {
+        List<User> users = new ArrayList<>(usersNumber);
+        for (int i = 0; i < usersNumber; i++) {
+            users.add(new User("User " + i, i, new Date()));
+        }
+        return users;
+    }
+
+}
@@ -0,0 +1,74 @@
+package com.alex323glo.hibernate;
+
+import com.alex323glo.hibernate.dao.GeneralDAO;
+import com.alex323glo.hibernate.model.City;
+import com.alex323glo.hibernate.model.User;
+import com.alex323glo.hibernate.support.PersistenceRule;
+import com.alex323glo.hibernate.support.QueryRecorder;
+import com.alex323glo.hibernate.support.QueryRecording;
+import com.alex323glo.hibernate.support.RecordedStatement;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks, that IDs of each Entity are generated by its own pooled-lo sequence with
+ * configured allocation size (see persistence.xml), so batched inserts don't call
+ * sequence per row.
+ */
+public class IdGenerationTest {
+
+    private static final int USER_ALLOCATION_SIZE = 100;
+    private static final int DEFAULT_ALLOCATION_SIZE = 50;
+
+    @ClassRule
+    public static final PersistenceRule PERSISTENCE = new PersistenceRule("id_generation");
+
+    private static GeneralDAO<Integer, User> userDAO;
+    private static GeneralDAO<Integer, City> cityDAO;
+
+    @BeforeClass
+    public static void setUpClass() {
+        userDAO = PERSISTENCE.createDAO(Integer.class, User.class);
+        cityDAO = PERSISTENCE.createDAO(Integer.class, City.class);
+    }
+
+    @Test
+    public void sequenceIsCalledOncePerAllocation() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 2 * USER_ALLOCATION_SIZE + 1; i++) {
+            users.add(new User("User " + i, i, new Date()));
+        }
+        List<City> cities = new ArrayList<>();
+        for (int i = 0; i < DEFAULT_ALLOCATION_SIZE + 1; i++) {
+            cities.add(new City("City " + i));
+        }
+
+        QueryRecording userRecording = QueryRecorder.record(() -> userDAO.createAll(users));
+        QueryRecording cityRecording = QueryRecorder.record(() -> cityDAO.createAll(cities));
+
+        assertEquals(3, countSequenceCalls(userRecording, "user_seq"));
+        assertEquals(2, countSequenceCalls(cityRecording, "city_seq"));
+
+        Set<Integer> ids = new HashSet<>();
+        users.forEach(user -> ids.add(user.getId()));
+        assertEquals(users.size(), ids.size());
+    }
+
+    private static long countSequenceCalls(QueryRecording recording, String sequenceName) {
+        List<RecordedStatement> statements = recording.getStatements();
+        assertTrue(statements.toString(), statements.stream().noneMatch(statement ->
+                statement.getShape().contains("_seq") && !statement.getShape().contains(sequenceName)));
+        return statements.stream().filter(statement -> statement.getShape().contains(sequenceName)).count();
+    }
+
+}
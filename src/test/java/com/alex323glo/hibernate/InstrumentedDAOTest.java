@@ -0,0 +1,164 @@
+package com.alex323glo.hibernate;
+
+import com.alex323glo.hibernate.dao.DAO;
+import com.alex323glo.hibernate.dao.GeneralDAO;
+import com.alex323glo.hibernate.dao.InstrumentedDAO;
+import com.alex323glo.hibernate.exception.DAOException;
+import com.alex323glo.hibernate.metrics.DAOMetrics;
+import com.alex323glo.hibernate.metrics.OperationMetrics;
+import com.alex323glo.hibernate.metrics.OperationSnapshot;
+import com.alex323glo.hibernate.model.User;
+import com.alex323glo.hibernate.support.PersistenceRule;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import java.lang.management.ManagementFactory;
+import java.util.Date;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks measuring of DAO operations by InstrumentedDAO: counts, error counts and latencies
+ * per operation, snapshots of OperationMetrics and JMX access to DAOMetrics.
+ */
+public class InstrumentedDAOTest {
+
+    @ClassRule
+    public static final PersistenceRule PERSISTENCE = new PersistenceRule("instrumented_dao");
+
+    private InstrumentedDAO<Integer, User> userDAO;
+
+    @Before
+    public void setUp() {
+        userDAO = new InstrumentedDAO<>(PERSISTENCE.createDAO(Integer.class, User.class));
+    }
+
+    @Test
+    public void operationsAreCountedSeparately() {
+        User user = userDAO.create(new User("Measured", 1, new Date()));
+        for (int i = 0; i < 3; i++) {
+            userDAO.readById(user.getId());
+        }
+
+        Map<String, OperationSnapshot> snapshots = userDAO.getMetrics().getOperations();
+
+        assertEquals(1, snapshots.get("create").getCount());
+        assertEquals(3, snapshots.get("readById").getCount());
+        assertEquals(0, snapshots.get("readById").getErrorCount());
+        assertEquals(0, snapshots.get("getAll").getCount());
+        assertTrue(snapshots.get("readById").getMaxMicros() > 0);
+        assertTrue(snapshots.get("readById").getMeanMicros() <= snapshots.get("readById").getMaxMicros());
+    }
+
+    @Test
+    public void failedOperationsAreCountedAsErrors() {
+        userDAO.findBy("name", "Nobody", DAO.NO_LIMIT);
+        try {
+            userDAO.findBy("nickname", "Nobody", DAO.NO_LIMIT);
+            fail("Instances were found by unknown attribute.");
+        } catch (DAOException expected) {
+            // failed operation is measured too
+        }
+
+        OperationSnapshot snapshot = userDAO.getMetrics().getOperations().get("findBy");
+        assertEquals(2, snapshot.getCount());
+        assertEquals(1, snapshot.getErrorCount());
+    }
+
+    @Test
+    public void disabledMetricsDontMeasureOperations() {
+        userDAO.getMetrics().setEnabled(false);
+        userDAO.getAll(DAO.NO_LIMIT);
+        userDAO.getMetrics().setEnabled(true);
+        userDAO.getAll(DAO.NO_LIMIT);
+
+        assertEquals(1, userDAO.getMetrics().getOperations().get("getAll").getCount());
+    }
+
+    @Test
+    public void snapshotsDontCountExecutionsTwice() {
+        OperationMetrics metrics = new OperationMetrics("operation");
+        metrics.record(1_000, false);
+        metrics.record(3_000, true);
+
+        assertEquals(2, metrics.snapshot().getCount());
+        // executions of the previous interval are accumulated only once:
+        OperationSnapshot snapshot = metrics.snapshot();
+        assertEquals(2, snapshot.getCount());
+        assertEquals(1, snapshot.getErrorCount());
+        assertEquals(3.0, snapshot.getMaxMicros(), 0.01);
+
+        metrics.record(2_000, false);
+        assertEquals(3, metrics.snapshot().getCount());
+
+        metrics.reset();
+        snapshot = metrics.snapshot();
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getErrorCount());
+    }
+
+    @Test
+    public void metricsAreReadableThroughMBeanServer() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        DAOMetrics metrics = userDAO.getMetrics();
+        ObjectName objectName = objectNameOf(metrics);
+        userDAO.getAll(DAO.NO_LIMIT);
+
+        metrics.registerMBean();
+        try {
+            assertEquals(true, server.getAttribute(objectName, "Enabled"));
+
+            TabularData operations = (TabularData) server.getAttribute(objectName, "Operations");
+            CompositeData getAll = (CompositeData) operations.get(new Object[]{"getAll"}).get("value");
+            assertEquals("getAll", getAll.get("name"));
+            assertEquals(1L, getAll.get("count"));
+            assertEquals(0L, getAll.get("errorCount"));
+
+            CompositeData statistics = (CompositeData) server.getAttribute(objectName, "Statistics");
+            assertTrue((Long) statistics.get("queryExecutionCount") > 0);
+
+            server.invoke(objectName, "reset", new Object[0], new String[0]);
+            assertEquals(0, metrics.getOperations().get("getAll").getCount());
+        } finally {
+            metrics.unregisterMBean();
+        }
+    }
+
+    @Test
+    public void unregisteredMetricsLeaveNoMBean() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        DAOMetrics metrics = userDAO.getMetrics();
+        ObjectName objectName = objectNameOf(metrics);
+
+        metrics.registerMBean();
+        try {
+            new DAOMetrics(metrics.getName(), null).registerMBean();
+            fail("Metrics with the same name were registered twice.");
+        } catch (IllegalStateException expected) {
+            // ObjectName is taken by registered metrics
+        } finally {
+            metrics.unregisterMBean();
+        }
+        assertFalse(server.isRegistered(objectName));
+
+        // the name could be registered again, and repeated removal is ignored:
+        metrics.registerMBean();
+        metrics.unregisterMBean();
+        metrics.unregisterMBean();
+        assertFalse(server.isRegistered(objectName));
+    }
+
+    private static ObjectName objectNameOf(DAOMetrics metrics) throws Exception {
+        return new ObjectName("com.alex323glo.hibernate:type=DAOMetrics,name=" + ObjectName.quote(metrics.getName()));
+    }
+
+}
@@ -0,0 +1,338 @@
+package com.alex323glo.hibernate;
+
+import com.alex323glo.hibernate.dao.GeneralDAO;
+import com.alex323glo.hibernate.model.City;
+import com.alex323glo.hibernate.model.Game;
+import com.alex323glo.hibernate.model.User;
+import com.alex323glo.hibernate.pool.PoolMetrics;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.HdrHistogram.Recorder;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Mixed-workload load generator (and soak test) of GeneralDAO.
+ *
+ * Seeds Cities, Games and Users (each User lives in random City and plays several random Games),
+ * then replays operation mix from N threads with open-loop scheduling: every thread has fixed
+ * schedule of intended start times (total rate is 'load.rate' operations per second), and latency
+ * is measured from intended start time, so slow operations don't hide the queueing delay of the
+ * following ones (no coordinated omission).
+ *
+ * Operations: READ (User by ID), UPDATE (patch of User's amount), INSERT/DELETE (new User is
+ * created, or one of Users, created by driver, is deleted - half of the time each).
+ *
+ * Every 'load.interval' seconds throughput, error count and latency percentiles of each operation
+ * are written to CSV file and interval histograms - to HdrHistogram log (tagged by operation),
+ * so runs could be compared with each other (e.g. with HistogramLogProcessor).
+ *
+ * System properties (defaults in brackets):
+ *  - load.cities [100], load.games [500], load.users [10000], load.gamesPerUser [3] - seeded data;
+ *  - load.threads [8], load.rate [1000] - number of threads and total operations per second;
+ *  - load.mix [80,15,5] - percents of READ, UPDATE and INSERT/DELETE operations;
+ *  - load.duration [60], load.interval [5] - duration of run and reporting interval (seconds);
+ *  - load.url [in-memory H2] - JDBC URL of DB (schema is recreated);
+ *  - load.output [build/reports/load] - directory of CSV and HdrHistogram log files.
+ */
+public class LoadDriver {
+
+    private enum Operation {
+        READ, UPDATE, INSERT, DELETE
+    }
+
+    private static final String CSV_HEADER =
+            "elapsed_s,operation,count,throughput_ops_s,errors,p50_us,p90_us,p99_us,p999_us,max_us";
+
+    private static final long MAX_LATENCY_NANOS = TimeUnit.HOURS.toNanos(1);
+
+    private final int threadsNumber;
+    private final double rate;
+    private final int readPercent;
+    private final int updatePercent;
+    private final long durationNanos;
+
+    private final GeneralDAO<Integer, User> userDAO;
+    private final List<City> cities;
+    private final int[] userIds;
+    private final ConcurrentLinkedQueue<Integer> insertedUserIds = new ConcurrentLinkedQueue<>();
+
+    private final Map<Operation, Recorder> recorders = new HashMap<>();
+    private final Map<Operation, LongAdder> errors = new HashMap<>();
+    private final Map<Operation, Histogram> totals = new HashMap<>();
+
+    private long lastReportMillis;
+
+    private LoadDriver(GeneralDAO<Integer, User> userDAO, List<City> cities, int[] userIds) {
+        this.threadsNumber = Integer.getInteger("load.threads", 8);
+        this.rate = Double.parseDouble(System.getProperty("load.rate", "1000"));
+        this.durationNanos = TimeUnit.SECONDS.toNanos(Long.getLong("load.duration", 60));
+
+        String[] mix = System.getProperty("load.mix", "80,15,5").split(",");
+        this.readPercent = Integer.parseInt(mix[0].trim());
+        this.updatePercent = Integer.parseInt(mix[1].trim());
+        if (readPercent + updatePercent > 100) {
+            throw new IllegalArgumentException("Operation mix " + String.join(",", mix) + " exceeds 100%.");
+        }
+
+        this.userDAO = userDAO;
+        this.cities = cities;
+        this.userIds = userIds;
+
+        for (Operation operation : Operation.values()) {
+            recorders.put(operation, new Recorder(MAX_LATENCY_NANOS, 3));
+            errors.put(operation, new LongAdder());
+            totals.put(operation, new Histogram(MAX_LATENCY_NANOS, 3));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        EntityManagerFactory managerFactory = createFactory();
+        try {
+            GeneralDAO<Integer, City> cityDAO = new GeneralDAO<>(managerFactory, Integer.class, City.class);
+            GeneralDAO<Integer, Game> gameDAO = new GeneralDAO<>(managerFactory, Integer.class, Game.class);
+            GeneralDAO<Integer, User> userDAO = new GeneralDAO<>(managerFactory, Integer.class, User.class);
+
+            long seedStart = System.nanoTime();
+            List<City> cities = new ArrayList<>();
+            for (int i = 0; i < Integer.getInteger("load.cities", 100); i++) {
+                cities.add(new City("City " + i));
+            }
+            cityDAO.createAll(cities);
+
+            List<Game> games = new ArrayList<>();
+            for (int i = 0; i < Integer.getInteger("load.games", 500); i++) {
+                games.add(new Game("Game " + i));
+            }
+            gameDAO.createAll(games);
+
+            int[] userIds = seedUsers(managerFactory, cities, games,
+                    Integer.getInteger("load.users", 10_000), Integer.getInteger("load.gamesPerUser", 3));
+            System.out.printf("Seeded %d cities, %d games and %d users in %d ms.%n", cities.size(), games.size(),
+                    userIds.length, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - seedStart));
+
+            // pool metrics are collected since the first call:
+            PoolMetrics poolMetrics = userDAO.getPoolMetrics();
+            new LoadDriver(userDAO, cities, userIds).run();
+            System.out.println(poolMetrics);
+        } finally {
+            managerFactory.close();
+        }
+    }
+
+    private static EntityManagerFactory createFactory() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("javax.persistence.jdbc.url",
+                System.getProperty("load.url", "jdbc:h2:mem:load_driver;DB_CLOSE_DELAY=-1"));
+        properties.put("hibernate.hbm2ddl.auto", "create");
+        properties.put("hibernate.show_sql", "false");
+        return Persistence.createEntityManagerFactory("test-hibernate-h2-unit", properties);
+    }
+
+    /**
+     * Stores Users in batches. Cities and Games are referenced by proxies of current persistence
+     * context, so they aren't loaded (and detached instances aren't cascaded to 'persist').
+     *
+     * @return IDs of stored Users.
+     */
+    private static int[] seedUsers(EntityManagerFactory managerFactory, List<City> cities, List<Game> games,
+                                   int usersNumber, int gamesPerUser) {
+        int[] userIds = new int[usersNumber];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        EntityManager manager = managerFactory.createEntityManager();
+        try {
+            manager.getTransaction().begin();
+            for (int i = 0; i < usersNumber; i++) {
+                City city = cities.get(random.nextInt(cities.size()));
+                User user = new User("User " + i, random.nextInt(100_000), new Date(),
+                        manager.getReference(City.class, city.getId()));
+                for (int j = 0; j < gamesPerUser && !games.isEmpty(); j++) {
+                    Game game = games.get(random.nextInt(games.size()));
+                    user.getGameList().add(manager.getReference(Game.class, game.getId()));
+                }
+                manager.persist(user);
+                userIds[i] = user.getId();
+
+                if ((i + 1) % GeneralDAO.DEFAULT_BATCH_SIZE == 0) {
+                    manager.flush();
+                    manager.clear();
+                }
+            }
+            manager.getTransaction().commit();
+        } catch (RuntimeException e) {
+            if (manager.getTransaction().isActive()) {
+                manager.getTransaction().rollback();
+            }
+            throw e;
+        } finally {
+            manager.close();
+        }
+        return userIds;
+    }
+
+    private void run() throws InterruptedException, FileNotFoundException {
+        File outputDir = new File(System.getProperty("load.output", "build/reports/load"));
+        if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            throw new IllegalStateException("Can't create directory " + outputDir + ".");
+        }
+        String runName = "load-" + System.currentTimeMillis();
+        long intervalMillis = TimeUnit.SECONDS.toMillis(Long.getLong("load.interval", 5));
+
+        try (PrintStream csv = new PrintStream(new File(outputDir, runName + ".csv"));
+             PrintStream log = new PrintStream(new File(outputDir, runName + ".hlog"))) {
+            HistogramLogWriter logWriter = new HistogramLogWriter(log);
+            long startMillis = System.currentTimeMillis();
+            lastReportMillis = startMillis;
+            logWriter.outputLogFormatVersion();
+            logWriter.outputStartTime(startMillis);
+            logWriter.setBaseTime(startMillis);
+            logWriter.outputLegend();
+            csv.println(CSV_HEADER);
+
+            System.out.printf("Running %.0f ops/s from %d threads for %d s (%d%% reads, %d%% updates), " +
+                            "results: %s.{csv,hlog}%n", rate, threadsNumber,
+                    TimeUnit.NANOSECONDS.toSeconds(durationNanos), readPercent, updatePercent,
+                    new File(outputDir, runName));
+
+            ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+            reporter.scheduleAtFixedRate(() -> report(startMillis, csv, logWriter),
+                    intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+
+            long startNanos = System.nanoTime();
+            List<Thread> workers = new ArrayList<>();
+            for (int i = 0; i < threadsNumber; i++) {
+                int workerNumber = i;
+                Thread worker = new Thread(() -> work(workerNumber, startNanos), "load-worker-" + i);
+                workers.add(worker);
+                worker.start();
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+
+            reporter.shutdown();
+            reporter.awaitTermination(1, TimeUnit.MINUTES);
+            report(startMillis, csv, logWriter);
+        }
+
+        System.out.println("Totals (latency in us, from intended start time):");
+        for (Operation operation : Operation.values()) {
+            Histogram total = totals.get(operation);
+            System.out.printf("  %-6s count=%d, p50=%.1f, p90=%.1f, p99=%.1f, p99.9=%.1f, max=%.1f%n",
+                    operation, total.getTotalCount(), micros(total.getValueAtPercentile(50)),
+                    micros(total.getValueAtPercentile(90)), micros(total.getValueAtPercentile(99)),
+                    micros(total.getValueAtPercentile(99.9)), micros(total.getMaxValue()));
+        }
+    }
+
+    /**
+     * Executes operations of one thread according to its fixed schedule, until the end of run.
+     *
+     * @param workerNumber number of thread (shifts its schedule inside of period).
+     * @param startNanos start time of run.
+     */
+    private void work(int workerNumber, long startNanos) {
+        long periodNanos = (long) (TimeUnit.SECONDS.toNanos(1) * threadsNumber / rate);
+        long intendedStart = startNanos + periodNanos * workerNumber / threadsNumber;
+        long endNanos = startNanos + durationNanos;
+
+        while (intendedStart < endNanos) {
+            long delay = intendedStart - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+                continue;
+            }
+
+            Operation operation = nextOperation();
+            try {
+                execute(operation);
+            } catch (RuntimeException e) {
+                errors.get(operation).increment();
+            }
+            recorders.get(operation).recordValue(Math.min(System.nanoTime() - intendedStart, MAX_LATENCY_NANOS));
+
+            intendedStart += periodNanos;
+        }
+    }
+
+    private Operation nextOperation() {
+        int dice = ThreadLocalRandom.current().nextInt(100);
+        if (dice < readPercent) {
+            return Operation.READ;
+        } else if (dice < readPercent + updatePercent) {
+            return Operation.UPDATE;
+        }
+        return ThreadLocalRandom.current().nextBoolean() ? Operation.INSERT : Operation.DELETE;
+    }
+
+    private void execute(Operation operation) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (operation) {
+            case READ:
+                userDAO.readById(userIds[random.nextInt(userIds.length)]);
+                break;
+            case UPDATE:
+                userDAO.patch(userIds[random.nextInt(userIds.length)],
+                        Collections.singletonMap("amount", (double) random.nextInt(100_000)));
+                break;
+            case INSERT:
+                User user = new User("Load user", random.nextInt(100_000), new Date(),
+                        cities.get(random.nextInt(cities.size())));
+                insertedUserIds.add(userDAO.create(user).getId());
+                break;
+            case DELETE:
+                Integer id = insertedUserIds.poll();
+                if (id != null) {
+                    userDAO.delete(id);
+                }
+                break;
+        }
+    }
+
+    /**
+     * Writes interval histograms of all operations to CSV and HdrHistogram log.
+     */
+    private synchronized void report(long startMillis, PrintStream csv, HistogramLogWriter logWriter) {
+        long nowMillis = System.currentTimeMillis();
+        long intervalMillis = Math.max(nowMillis - lastReportMillis, 1);
+        lastReportMillis = nowMillis;
+        double elapsedSeconds = (nowMillis - startMillis) / 1000.0;
+        for (Operation operation : Operation.values()) {
+            Histogram interval = recorders.get(operation).getIntervalHistogram();
+            interval.setTag(operation.name());
+            logWriter.outputIntervalHistogram(interval);
+            totals.get(operation).add(interval);
+
+            csv.printf("%.1f,%s,%d,%.1f,%d,%.1f,%.1f,%.1f,%.1f,%.1f%n", elapsedSeconds, operation,
+                    interval.getTotalCount(), interval.getTotalCount() * 1000.0 / intervalMillis,
+                    errors.get(operation).sumThenReset(), micros(interval.getValueAtPercentile(50)),
+                    micros(interval.getValueAtPercentile(90)), micros(interval.getValueAtPercentile(99)),
+                    micros(interval.getValueAtPercentile(99.9)), micros(interval.getMaxValue()));
+        }
+        csv.flush();
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1000.0;
+    }
+
+}
@@ -0,0 +1,92 @@
+package com.alex323glo.hibernate;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Smoke test of LoadDriver: short run with tiny dataset and low rate writes CSV report
+ * and HdrHistogram log of all operations without errors.
+ */
+public class LoadDriverTest {
+
+    private static final String CSV_HEADER =
+            "elapsed_s,operation,count,throughput_ops_s,errors,p50_us,p90_us,p99_us,p999_us,max_us";
+
+    @Rule
+    public final TemporaryFolder outputFolder = new TemporaryFolder();
+
+    private final Map<String, String> properties = new HashMap<>();
+    private final Map<String, String> oldProperties = new HashMap<>();
+
+    @Before
+    public void setUp() {
+        properties.put("load.cities", "3");
+        properties.put("load.games", "5");
+        properties.put("load.users", "50");
+        properties.put("load.gamesPerUser", "2");
+        properties.put("load.threads", "2");
+        properties.put("load.rate", "200");
+        properties.put("load.duration", "1");
+        properties.put("load.interval", "1");
+        properties.put("load.url", "jdbc:h2:mem:load_driver_test;DB_CLOSE_DELAY=-1");
+        properties.put("load.output", outputFolder.getRoot().getPath());
+
+        for (Map.Entry<String, String> property : properties.entrySet()) {
+            oldProperties.put(property.getKey(), System.getProperty(property.getKey()));
+            System.setProperty(property.getKey(), property.getValue());
+        }
+    }
+
+    @After
+    public void tearDown() {
+        for (Map.Entry<String, String> property : oldProperties.entrySet()) {
+            if (property.getValue() == null) {
+                System.clearProperty(property.getKey());
+            } else {
+                System.setProperty(property.getKey(), property.getValue());
+            }
+        }
+    }
+
+    @Test
+    public void runIsReportedToCsvAndHistogramLog() throws Exception {
+        LoadDriver.main(new String[0]);
+
+        File[] csvFiles = outputFolder.getRoot().listFiles((dir, name) -> name.endsWith(".csv"));
+        File[] logFiles = outputFolder.getRoot().listFiles((dir, name) -> name.endsWith(".hlog"));
+        assertNotNull(csvFiles);
+        assertNotNull(logFiles);
+        assertEquals(1, csvFiles.length);
+        assertEquals(1, logFiles.length);
+        assertTrue(logFiles[0].length() > 0);
+
+        List<String> lines = Files.readAllLines(csvFiles[0].toPath());
+        assertEquals(CSV_HEADER, lines.get(0));
+        assertTrue(lines.size() > 1);
+
+        long readNumber = 0;
+        for (String line : lines.subList(1, lines.size())) {
+            String[] columns = line.split(",");
+            assertEquals(line, 10, columns.length);
+            assertEquals(line, "0", columns[4]);
+            if (columns[1].equals("READ")) {
+                readNumber += Long.parseLong(columns[2]);
+            }
+        }
+        assertTrue(readNumber > 0);
+    }
+
+}
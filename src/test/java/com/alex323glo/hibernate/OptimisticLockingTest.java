@@ -0,0 +1,170 @@
+package com.alex323glo.hibernate;
+
+import com.alex323glo.hibernate.dao.GeneralDAO;
+import com.alex323glo.hibernate.dao.RetryPolicy;
+import com.alex323glo.hibernate.exception.DAOException;
+import com.alex323glo.hibernate.model.User;
+import com.alex323glo.hibernate.support.PersistenceRule;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks optimistic versioning of User and 'updateWithRetry' of GeneralDAO: concurrent
+ * changes of the same instance aren't lost, and mutation is re-applied to re-read instance.
+ */
+public class OptimisticLockingTest {
+
+    private static final RetryPolicy PATIENT_POLICY = RetryPolicy.of(1000, Duration.ofMillis(1), Duration.ofMillis(5));
+
+    @ClassRule
+    public static final PersistenceRule PERSISTENCE = new PersistenceRule("optimistic_locking");
+
+    private static GeneralDAO<Integer, User> userDAO;
+
+    @BeforeClass
+    public static void setUpClass() {
+        userDAO = PERSISTENCE.createDAO(Integer.class, User.class);
+    }
+
+    @Test
+    public void concurrentIncrementsAreNotLost() throws Exception {
+        int threadsNumber = 4;
+        int incrementsNumber = 25;
+        User user = userDAO.create(new User("Hot row", 0, new Date()));
+        ExecutorService executor = Executors.newFixedThreadPool(threadsNumber);
+        CountDownLatch startLatch = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threadsNumber; i++) {
+                futures.add(executor.submit(() -> {
+                    startLatch.await();
+                    for (int j = 0; j < incrementsNumber; j++) {
+                        userDAO.updateWithRetry(user.getId(), value -> value.setAmount(value.getAmount() + 1),
+                                PATIENT_POLICY);
+                    }
+                    return null;
+                }));
+            }
+            startLatch.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        User storedUser = userDAO.readById(user.getId());
+        assertEquals(threadsNumber * incrementsNumber, storedUser.getAmount(), 0);
+        assertEquals(user.getVersion() + threadsNumber * incrementsNumber, storedUser.getVersion());
+    }
+
+    @Test
+    public void mutationIsReappliedToReReadInstance() {
+        int userId = userDAO.create(new User("Retried", 0, new Date())).getId();
+        AtomicInteger attemptsNumber = new AtomicInteger();
+
+        User updatedUser = userDAO.updateWithRetry(userId, user -> {
+            if (attemptsNumber.incrementAndGet() == 1) {
+                // concurrent change, committed between read and write of the first attempt:
+                userDAO.patch(userId, Collections.singletonMap("amount", 100.0));
+            }
+            user.setAmount(user.getAmount() + 1);
+        }, PATIENT_POLICY);
+
+        assertEquals(2, attemptsNumber.get());
+        assertEquals(101, updatedUser.getAmount(), 0);
+        assertEquals(101, userDAO.readById(userId).getAmount(), 0);
+    }
+
+    @Test
+    public void conflictWithoutRetryFailsAndKeepsConcurrentChange() {
+        int userId = userDAO.create(new User("Not retried", 0, new Date())).getId();
+
+        try {
+            userDAO.updateWithRetry(userId, user -> {
+                userDAO.patch(userId, Collections.singletonMap("amount", 100.0));
+                user.setAmount(user.getAmount() + 1);
+            }, RetryPolicy.NO_RETRY);
+            fail("Concurrent modification wasn't detected.");
+        } catch (DAOException e) {
+            // expected
+        }
+
+        assertEquals(100, userDAO.readById(userId).getAmount(), 0);
+    }
+
+    @Test
+    public void sameInstanceIsUpdatedTwice() {
+        User user = userDAO.create(new User("Updated twice", 0, new Date()));
+
+        user.setAmount(1);
+        userDAO.update(user.getId(), user);
+        user.setAmount(2);
+        userDAO.update(user.getId(), user);
+
+        User storedUser = userDAO.readById(user.getId());
+        assertEquals(2, storedUser.getAmount(), 0);
+        assertEquals(storedUser.getVersion(), user.getVersion());
+    }
+
+    @Test
+    public void sameInstancesAreUpdatedTwiceByBatchAndInUnitOfWork() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            users.add(userDAO.create(new User("Batch updated twice " + i, 0, new Date())));
+        }
+
+        users.forEach(user -> user.setAmount(1));
+        userDAO.updateAll(users);
+        users.forEach(user -> user.setAmount(2));
+        userDAO.inTransaction(dao -> dao.updateAll(users));
+        users.forEach(user -> user.setAmount(3));
+        userDAO.updateAll(users);
+
+        for (User user : users) {
+            User storedUser = userDAO.readById(user.getId());
+            assertEquals(3, storedUser.getAmount(), 0);
+            assertEquals(storedUser.getVersion(), user.getVersion());
+        }
+    }
+
+    @Test
+    public void backoffGrowsExponentiallyWithJitterUpToMax() {
+        RetryPolicy retryPolicy = RetryPolicy.of(10, Duration.ofNanos(1000), Duration.ofNanos(5000));
+
+        for (int i = 0; i < 100; i++) {
+            assertInRange(500, 1000, retryPolicy.nextBackoffNanos(2));
+            assertInRange(1000, 2000, retryPolicy.nextBackoffNanos(3));
+            assertInRange(2000, 4000, retryPolicy.nextBackoffNanos(4));
+            assertInRange(2500, 5000, retryPolicy.nextBackoffNanos(5));
+            assertInRange(2500, 5000, retryPolicy.nextBackoffNanos(Integer.MAX_VALUE));
+        }
+        assertEquals(0, RetryPolicy.NO_RETRY.nextBackoffNanos(2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void policyWithoutAttemptsIsRejected() {
+        RetryPolicy.DEFAULT.withMaxAttempts(0);
+    }
+
+    private static void assertInRange(long min, long max, long actual) {
+        assertTrue(actual + " isn't in [" + min + ", " + max + "]", actual >= min && actual <= max);
+    }
+
+}
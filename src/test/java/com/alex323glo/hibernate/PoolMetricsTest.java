@@ -0,0 +1,171 @@
+package com.alex323glo.hibernate;
+
+import com.alex323glo.hibernate.dao.GeneralDAO;
+import com.alex323glo.hibernate.exception.DAOException;
+import com.alex323glo.hibernate.model.User;
+import com.alex323glo.hibernate.pool.PoolMetrics;
+import com.alex323glo.hibernate.support.PersistenceRule;
+import com.alex323glo.hibernate.support.TestPersistence;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.MetricsTracker;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks PoolMetrics of HikariCP connection pool of persistence unit: installation of its
+ * metrics tracker and counters of connection acquisitions, usage and timeouts.
+ */
+public class PoolMetricsTest {
+
+    @ClassRule
+    public static final PersistenceRule PERSISTENCE = new PersistenceRule("pool_metrics");
+
+    private static GeneralDAO<Integer, User> userDAO;
+
+    @BeforeClass
+    public static void setUpClass() {
+        userDAO = PERSISTENCE.createDAO(Integer.class, User.class);
+    }
+
+    @Test
+    public void metricsAreInstalledToPoolOnlyOnce() {
+        PoolMetrics metrics = PoolMetrics.of(PERSISTENCE.getManagerFactory());
+
+        assertSame(metrics, PoolMetrics.of(PERSISTENCE.getManagerFactory()));
+        assertSame(metrics, userDAO.getPoolMetrics());
+        assertSame(metrics, dataSourceOf(PERSISTENCE.getManagerFactory()).getMetricsTrackerFactory());
+        assertEquals("test-hibernate-h2-pool", metrics.getPoolName());
+        assertEquals(10, metrics.getMaximumPoolSize());
+    }
+
+    @Test
+    public void metricsAreInstalledOnceByConcurrentCalls() throws Exception {
+        EntityManagerFactory factory = createSecondFactory("pool_metrics_concurrent", new HashMap<>());
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<PoolMetrics>> calls = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                calls.add(() -> PoolMetrics.of(factory));
+            }
+
+            for (Future<PoolMetrics> metrics : executor.invokeAll(calls)) {
+                assertSame(dataSourceOf(factory).getMetricsTrackerFactory(), metrics.get());
+            }
+        } finally {
+            executor.shutdownNow();
+            factory.close();
+        }
+    }
+
+    @Test
+    public void anotherMetricsTrackerIsNotReplaced() {
+        EntityManagerFactory factory = createSecondFactory("pool_metrics_foreign", new HashMap<>());
+        try {
+            dataSourceOf(factory).setMetricsTrackerFactory((poolName, poolStats) -> new MetricsTracker());
+
+            PoolMetrics.of(factory);
+            fail("Metrics tracker of pool was replaced.");
+        } catch (IllegalStateException expected) {
+            // pool allows only one metrics tracker
+        } finally {
+            factory.close();
+        }
+    }
+
+    @Test
+    public void countersMoveAfterOperationsOfDAO() {
+        PoolMetrics metrics = userDAO.getPoolMetrics();
+        long acquiredNumber = metrics.getAcquiredNumber();
+
+        User user = userDAO.create(new User("Pooled", 1, new Date()));
+        for (int i = 0; i < 4; i++) {
+            userDAO.readById(user.getId());
+        }
+        // connection is borrowed for the whole unit of work:
+        userDAO.inTransaction(dao -> {
+            dao.readById(user.getId());
+            sleep(50);
+            return null;
+        });
+
+        assertTrue(metrics.getAcquiredNumber() >= acquiredNumber + 6);
+        assertTrue(metrics.getMaxUsageMillis() >= 50);
+        assertTrue(metrics.getAverageUsageMillis() > 0);
+        assertTrue(metrics.getTotalConnections() > 0);
+        assertEquals(0, metrics.getTimeoutNumber());
+    }
+
+    @Test
+    public void timeoutOfExhaustedPoolIsCounted() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("hibernate.hikari.minimumIdle", "1");
+        properties.put("hibernate.hikari.maximumPoolSize", "1");
+        properties.put("hibernate.hikari.connectionTimeout", "250");
+        EntityManagerFactory factory = createSecondFactory("pool_metrics_exhausted", properties);
+        try {
+            GeneralDAO<Integer, User> exhaustedUserDAO = new GeneralDAO<>(factory, Integer.class, User.class);
+            PoolMetrics metrics = exhaustedUserDAO.getPoolMetrics();
+            User user = exhaustedUserDAO.create(new User("Waiting", 1, new Date()));
+
+            // the only connection is borrowed by unit of work, while another thread waits for it:
+            exhaustedUserDAO.inTransaction(dao -> {
+                try {
+                    CompletableFuture.supplyAsync(() -> exhaustedUserDAO.readById(user.getId())).join();
+                    fail("Connection was borrowed from exhausted pool.");
+                } catch (CompletionException e) {
+                    assertTrue(e.getCause() instanceof DAOException);
+                }
+                return null;
+            });
+
+            assertEquals(1, metrics.getTimeoutNumber());
+        } finally {
+            factory.close();
+        }
+    }
+
+    /**
+     * Creates persistence unit, which is opened together with persistence unit of this class
+     * (without second-level cache, because its CacheManager is shared by whole JVM).
+     */
+    private static EntityManagerFactory createSecondFactory(String databaseName, Map<String, Object> properties) {
+        properties.put("hibernate.cache.use_second_level_cache", "false");
+        properties.put("hibernate.cache.use_query_cache", "false");
+        return TestPersistence.createFactory(databaseName, properties);
+    }
+
+    private static HikariDataSource dataSourceOf(EntityManagerFactory factory) {
+        return factory.unwrap(SessionFactoryImplementor.class).getServiceRegistry()
+                .getService(ConnectionProvider.class).unwrap(HikariDataSource.class);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
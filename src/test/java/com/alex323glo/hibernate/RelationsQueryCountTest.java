@@ -0,0 +1,251 @@
+package com.alex323glo.hibernate;
+
+import com.alex323glo.hibernate.dao.FetchPlan;
+import com.alex323glo.hibernate.dao.GeneralDAO;
+import com.alex323glo.hibernate.model.City;
+import com.alex323glo.hibernate.model.Game;
+import com.alex323glo.hibernate.model.User;
+import com.alex323glo.hibernate.support.PersistenceRule;
+import com.alex323glo.hibernate.support.QueryRecorder;
+import com.alex323glo.hibernate.support.QueryRecording;
+import com.alex323glo.hibernate.support.RecordedStatement;
+import org.hibernate.SessionFactory;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks number of SQL statements, executed by GeneralDAO for User, City and Game relations,
+ * so lazy loading regressions (N+1 patterns) are caught by tests.
+ */
+public class RelationsQueryCountTest {
+
+    private static final int CITIES_NUMBER = 3;
+    private static final int GAMES_NUMBER = 4;
+    private static final int USERS_NUMBER = 12;
+
+    @ClassRule
+    public static final PersistenceRule PERSISTENCE = new PersistenceRule("relations_query_count");
+
+    private static GeneralDAO<Integer, User> userDAO;
+    private static GeneralDAO<Integer, City> cityDAO;
+    private static GeneralDAO<Integer, Game> gameDAO;
+
+    private static List<Integer> userIds = new ArrayList<>();
+    private static List<Integer> cityIds = new ArrayList<>();
+    private static List<Integer> gameIds = new ArrayList<>();
+
+    @BeforeClass
+    public static void setUpClass() {
+        userDAO = PERSISTENCE.createDAO(Integer.class, User.class);
+        cityDAO = PERSISTENCE.createDAO(Integer.class, City.class);
+        gameDAO = PERSISTENCE.createDAO(Integer.class, Game.class);
+
+        EntityManager manager = PERSISTENCE.getManagerFactory().createEntityManager();
+        try {
+            manager.getTransaction().begin();
+            List<City> cities = new ArrayList<>();
+            for (int i = 0; i < CITIES_NUMBER; i++) {
+                City city = new City("City " + i);
+                manager.persist(city);
+                cities.add(city);
+                cityIds.add(city.getId());
+            }
+            List<Game> games = new ArrayList<>();
+            for (int i = 0; i < GAMES_NUMBER; i++) {
+                Game game = new Game("Game " + i);
+                manager.persist(game);
+                games.add(game);
+                gameIds.add(game.getId());
+            }
+            for (int i = 0; i < USERS_NUMBER; i++) {
+                User user = new User("User " + i, i * 100, new Date(), cities.get(i % CITIES_NUMBER));
+                user.addGame(games.get(i % GAMES_NUMBER));
+                user.addGame(games.get((i + 1) % GAMES_NUMBER));
+                manager.persist(user);
+                userIds.add(user.getId());
+            }
+            manager.getTransaction().commit();
+        } finally {
+            manager.close();
+        }
+    }
+
+    @Before
+    public void setUp() {
+        // every test starts with empty second-level and query caches:
+        SessionFactory sessionFactory = PERSISTENCE.getManagerFactory().unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictAllRegions();
+    }
+
+    @Test
+    public void readByIdDoesNotLoadLazyRelations() {
+        QueryRecording recording = QueryRecorder.record(() -> {
+            User user = userDAO.readById(userIds.get(0));
+            assertEquals("User 0", user.getName());
+        });
+
+        recording.assertCount(1);
+        assertEquals(0, recording.getStatements().get(0).getShape().indexOf("select"));
+        assertFalse(recording.getStatements().get(0).getShape().contains("cities"));
+    }
+
+    @Test
+    public void citiesOfUsersAreLoadedByOneBatch() {
+        QueryRecording recording = QueryRecorder.record(() -> userDAO.inTransaction(dao -> {
+            dao.getAll(USERS_NUMBER).forEach(user -> user.getCity().getName());
+            return null;
+        }));
+
+        recording.assertCount(2);
+        recording.assertNoNPlusOne();
+    }
+
+    @Test
+    public void fetchPlanLoadsCitiesOfUsersBySameQuery() {
+        QueryRecording recording = QueryRecorder.record(() ->
+                userDAO.getAll(USERS_NUMBER, FetchPlan.named(User.GRAPH_WITH_CITY))
+                        .forEach(user -> user.getCity().getName()));
+
+        recording.assertCount(1);
+    }
+
+    @Test
+    public void fetchPlanLoadsCityAndGamesOfUserBySameQuery() {
+        QueryRecording recording = QueryRecorder.record(() -> {
+            User user = userDAO.readById(userIds.get(0), FetchPlan.named(User.GRAPH_WITH_CITY_AND_GAMES));
+            assertEquals("City 0", user.getCity().getName());
+            assertEquals(2, user.getGameList().size());
+        });
+
+        recording.assertCount(1);
+    }
+
+    @Test
+    public void fetchPlanWithCollectionsIsPaginatedByIds() {
+        int citiesNumber = CITIES_NUMBER - 1;
+        QueryRecording recording = QueryRecorder.record(() -> {
+            List<City> cities = cityDAO.getAll(citiesNumber, FetchPlan.named(City.GRAPH_WITH_USERS));
+            assertEquals(citiesNumber, cities.size());
+            cities.forEach(city -> assertEquals(USERS_NUMBER / CITIES_NUMBER, city.getUserList().size()));
+        });
+
+        // page of ids is limited by SQL, and its Cities are fetched with Users by IN query:
+        recording.assertCount(2);
+        assertTrue(recording.getStatements().get(0).toString(),
+                recording.getStatements().get(0).getShape().contains("limit"));
+        assertTrue(recording.getStatements().get(1).toString(),
+                recording.getStatements().get(1).getShape().contains(" in ("));
+    }
+
+    @Test
+    public void gamesOfUsersAreLoadedByOneBatch() {
+        QueryRecording recording = QueryRecorder.record(() -> userDAO.inTransaction(dao -> {
+            dao.getAll(USERS_NUMBER).forEach(user -> assertEquals(2, user.getGameList().size()));
+            return null;
+        }));
+
+        recording.assertCount(2);
+        recording.assertNoNPlusOne();
+    }
+
+    @Test
+    public void usersOfGamesAreLoadedByOneBatch() {
+        QueryRecording recording = QueryRecorder.record(() -> gameDAO.inTransaction(dao -> {
+            dao.getAll(GAMES_NUMBER).forEach(game -> assertEquals(
+                    2 * USERS_NUMBER / GAMES_NUMBER, game.getUserList().size()));
+            return null;
+        }));
+
+        recording.assertCount(2);
+        recording.assertNoNPlusOne();
+    }
+
+    @Test
+    public void usersOfCitiesAreLoadedBySubselect() {
+        QueryRecording recording = QueryRecorder.record(() -> cityDAO.inTransaction(dao -> {
+            dao.getAll(CITIES_NUMBER).forEach(city -> assertEquals(
+                    USERS_NUMBER / CITIES_NUMBER, city.getUserList().size()));
+            return null;
+        }));
+
+        recording.assertCount(2);
+        recording.assertNoNPlusOne();
+    }
+
+    @Test
+    public void readByIdsLoadsAllCitiesByOneStatement() {
+        QueryRecording recording = QueryRecorder.record(() ->
+                assertEquals(CITIES_NUMBER, cityDAO.readByIds(cityIds).size()));
+
+        recording.assertCount(1);
+    }
+
+    @Test
+    public void readByIdInLoopIsDetectedAsNPlusOne() {
+        QueryRecording recording = QueryRecorder.record(() -> gameIds.forEach(gameDAO::readById));
+
+        recording.assertCount(GAMES_NUMBER);
+        Map<String, List<RecordedStatement>> repeatedSelects =
+                recording.getRepeatedSelects(QueryRecording.DEFAULT_MAX_REPETITIONS);
+        assertEquals(1, repeatedSelects.size());
+        for (RecordedStatement statement : repeatedSelects.values().iterator().next()) {
+            assertTrue(statement.getCallSite(), statement.getCallSite().startsWith(getClass().getName()));
+        }
+
+        try {
+            recording.assertNoNPlusOne();
+            fail("N+1 pattern wasn't detected.");
+        } catch (AssertionError e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(GAMES_NUMBER + " x select"));
+        }
+    }
+
+    @Test
+    public void patchExecutesOneUpdate() {
+        QueryRecording recording = QueryRecorder.record(() ->
+                assertEquals(1, userDAO.patch(userIds.get(1), Collections.singletonMap("amount", 5.0))));
+
+        assertEquals(1, recording.getCount("update"));
+        assertEquals(0, recording.getCount("select"));
+    }
+
+    @Test
+    public void findersWithAndWithoutNamedQueryWorkInsideOfUnitOfWork() {
+        int foundNumber = gameDAO.inTransaction(dao -> {
+            // Game has named query of name finder, but not of id finder:
+            int number = dao.findBy("id", gameIds.get(0), 10).size();
+            number += dao.findBy("name", "Game 1", 10).size();
+            dao.patch(gameIds.get(2), Collections.singletonMap("name", "Game 2"));
+            return number;
+        });
+
+        assertEquals(2, foundNumber);
+    }
+
+    @Test
+    public void statementsOfDifferentArgumentsHaveSameShape() {
+        QueryRecording recording = QueryRecorder.record(() -> {
+            userDAO.findBy("name", "User 1", 10);
+            userDAO.findBy("name", "User 2", 10);
+        });
+
+        recording.assertCount(2);
+        assertEquals(recording.getStatements().get(0).getShape(), recording.getStatements().get(1).getShape());
+        recording.assertNoNPlusOne(2);
+    }
+
+}
@@ -0,0 +1,100 @@
+package com.alex323glo.hibernate;
+
+import com.alex323glo.hibernate.dao.GeneralDAO;
+import com.alex323glo.hibernate.model.City;
+import com.alex323glo.hibernate.model.Game;
+import com.alex323glo.hibernate.model.User;
+import com.alex323glo.hibernate.support.PersistenceRule;
+import com.alex323glo.hibernate.support.QueryRecorder;
+import com.alex323glo.hibernate.support.QueryRecording;
+import org.hibernate.SessionFactory;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks second-level and query cache of City and Game: cached data is served without
+ * statements and doesn't go stale after writes.
+ */
+public class SecondLevelCacheTest {
+
+    @ClassRule
+    public static final PersistenceRule PERSISTENCE = new PersistenceRule("second_level_cache");
+
+    private static GeneralDAO<Integer, User> userDAO;
+    private static GeneralDAO<Integer, City> cityDAO;
+    private static GeneralDAO<Integer, Game> gameDAO;
+
+    @BeforeClass
+    public static void setUpClass() {
+        userDAO = PERSISTENCE.createDAO(Integer.class, User.class);
+        cityDAO = PERSISTENCE.createDAO(Integer.class, City.class);
+        gameDAO = PERSISTENCE.createDAO(Integer.class, Game.class);
+    }
+
+    @Before
+    public void setUp() {
+        PERSISTENCE.getManagerFactory().unwrap(SessionFactory.class).getCache().evictAllRegions();
+    }
+
+    @Test
+    public void cityAndGameAreReadFromCache() {
+        City city = cityDAO.create(new City("Cached city"));
+        Game game = gameDAO.create(new Game("Cached game"));
+        cityDAO.readById(city.getId());
+        gameDAO.readById(game.getId());
+
+        QueryRecording recording = QueryRecorder.record(() -> {
+            assertEquals("Cached city", cityDAO.readById(city.getId()).getName());
+            assertEquals("Cached game", gameDAO.readById(game.getId()).getName());
+        });
+
+        recording.assertCount(0);
+    }
+
+    @Test
+    public void updatedCityIsNotStale() {
+        City city = cityDAO.create(new City("Old name"));
+        cityDAO.readById(city.getId());
+
+        City newCity = cityDAO.readById(city.getId());
+        newCity.setName("New name");
+        cityDAO.update(city.getId(), newCity);
+
+        assertEquals("New name", cityDAO.readById(city.getId()).getName());
+    }
+
+    @Test
+    public void usersOfCityAreNotStaleAfterUserCreation() {
+        City city = cityDAO.create(new City("City of new User"));
+        assertEquals(0, countUsersOf(city.getId()));
+
+        userDAO.create(new User("New User of city", 0, new Date(), city));
+
+        assertEquals(1, countUsersOf(city.getId()));
+    }
+
+    @Test
+    public void queryCacheIsInvalidatedByWrite() {
+        int citiesNumber = cityDAO.getAll(1000).size();
+
+        QueryRecording cachedRecording = QueryRecorder.record(() ->
+                assertEquals(citiesNumber, cityDAO.getAll(1000).size()));
+        cityDAO.create(new City("City after query"));
+        QueryRecording invalidatedRecording = QueryRecorder.record(() ->
+                assertEquals(citiesNumber + 1, cityDAO.getAll(1000).size()));
+
+        cachedRecording.assertCount(0);
+        assertEquals(1, invalidatedRecording.getCount("select"));
+    }
+
+    private static int countUsersOf(int cityId) {
+        return cityDAO.inTransaction(dao -> dao.readById(cityId).getUserList().size());
+    }
+
+}
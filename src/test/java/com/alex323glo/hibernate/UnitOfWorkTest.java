@@ -0,0 +1,184 @@
+package com.alex323glo.hibernate;
+
+import com.alex323glo.hibernate.dao.GeneralDAO;
+import com.alex323glo.hibernate.dao.UnitOfWork;
+import com.alex323glo.hibernate.exception.DAOException;
+import com.alex323glo.hibernate.model.City;
+import com.alex323glo.hibernate.model.User;
+import com.alex323glo.hibernate.support.PersistenceRule;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks, that DAO operations join unit of work of the current thread, and that nested
+ * units of work follow their propagation rules.
+ */
+public class UnitOfWorkTest {
+
+    @ClassRule
+    public static final PersistenceRule PERSISTENCE = new PersistenceRule("unit_of_work");
+
+    private static GeneralDAO<Integer, User> userDAO;
+    private static GeneralDAO<Integer, City> cityDAO;
+
+    @BeforeClass
+    public static void setUpClass() {
+        userDAO = PERSISTENCE.createDAO(Integer.class, User.class);
+        cityDAO = PERSISTENCE.createDAO(Integer.class, City.class);
+    }
+
+    @Test
+    public void operationsOfDifferentDAOsShareEntityManager() {
+        int cityId = cityDAO.create(new City("Shared city")).getId();
+
+        User user = UnitOfWork.execute(PERSISTENCE.getManagerFactory(), () -> {
+            City city = cityDAO.readById(cityId);
+            assertSame(city, cityDAO.readById(cityId));
+
+            User newUser = userDAO.create(new User("Shared user", 1, new Date(), city));
+            assertSame(newUser, userDAO.readById(newUser.getId()));
+            // returned instances stay managed, so changes are committed with unit of work:
+            newUser.setAmount(2);
+            return newUser;
+        });
+
+        User storedUser = userDAO.readById(user.getId());
+        assertEquals(2, storedUser.getAmount(), 0);
+        assertFalse(UnitOfWork.isActive());
+    }
+
+    @Test
+    public void batchWriteKeepsInstancesOfUnitOfWorkManaged() {
+        GeneralDAO<Integer, User> batchUserDAO = PERSISTENCE.createDAO(Integer.class, User.class);
+        batchUserDAO.setBatchSize(2);
+        int userId = userDAO.create(new User("Managed before batch", 1, new Date())).getId();
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            users.add(new User("Batch in unit of work", i, new Date()));
+        }
+
+        UnitOfWork.execute(PERSISTENCE.getManagerFactory(), () -> {
+            User user = userDAO.readById(userId);
+            batchUserDAO.createAll(users);
+            assertSame(user, userDAO.readById(userId));
+            // change of managed instance is committed with unit of work:
+            user.setAmount(2);
+            return null;
+        });
+
+        assertEquals(2, userDAO.readById(userId).getAmount(), 0);
+        assertEquals(5, userDAO.findBy("name", "Batch in unit of work", 10).size());
+    }
+
+    @Test
+    public void failedWorkRollsBackAllOperations() {
+        List<Integer> userIds = new ArrayList<>();
+        try {
+            userDAO.inTransaction(dao -> {
+                userIds.add(dao.create(new User("Rolled back", 1, new Date())).getId());
+                throw new IllegalStateException("Failure of work.");
+            });
+            fail("Failure of work wasn't propagated.");
+        } catch (DAOException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+
+        assertNull(userDAO.readById(userIds.get(0)));
+    }
+
+    @Test
+    public void failedOperationMarksUnitOfWorkAsRollbackOnly() {
+        List<Integer> userIds = new ArrayList<>();
+        try {
+            userDAO.inTransaction(dao -> {
+                userIds.add(dao.create(new User("Rollback only", 1, new Date())).getId());
+                try {
+                    dao.delete(Integer.MAX_VALUE);
+                    fail("Removal of nonexistent User didn't fail.");
+                } catch (DAOException e) {
+                    // ignored by work, but not by unit of work
+                }
+                return null;
+            });
+            fail("Unit of work was committed after failed operation.");
+        } catch (DAOException e) {
+            // expected
+        }
+
+        assertNull(userDAO.readById(userIds.get(0)));
+    }
+
+    @Test
+    public void nestedRequiredUnitOfWorkJoinsEnclosingOne() {
+        List<Integer> userIds = new ArrayList<>();
+        try {
+            userDAO.inTransaction(dao -> {
+                User user = dao.create(new User("Outer", 1, new Date()));
+                userIds.add(user.getId());
+                dao.inTransaction(UnitOfWork.Propagation.REQUIRED, nestedDAO -> {
+                    assertSame(user, nestedDAO.readById(user.getId()));
+                    return userIds.add(nestedDAO.create(new User("Inner", 1, new Date())).getId());
+                });
+                throw new IllegalStateException("Failure of enclosing work.");
+            });
+            fail("Failure of work wasn't propagated.");
+        } catch (DAOException e) {
+            // expected
+        }
+
+        assertNull(userDAO.readById(userIds.get(0)));
+        assertNull(userDAO.readById(userIds.get(1)));
+    }
+
+    @Test
+    public void nestedRequiresNewUnitOfWorkIsCommittedIndependently() {
+        List<Integer> userIds = new ArrayList<>();
+        try {
+            userDAO.inTransaction(dao -> {
+                User user = dao.create(new User("Outer of new", 1, new Date()));
+                userIds.add(user.getId());
+                dao.inTransaction(UnitOfWork.Propagation.REQUIRES_NEW, nestedDAO -> {
+                    // uncommitted instance of enclosing unit of work isn't visible:
+                    assertNull(nestedDAO.readById(user.getId()));
+                    return userIds.add(nestedDAO.create(new User("Inner of new", 1, new Date())).getId());
+                });
+                throw new IllegalStateException("Failure of enclosing work.");
+            });
+            fail("Failure of work wasn't propagated.");
+        } catch (DAOException e) {
+            // expected
+        }
+
+        assertNull(userDAO.readById(userIds.get(0)));
+        assertNotNull(userDAO.readById(userIds.get(1)));
+    }
+
+    @Test
+    public void callbacksAreCalledAfterCompletion() {
+        List<String> events = new ArrayList<>();
+
+        UnitOfWork.execute(PERSISTENCE.getManagerFactory(), () -> {
+            UnitOfWork.afterCompletion(() -> events.add("completed, active: " + UnitOfWork.isActive()));
+            events.add("work");
+            return null;
+        });
+
+        assertEquals(2, events.size());
+        assertEquals("work", events.get(0));
+        assertEquals("completed, active: false", events.get(1));
+    }
+
+}
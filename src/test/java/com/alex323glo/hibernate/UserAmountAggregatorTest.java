@@ -0,0 +1,122 @@
+package com.alex323glo.hibernate;
+
+import com.alex323glo.hibernate.dao.UserAmountAggregator;
+import com.alex323glo.hibernate.model.City;
+import com.alex323glo.hibernate.model.Game;
+import com.alex323glo.hibernate.model.User;
+import com.alex323glo.hibernate.projection.AmountAggregate;
+import com.alex323glo.hibernate.support.PersistenceRule;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks DB-side aggregation of User amounts by UserAmountAggregator, including Users
+ * without City, Games or birthday (they aren't counted in any group of such grouping).
+ */
+public class UserAmountAggregatorTest {
+
+    @ClassRule
+    public static final PersistenceRule PERSISTENCE = new PersistenceRule("user_amount_aggregator");
+
+    private static UserAmountAggregator aggregator;
+    private static City firstCity;
+    private static City secondCity;
+    private static Game firstGame;
+    private static Game secondGame;
+
+    @BeforeClass
+    public static void setUpClass() {
+        aggregator = new UserAmountAggregator(PERSISTENCE.getManagerFactory());
+
+        EntityManager manager = PERSISTENCE.getManagerFactory().createEntityManager();
+        try {
+            manager.getTransaction().begin();
+            firstCity = new City("First aggregated city");
+            secondCity = new City("Second aggregated city");
+            firstGame = new Game("First aggregated game");
+            secondGame = new Game("Second aggregated game");
+            manager.persist(firstCity);
+            manager.persist(secondCity);
+            manager.persist(firstGame);
+            manager.persist(secondGame);
+
+            User januaryPlayer = new User("January player", 10, dateIn(Calendar.JANUARY), firstCity);
+            januaryPlayer.addGame(firstGame);
+            januaryPlayer.addGame(secondGame);
+            manager.persist(januaryPlayer);
+
+            User marchPlayer = new User("March player", 20, dateIn(Calendar.MARCH), firstCity);
+            marchPlayer.addGame(firstGame);
+            manager.persist(marchPlayer);
+
+            manager.persist(new User("March non-player", 30, dateIn(Calendar.MARCH), secondCity));
+
+            // Users without City:
+            User playerWithoutBirthday = new User("Player without birthday", 40, null);
+            playerWithoutBirthday.addGame(secondGame);
+            manager.persist(playerWithoutBirthday);
+
+            manager.persist(new User("December non-player", 50, dateIn(Calendar.DECEMBER)));
+            manager.getTransaction().commit();
+        } finally {
+            manager.close();
+        }
+    }
+
+    @Test
+    public void usersAreAggregatedByCity() {
+        List<AmountAggregate> aggregates = aggregator.aggregate(UserAmountAggregator.Grouping.CITY);
+
+        assertEquals(Arrays.asList(firstCity.getId(), secondCity.getId()), groupKeysOf(aggregates));
+        assertAggregate(aggregates.get(0), 2, 30, 10, 20);
+        assertAggregate(aggregates.get(1), 1, 30, 30, 30);
+    }
+
+    @Test
+    public void usersAreAggregatedByGame() {
+        List<AmountAggregate> aggregates = aggregator.aggregate(UserAmountAggregator.Grouping.GAME);
+
+        // User with two Games is counted in both groups:
+        assertEquals(Arrays.asList(firstGame.getId(), secondGame.getId()), groupKeysOf(aggregates));
+        assertAggregate(aggregates.get(0), 2, 30, 10, 20);
+        assertAggregate(aggregates.get(1), 2, 50, 10, 40);
+    }
+
+    @Test
+    public void usersAreAggregatedByBirthdayMonth() {
+        List<AmountAggregate> aggregates = aggregator.aggregate(UserAmountAggregator.Grouping.BIRTHDAY_MONTH);
+
+        assertEquals(Arrays.asList(1, 3, 12), groupKeysOf(aggregates));
+        assertAggregate(aggregates.get(0), 1, 10, 10, 10);
+        assertAggregate(aggregates.get(1), 2, 50, 20, 30);
+        assertAggregate(aggregates.get(2), 1, 50, 50, 50);
+    }
+
+    private static void assertAggregate(AmountAggregate aggregate, long count, double sum, double min, double max) {
+        assertEquals(count, aggregate.getCount());
+        assertEquals(sum, aggregate.getSum(), 0.001);
+        assertEquals(sum / count, aggregate.getAverage(), 0.001);
+        assertEquals(min, aggregate.getMin(), 0.001);
+        assertEquals(max, aggregate.getMax(), 0.001);
+    }
+
+    private static List<Integer> groupKeysOf(List<AmountAggregate> aggregates) {
+        return aggregates.stream().map(AmountAggregate::getGroupKey).collect(Collectors.toList());
+    }
+
+    private static Date dateIn(int month) {
+        return new GregorianCalendar(1990, month, 15).getTime();
+    }
+
+}
@@ -0,0 +1,337 @@
+package com.alex323glo.hibernate;
+
+import com.alex323glo.hibernate.dao.DAO;
+import com.alex323glo.hibernate.dao.GeneralDAO;
+import com.alex323glo.hibernate.dao.WriteBehindDAO;
+import com.alex323glo.hibernate.exception.DAOException;
+import com.alex323glo.hibernate.model.Game;
+import com.alex323glo.hibernate.model.IDEntity;
+import com.alex323glo.hibernate.support.PersistenceRule;
+import com.alex323glo.hibernate.support.QueryRecorder;
+import com.alex323glo.hibernate.support.QueryRecording;
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks buffering, coalescing and flushing of WriteBehindDAO over GeneralDAO of Game,
+ * that failed write of flushed batch drops only itself, and that transient failures are retried.
+ */
+public class WriteBehindDAOTest {
+
+    private static final Duration LONG_INTERVAL = Duration.ofMinutes(10);
+    private static final long WAIT_MILLIS = 10_000;
+
+    @ClassRule
+    public static final PersistenceRule PERSISTENCE = new PersistenceRule("write_behind_dao");
+
+    private static GeneralDAO<Integer, Game> gameDAO;
+    // commits batch operations in chunks of 2 instances:
+    private static GeneralDAO<Integer, Game> chunkedGameDAO;
+
+    private WriteBehindDAO<Integer, Game> writeBehindDAO;
+
+    @BeforeClass
+    public static void setUpClass() {
+        gameDAO = PERSISTENCE.createDAO(Integer.class, Game.class);
+        chunkedGameDAO = PERSISTENCE.createDAO(Integer.class, Game.class);
+        chunkedGameDAO.setBatchSize(2);
+        chunkedGameDAO.setTransactionSize(2);
+    }
+
+    @After
+    public void tearDown() {
+        if (writeBehindDAO != null) {
+            writeBehindDAO.close();
+        }
+    }
+
+    @Test
+    public void staleUpdateInBatchDropsOnlyItself() {
+        writeBehindDAO = new WriteBehindDAO<>(chunkedGameDAO, IDEntity::getId, 100, 100, LONG_INTERVAL);
+        List<Game> games = createGames("Batch", 5);
+        Game staleGame = games.get(2);
+        Game concurrentGame = gameDAO.readById(staleGame.getId());
+        concurrentGame.setName("Concurrent change");
+        gameDAO.update(concurrentGame.getId(), concurrentGame);
+
+        for (Game game : games) {
+            game.setName(game.getName() + " (updated)");
+            writeBehindDAO.update(game.getId(), game);
+        }
+
+        assertEquals(4, writeBehindDAO.flush());
+        assertEquals(4, writeBehindDAO.getWrittenNumber());
+        assertEquals(1, writeBehindDAO.getFailedNumber());
+        for (Game game : games) {
+            Game storedGame = gameDAO.readById(game.getId());
+            if (game == staleGame) {
+                assertEquals("Concurrent change", storedGame.getName());
+            } else {
+                assertEquals(game.getName(), storedGame.getName());
+                assertEquals(1, storedGame.getVersion());
+                assertEquals(storedGame.getVersion(), game.getVersion());
+            }
+        }
+    }
+
+    @Test
+    public void instanceIsUpdatedAgainAfterFlush() {
+        writeBehindDAO = new WriteBehindDAO<>(gameDAO, IDEntity::getId, 100, 100, LONG_INTERVAL);
+        int gameId = gameDAO.create(new Game("Before flush")).getId();
+        Game game = writeBehindDAO.readById(gameId);
+        game.setName("First flush");
+        writeBehindDAO.update(gameId, game);
+        assertSame(game, writeBehindDAO.readById(gameId));
+        writeBehindDAO.flush();
+
+        game.setName("Second flush");
+        writeBehindDAO.update(gameId, game);
+        writeBehindDAO.flush();
+
+        assertEquals(0, writeBehindDAO.getFailedNumber());
+        assertEquals(2, writeBehindDAO.getWrittenNumber());
+        Game storedGame = gameDAO.readById(gameId);
+        assertEquals("Second flush", storedGame.getName());
+        assertEquals(storedGame.getVersion(), game.getVersion());
+    }
+
+    @Test
+    public void writesOfTransientFailureAreRetried() {
+        // both batches (creations and updates) of the first flush fail:
+        AtomicInteger failuresNumber = new AtomicInteger(2);
+        writeBehindDAO = new WriteBehindDAO<>(failingDAO(failuresNumber), IDEntity::getId, 100, 100, LONG_INTERVAL);
+        Game game = gameDAO.create(new Game("Before retry"));
+        game.setName("Retried");
+        Game newGame = new Game("Created by retry");
+
+        writeBehindDAO.update(game.getId(), game);
+        writeBehindDAO.create(newGame);
+
+        assertEquals(0, writeBehindDAO.flush());
+        assertEquals(2, writeBehindDAO.getRetriedNumber());
+        assertEquals(0, writeBehindDAO.getFailedNumber());
+        assertEquals(2, writeBehindDAO.getPendingNumber());
+        assertSame(game, writeBehindDAO.readById(game.getId()));
+        assertEquals("Before retry", gameDAO.readById(game.getId()).getName());
+
+        assertEquals(2, writeBehindDAO.flush());
+        assertEquals(0, writeBehindDAO.getPendingNumber());
+        assertEquals("Retried", gameDAO.readById(game.getId()).getName());
+        assertEquals("Created by retry", gameDAO.readById(newGame.getId()).getName());
+    }
+
+    @Test
+    public void writesLeftAfterCloseAreCountedAsFailed() {
+        writeBehindDAO = new WriteBehindDAO<>(failingDAO(new AtomicInteger(Integer.MAX_VALUE)), IDEntity::getId,
+                100, 100, LONG_INTERVAL);
+        writeBehindDAO.create(new Game("Never created"));
+
+        writeBehindDAO.close();
+
+        assertEquals(1, writeBehindDAO.getFailedNumber());
+        assertEquals(0, writeBehindDAO.getPendingNumber());
+        assertEquals(Collections.emptyList(), gameDAO.findBy("name", "Never created", 10));
+    }
+
+    @Test
+    public void failedCreateInBatchDoesNotDuplicateOthers() {
+        writeBehindDAO = new WriteBehindDAO<>(chunkedGameDAO, IDEntity::getId, 100, 100, LONG_INTERVAL);
+        List<Game> games = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            games.add(new Game("Created once"));
+        }
+        // name is required:
+        games.add(2, new Game(null));
+
+        writeBehindDAO.createAll(games);
+
+        assertEquals(4, writeBehindDAO.flush());
+        assertEquals(1, writeBehindDAO.getFailedNumber());
+        assertEquals(4, gameDAO.findBy("name", "Created once", 100).size());
+        for (Game game : games) {
+            if (game.getName() != null) {
+                assertEquals("Created once", gameDAO.readById(game.getId()).getName());
+            }
+        }
+    }
+
+    @Test
+    public void repeatedUpdatesAreCoalesced() {
+        writeBehindDAO = new WriteBehindDAO<>(gameDAO, IDEntity::getId, 100, 100, LONG_INTERVAL);
+        Game game = gameDAO.create(new Game("Coalesced"));
+
+        for (int i = 1; i <= 3; i++) {
+            writeBehindDAO.updateWithRetry(game.getId(), value -> value.setName(value.getName() + "+"));
+        }
+        QueryRecording recording = QueryRecorder.record(writeBehindDAO::flush);
+
+        assertEquals(2, writeBehindDAO.getCoalescedNumber());
+        assertEquals(1, writeBehindDAO.getWrittenNumber());
+        assertEquals(1, recording.getCount("update"));
+        Game storedGame = gameDAO.readById(game.getId());
+        assertEquals("Coalesced+++", storedGame.getName());
+        assertEquals(game.getVersion() + 1, storedGame.getVersion());
+    }
+
+    @Test
+    public void bufferedWritesAreReadWithoutStatements() {
+        writeBehindDAO = new WriteBehindDAO<>(gameDAO, IDEntity::getId, 100, 100, LONG_INTERVAL);
+        Game game = gameDAO.create(new Game("Before buffered update"));
+        Game deletedGame = gameDAO.create(new Game("Before buffered removal"));
+        Game newGame = gameDAO.readById(game.getId());
+        newGame.setName("Buffered update");
+        writeBehindDAO.update(game.getId(), newGame);
+        writeBehindDAO.delete(deletedGame.getId());
+
+        QueryRecording recording = QueryRecorder.record(() -> {
+            assertSame(newGame, writeBehindDAO.readById(game.getId()));
+            assertNull(writeBehindDAO.readById(deletedGame.getId()));
+        });
+
+        recording.assertCount(0);
+        assertEquals("Before buffered update", gameDAO.readById(game.getId()).getName());
+        writeBehindDAO.flush();
+        assertEquals("Buffered update", gameDAO.readById(game.getId()).getName());
+        assertNull(gameDAO.readById(deletedGame.getId()));
+    }
+
+    @Test
+    public void removalReplacesBufferedUpdate() {
+        writeBehindDAO = new WriteBehindDAO<>(gameDAO, IDEntity::getId, 100, 100, LONG_INTERVAL);
+        Game game = gameDAO.create(new Game("Updated, then removed"));
+        game.setName("Never written");
+
+        writeBehindDAO.update(game.getId(), game);
+        assertSame(game, writeBehindDAO.delete(game.getId()));
+
+        QueryRecording recording = QueryRecorder.record(writeBehindDAO::flush);
+        assertEquals(0, recording.getCount("update"));
+        assertEquals(1, writeBehindDAO.getCoalescedNumber());
+        assertNull(gameDAO.readById(game.getId()));
+    }
+
+    @Test
+    public void bufferIsFlushedBySize() {
+        writeBehindDAO = new WriteBehindDAO<>(gameDAO, IDEntity::getId, 100, 3, LONG_INTERVAL);
+
+        writeBehindDAO.createAll(newGames("Flushed by size", 3));
+
+        awaitUntil(() -> writeBehindDAO.getPendingNumber() == 0);
+        assertEquals(3, writeBehindDAO.getWrittenNumber());
+    }
+
+    @Test
+    public void bufferIsFlushedByInterval() {
+        writeBehindDAO = new WriteBehindDAO<>(gameDAO, IDEntity::getId, 100, 100, Duration.ofMillis(100));
+
+        writeBehindDAO.create(new Game("Flushed by interval"));
+
+        awaitUntil(() -> writeBehindDAO.getWrittenNumber() == 1);
+        assertEquals(1, gameDAO.findBy("name", "Flushed by interval", 10).size());
+    }
+
+    @Test
+    public void pendingWritesDoNotExceedMaxBufferSize() {
+        int maxBufferSize = 4;
+        writeBehindDAO = new WriteBehindDAO<>(gameDAO, IDEntity::getId, maxBufferSize, 2, LONG_INTERVAL);
+
+        for (Game game : newGames("Backpressure", 20)) {
+            writeBehindDAO.create(game);
+            assertTrue(writeBehindDAO.getPendingNumber() <= maxBufferSize);
+        }
+        writeBehindDAO.flush();
+
+        assertEquals(20, writeBehindDAO.getWrittenNumber());
+        assertEquals(20, gameDAO.findBy("name", "Backpressure", 100).size());
+    }
+
+    @Test
+    public void closeWritesBufferedWritesAndRejectsNewOnes() {
+        writeBehindDAO = new WriteBehindDAO<>(gameDAO, IDEntity::getId, 100, 100, LONG_INTERVAL);
+        Game game = new Game("Written by close");
+        writeBehindDAO.create(game);
+
+        writeBehindDAO.close();
+
+        assertNotEquals(0, game.getId());
+        assertEquals("Written by close", gameDAO.readById(game.getId()).getName());
+        try {
+            writeBehindDAO.create(new Game("After close"));
+            fail("Write after close wasn't rejected.");
+        } catch (DAOException e) {
+            // expected
+        }
+        assertEquals(Collections.emptyList(), gameDAO.findBy("name", "After close", 10));
+    }
+
+    /**
+     * @param failuresNumber number of units of work, which fail because of lost connection.
+     * @return DAO of Game, which fails the first units of work.
+     */
+    @SuppressWarnings("unchecked")
+    private static DAO<Integer, Game> failingDAO(AtomicInteger failuresNumber) {
+        return (DAO<Integer, Game>) Proxy.newProxyInstance(DAO.class.getClassLoader(), new Class<?>[]{DAO.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("inTransaction") && failuresNumber.getAndDecrement() > 0) {
+                        throw new DAOException(new SQLTransientConnectionException("Connection is lost."));
+                    }
+                    try {
+                        return method.invoke(gameDAO, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private static List<Game> newGames(String name, int gamesNumber) {
+        List<Game> games = new ArrayList<>();
+        for (int i = 0; i < gamesNumber; i++) {
+            games.add(new Game(name));
+        }
+        return games;
+    }
+
+    private static List<Game> createGames(String namePrefix, int gamesNumber) {
+        List<Game> games = new ArrayList<>();
+        for (int i = 0; i < gamesNumber; i++) {
+            games.add(gameDAO.create(new Game(namePrefix + " " + i)));
+        }
+        return games;
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Condition wasn't met in " + WAIT_MILLIS + " ms.");
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail("Waiting was interrupted.");
+            }
+        }
+    }
+
+}
@@ -0,0 +1,51 @@
+package com.alex323glo.hibernate.benchmark;
+
+import org.junit.Test;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.util.Collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Smoke test of DAOBenchmark: runs every benchmark once, in-process and with tiny dataset,
+ * so broken benchmarks are found by tests, not by long runs of 'jmh' task.
+ */
+public class DAOBenchmarkTest {
+
+    private static final int BENCHMARKS_NUMBER = 6;
+
+    @Test
+    public void allBenchmarksRun() throws Exception {
+        Options options = new OptionsBuilder()
+                .include(DAOBenchmark.class.getName())
+                .param("entity", "User")
+                .param("datasetSize", "10")
+                .param("batchSize", "1")
+                .mode(Mode.Throughput)
+                .forks(0)
+                .threads(1)
+                .warmupIterations(0)
+                .measurementIterations(1)
+                .measurementTime(TimeValue.milliseconds(100))
+                .shouldFailOnError(true)
+                .verbosity(VerboseMode.SILENT)
+                .build();
+
+        Collection<RunResult> results = new Runner(options).run();
+
+        assertEquals(BENCHMARKS_NUMBER, results.size());
+        for (RunResult result : results) {
+            assertTrue(result.getParams().getBenchmark() + " wasn't measured.",
+                    result.getPrimaryResult().getScore() > 0);
+        }
+    }
+
+}
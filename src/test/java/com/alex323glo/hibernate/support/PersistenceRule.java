@@ -0,0 +1,82 @@
+package com.alex323glo.hibernate.support;
+
+import com.alex323glo.hibernate.dao.GeneralDAO;
+import org.junit.rules.ExternalResource;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Class rule of test, which creates EntityManagerFactory of test persistence unit
+ * (see TestPersistence) before all tests of class and closes it after them:
+ *
+ *      @ClassRule
+ *      public static final PersistenceRule PERSISTENCE = new PersistenceRule("user_dao");
+ *
+ *      private static GeneralDAO<Integer, User> userDAO;
+ *
+ *      @BeforeClass
+ *      public static void setUpClass() {
+ *          userDAO = PERSISTENCE.createDAO(Integer.class, User.class);
+ *      }
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see TestPersistence
+ */
+public class PersistenceRule extends ExternalResource {
+
+    private final String databaseName;
+    private final Map<String, Object> properties;
+
+    private EntityManagerFactory managerFactory;
+
+    /**
+     * @param databaseName name of in-memory database (unique for each test class).
+     */
+    public PersistenceRule(String databaseName) {
+        this(databaseName, new HashMap<>());
+    }
+
+    /**
+     * @param databaseName name of in-memory database (unique for each test class).
+     * @param properties additional properties of persistence unit.
+     */
+    public PersistenceRule(String databaseName, Map<String, Object> properties) {
+        this.databaseName = databaseName;
+        this.properties = properties;
+    }
+
+    /**
+     * @return EntityManagerFactory, which is opened for tests of class.
+     */
+    public EntityManagerFactory getManagerFactory() {
+        if (managerFactory == null) {
+            throw new IllegalStateException("Persistence of '" + databaseName + "' isn't started.");
+        }
+        return managerFactory;
+    }
+
+    /**
+     * @return new GeneralDAO (with default settings) over EntityManagerFactory of this rule.
+     */
+    public <ID, V> GeneralDAO<ID, V> createDAO(Class<ID> idClass, Class<V> valueClass) {
+        return new GeneralDAO<>(getManagerFactory(), idClass, valueClass);
+    }
+
+    @Override
+    protected void before() {
+        managerFactory = TestPersistence.createFactory(databaseName, properties);
+    }
+
+    @Override
+    protected void after() {
+        if (managerFactory != null) {
+            managerFactory.close();
+            managerFactory = null;
+        }
+    }
+
+}
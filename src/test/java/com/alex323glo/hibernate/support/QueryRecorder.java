@@ -0,0 +1,103 @@
+package com.alex323glo.hibernate.support;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.Map;
+
+/**
+ * Hibernate StatementInspector, which records SQL statements, prepared by the current thread
+ * inside of QueryRecording, together with their call sites.
+ *
+ * Recorder should be installed into persistence unit (once per EntityManagerFactory):
+ *      Map<String, Object> properties = QueryRecorder.install(new HashMap<>());
+ *      EntityManagerFactory factory = Persistence.createEntityManagerFactory("test-hibernate-h2-unit", properties);
+ *
+ * Then statements of any block of DAO calls could be recorded and checked:
+ *      QueryRecording recording = QueryRecorder.record(() -> userDAO.getAll(100).forEach(...));
+ *      recording.assertCount(2);
+ *      recording.assertNoNPlusOne();
+ *
+ * Statements are recorded per thread, so DAO calls, which are executed by other threads
+ * (e.g. by AsyncDAO), aren't included into recording.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see QueryRecording
+ */
+public final class QueryRecorder implements StatementInspector {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final QueryRecorder INSTANCE = new QueryRecorder();
+
+    private static final ThreadLocal<QueryRecording> CURRENT_RECORDING = new ThreadLocal<>();
+
+    private QueryRecorder() {
+    }
+
+    /**
+     * Adds recorder to proposed properties of persistence unit.
+     *
+     * @param properties properties, which will be passed to Persistence.createEntityManagerFactory.
+     * @return the same properties.
+     */
+    public static Map<String, Object> install(Map<String, Object> properties) {
+        properties.put(AvailableSettings.STATEMENT_INSPECTOR, INSTANCE);
+        return properties;
+    }
+
+    /**
+     * Starts recording of statements, prepared by the current thread, until recording is closed.
+     * Recordings could be nested (then statements are recorded by the innermost one).
+     *
+     * @return started recording.
+     */
+    public static QueryRecording start() {
+        QueryRecording recording = new QueryRecording(CURRENT_RECORDING.get());
+        CURRENT_RECORDING.set(recording);
+        return recording;
+    }
+
+    /**
+     * Records statements, prepared by proposed block.
+     *
+     * @param block block of DAO calls.
+     * @return closed recording.
+     */
+    public static QueryRecording record(Runnable block) {
+        try (QueryRecording recording = start()) {
+            block.run();
+            return recording;
+        }
+    }
+
+    /**
+     * Ends proposed recording, restoring recording, which was active before it.
+     *
+     * @param recording current recording of thread.
+     */
+    static void stop(QueryRecording recording) {
+        if (CURRENT_RECORDING.get() != recording) {
+            throw new IllegalStateException("Recording isn't the current one of thread " +
+                    Thread.currentThread().getName() + ".");
+        }
+
+        if (recording.getOuterRecording() == null) {
+            CURRENT_RECORDING.remove();
+        } else {
+            CURRENT_RECORDING.set(recording.getOuterRecording());
+        }
+    }
+
+    @Override
+    public String inspect(String sql) {
+        QueryRecording recording = CURRENT_RECORDING.get();
+        if (recording != null) {
+            recording.add(sql, new Throwable().getStackTrace());
+        }
+        return sql;
+    }
+
+}
@@ -0,0 +1,213 @@
+package com.alex323glo.hibernate.support;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * SQL statements, which were prepared by one thread between start and close of recording
+ * (see QueryRecorder).
+ *
+ * Statements are grouped by shape: SQL without literals and with collapsed lists of parameters,
+ * so the same query with different arguments (or different number of IDs in IN list) has the
+ * same shape. SELECT shape, which was executed several times, is reported as N+1 pattern
+ * together with its call sites (the first stack frames outside of Hibernate, JDK and DAO layer).
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see QueryRecorder
+ */
+public class QueryRecording implements AutoCloseable {
+
+    /**
+     * Default max number of executions of the same SELECT shape, which isn't N+1 pattern.
+     */
+    public static final int DEFAULT_MAX_REPETITIONS = 1;
+
+    private static final String[] SKIPPED_FRAME_PREFIXES = {
+            "java.", "javax.", "sun.", "jdk.", "com.sun.",
+            "org.hibernate.", "javassist.", "net.bytebuddy.", "org.h2.", "com.zaxxer.",
+            "com.github.benmanes.", "com.alex323glo.hibernate.dao.", QueryRecording.class.getPackage().getName() + "."
+    };
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(\\.\\d+)?\\b");
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\?(\\s*,\\s*\\?)+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final QueryRecording outerRecording;
+    private final List<RecordedStatement> statements = Collections.synchronizedList(new ArrayList<>());
+
+    private boolean closed;
+
+    QueryRecording(QueryRecording outerRecording) {
+        this.outerRecording = outerRecording;
+    }
+
+    QueryRecording getOuterRecording() {
+        return outerRecording;
+    }
+
+    void add(String sql, StackTraceElement[] stackTrace) {
+        statements.add(new RecordedStatement(sql, toShape(sql), findCallSite(stackTrace)));
+    }
+
+    /**
+     * @return all recorded statements in order of their preparation.
+     */
+    public List<RecordedStatement> getStatements() {
+        synchronized (statements) {
+            return new ArrayList<>(statements);
+        }
+    }
+
+    /**
+     * @return number of all recorded statements.
+     */
+    public int getCount() {
+        return statements.size();
+    }
+
+    /**
+     * @param keyword first keyword of statement ("select", "insert", "update", "delete", ...).
+     * @return number of recorded statements, which start with proposed keyword.
+     */
+    public int getCount(String keyword) {
+        return (int) getStatements().stream()
+                .filter(statement -> statement.getShape().startsWith(keyword.toLowerCase()))
+                .count();
+    }
+
+    /**
+     * Groups recorded SELECT statements by shape, leaving shapes, which were executed more
+     * than proposed number of times.
+     *
+     * @param maxRepetitions max allowed number of executions of one shape.
+     * @return repeated shapes, mapped to their statements (in order of the first execution).
+     */
+    public Map<String, List<RecordedStatement>> getRepeatedSelects(int maxRepetitions) {
+        Map<String, List<RecordedStatement>> statementsByShape = new LinkedHashMap<>();
+        for (RecordedStatement statement : getStatements()) {
+            if (statement.getShape().startsWith("select")) {
+                statementsByShape.computeIfAbsent(statement.getShape(), shape -> new ArrayList<>()).add(statement);
+            }
+        }
+        statementsByShape.values().removeIf(shapeStatements -> shapeStatements.size() <= maxRepetitions);
+        return statementsByShape;
+    }
+
+    /**
+     * @param expectedCount expected number of statements.
+     * @throws AssertionError if other number of statements was recorded.
+     */
+    public void assertCount(int expectedCount) {
+        if (getCount() != expectedCount) {
+            throw new AssertionError("Expected " + expectedCount + " statement(s), but " + getCount() +
+                    " were executed:" + describe(getStatements()));
+        }
+    }
+
+    /**
+     * @param maxCount max number of statements.
+     * @throws AssertionError if more statements were recorded.
+     */
+    public void assertMaxCount(int maxCount) {
+        if (getCount() > maxCount) {
+            throw new AssertionError("Expected at most " + maxCount + " statement(s), but " + getCount() +
+                    " were executed:" + describe(getStatements()));
+        }
+    }
+
+    /**
+     * @throws AssertionError if some SELECT shape was executed more than once.
+     * @see #assertNoNPlusOne(int)
+     */
+    public void assertNoNPlusOne() {
+        assertNoNPlusOne(DEFAULT_MAX_REPETITIONS);
+    }
+
+    /**
+     * @param maxRepetitions max allowed number of executions of one SELECT shape.
+     * @throws AssertionError if some SELECT shape was executed more times (N+1 pattern).
+     */
+    public void assertNoNPlusOne(int maxRepetitions) {
+        Map<String, List<RecordedStatement>> repeatedSelects = getRepeatedSelects(maxRepetitions);
+        if (repeatedSelects.isEmpty()) {
+            return;
+        }
+
+        StringBuilder message = new StringBuilder("N+1 pattern detected:");
+        for (Map.Entry<String, List<RecordedStatement>> entry : repeatedSelects.entrySet()) {
+            Set<String> callSites = new LinkedHashSet<>();
+            entry.getValue().forEach(statement -> callSites.add(statement.getCallSite()));
+            message.append("\n  ").append(entry.getValue().size()).append(" x ").append(entry.getKey())
+                    .append("\n    at ").append(String.join("\n    at ", callSites));
+        }
+        throw new AssertionError(message.toString());
+    }
+
+    /**
+     * Stops recording (statements, recorded before, stay available).
+     */
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            QueryRecorder.stop(this);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "QueryRecording{" + getCount() + " statement(s)" + describe(getStatements()) + "\n}";
+    }
+
+    /**
+     * @param sql SQL statement.
+     * @return shape of statement (without literals, with collapsed parameter lists and whitespaces).
+     */
+    static String toShape(String sql) {
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = PARAMETER_LIST.matcher(shape).replaceAll("?");
+        return WHITESPACE.matcher(shape).replaceAll(" ").trim().toLowerCase();
+    }
+
+    /**
+     * @param stackTrace stack trace of statement preparation.
+     * @return the first frame outside of Hibernate, JDK, DAO layer and this utility
+     * (or "unknown", if there is no such frame).
+     */
+    private static String findCallSite(StackTraceElement[] stackTrace) {
+        for (StackTraceElement frame : stackTrace) {
+            if (!isSkipped(frame.getClassName())) {
+                return frame.toString();
+            }
+        }
+        return "unknown";
+    }
+
+    private static boolean isSkipped(String className) {
+        for (String prefix : SKIPPED_FRAME_PREFIXES) {
+            if (className.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String describe(List<RecordedStatement> statements) {
+        StringBuilder builder = new StringBuilder();
+        for (RecordedStatement statement : statements) {
+            builder.append("\n  ").append(statement);
+        }
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,50 @@
+package com.alex323glo.hibernate.support;
+
+/**
+ * SQL statement, recorded by QueryRecording.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see QueryRecording
+ */
+public class RecordedStatement {
+
+    private final String sql;
+    private final String shape;
+    private final String callSite;
+
+    RecordedStatement(String sql, String shape, String callSite) {
+        this.sql = sql;
+        this.shape = shape;
+        this.callSite = callSite;
+    }
+
+    /**
+     * @return SQL, which was prepared by Hibernate.
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * @return normalized SQL (without literals, with collapsed parameter lists), which is the same
+     * for executions of the same query with different arguments.
+     */
+    public String getShape() {
+        return shape;
+    }
+
+    /**
+     * @return the first stack frame outside of Hibernate, JDK and DAO layer, which caused statement.
+     */
+    public String getCallSite() {
+        return callSite;
+    }
+
+    @Override
+    public String toString() {
+        return shape + " (at " + callSite + ")";
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.alex323glo.hibernate.support;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Creates EntityManagerFactory of test persistence unit over named in-memory H2 database,
+ * whose schema is created at start and dropped at close. Statements are recorded by
+ * QueryRecorder.
+ *
+ * @author alex323glo
+ * @version 1.0
+ *
+ * @see QueryRecorder
+ */
+public final class TestPersistence {
+
+    public static final String PERSISTENCE_UNIT_NAME = "test-hibernate-h2-unit";
+
+    private TestPersistence() {
+    }
+
+    /**
+     * @param databaseName name of in-memory database (unique for each test class).
+     * @return opened EntityManagerFactory.
+     */
+    public static EntityManagerFactory createFactory(String databaseName) {
+        return createFactory(databaseName, new HashMap<>());
+    }
+
+    /**
+     * @param databaseName name of in-memory database (unique for each test class).
+     * @param properties additional properties of persistence unit.
+     * @return opened EntityManagerFactory.
+     */
+    public static EntityManagerFactory createFactory(String databaseName, Map<String, Object> properties) {
+        Map<String, Object> allProperties = QueryRecorder.install(new HashMap<>(properties));
+        allProperties.put("javax.persistence.jdbc.url", "jdbc:h2:mem:" + databaseName + ";DB_CLOSE_DELAY=-1");
+        allProperties.put("hibernate.hbm2ddl.auto", "create-drop");
+        return Persistence.createEntityManagerFactory(PERSISTENCE_UNIT_NAME, allProperties);
+    }
+
+}